@@ -101,14 +101,14 @@ public class GuiEffectTypeFactory extends BaseAnnotatedTypeFactory {
   public boolean isPolymorphicType(TypeElement cls) {
     assert (cls != null);
     return getDeclAnnotation(cls, PolyUIType.class) != null
-        || fromElement(cls).hasPrimaryAnnotation(PolyUI.class);
+        || fromElementShared(cls).hasPrimaryAnnotation(PolyUI.class);
   }
 
   public boolean isUIType(TypeElement cls) {
     if (debugSpew) {
       System.err.println(" isUIType(" + cls + ")");
     }
-    boolean targetClassUIP = fromElement(cls).hasPrimaryAnnotation(UI.class);
+    boolean targetClassUIP = fromElementShared(cls).hasPrimaryAnnotation(UI.class);
     AnnotationMirror targetClassUITypeP = getDeclAnnotation(cls, UIType.class);
     AnnotationMirror targetClassSafeTypeP = getDeclAnnotation(cls, SafeType.class);
 
@@ -136,7 +136,7 @@ public class GuiEffectTypeFactory extends BaseAnnotatedTypeFactory {
     // an @UIType polymorphic explicitly
     // AnnotationMirror targetClassPolyP = getDeclAnnotation(cls, PolyUI.class);
     // AnnotationMirror targetClassPolyTypeP = getDeclAnnotation(cls, PolyUIType.class);
-    boolean targetClassSafeP = fromElement(cls).hasPrimaryAnnotation(AlwaysSafe.class);
+    boolean targetClassSafeP = fromElementShared(cls).hasPrimaryAnnotation(AlwaysSafe.class);
     if (targetClassSafeP) {
       return false; // explicitly annotated otherwise
     }
@@ -481,7 +481,7 @@ public class GuiEffectTypeFactory extends BaseAnnotatedTypeFactory {
           // parses as @UI on an anon class decl extending Runnable
           boolean isAnonInstantiation =
               isAnonymousType(declaringType)
-                  && (fromElement(declaringType).hasPrimaryAnnotation(UI.class)
+                  && (fromElementShared(declaringType).hasPrimaryAnnotation(UI.class)
                       || uiAnonClasses.contains(declaringType));
           if (!isAnonInstantiation && !overriddenType.hasPrimaryAnnotation(UI.class)) {
             checker.reportError(
@@ -628,7 +628,7 @@ public class GuiEffectTypeFactory extends BaseAnnotatedTypeFactory {
         receiverType.addAnnotation(
             isPolymorphicType(cls)
                 ? POLYUI
-                : fromElement(cls).hasPrimaryAnnotation(UI.class) ? UI : ALWAYSSAFE);
+                : fromElementShared(cls).hasPrimaryAnnotation(UI.class) ? UI : ALWAYSSAFE);
       }
       return super.visitMethod(tree, type);
     }
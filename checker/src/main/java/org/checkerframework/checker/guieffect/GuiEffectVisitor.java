@@ -309,8 +309,10 @@ public class GuiEffectVisitor extends BaseTypeVisitor<GuiEffectTypeFactory> {
           // Skip if already inferred @UI
           && !effStack.peek().isUI()
           // Ignore if explicitly annotated
-          && !atypeFactory.fromElement(callerReceiverElt).hasPrimaryAnnotation(AlwaysSafe.class)
-          && !atypeFactory.fromElement(callerReceiverElt).hasPrimaryAnnotation(UI.class)) {
+          && !atypeFactory
+              .fromElementShared(callerReceiverElt)
+              .hasPrimaryAnnotation(AlwaysSafe.class)
+          && !atypeFactory.fromElementShared(callerReceiverElt).hasPrimaryAnnotation(UI.class)) {
         boolean overridesPolymorphic = false;
         Map<AnnotatedTypeMirror.AnnotatedDeclaredType, ExecutableElement> overriddenMethods =
             AnnotatedTypes.overriddenMethods(elements, atypeFactory, callerElt);
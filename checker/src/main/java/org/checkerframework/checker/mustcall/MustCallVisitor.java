@@ -153,7 +153,7 @@ public class MustCallVisitor extends BaseTypeVisitor<MustCallAnnotatedTypeFactor
 
         // Check for problem 1.
         AnnotationMirror explicitMustCall =
-            atypeFactory.fromElement(classEle).getPrimaryAnnotation();
+            atypeFactory.fromElementShared(classEle).getPrimaryAnnotation();
         if (explicitMustCall != null) {
           // There is a @MustCall annotation here.
 
@@ -158,7 +158,7 @@ public class NullnessVisitor
     // non-null value.  Maybe add an option to disable that behavior.)
     Element elem = initializedElement(varTree);
     if (elem != null
-        && atypeFactory.fromElement(elem).hasAnnotation(MONOTONIC_NONNULL)
+        && atypeFactory.fromElementShared(elem).hasAnnotation(MONOTONIC_NONNULL)
         && !checker.getLintOption(
             NullnessChecker.LINT_NOINITFORMONOTONICNONNULL,
             NullnessChecker.LINT_DEFAULT_NOINITFORMONOTONICNONNULL)) {
@@ -3,14 +3,16 @@ package org.checkerframework.dataflow.analysis;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.StringJoiner;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 import org.checkerframework.checker.interning.qual.FindDistinct;
@@ -574,60 +576,46 @@ public abstract class AbstractAnalysis<
    * @param b the block to add to {@link #worklist}
    */
   protected void addToWorklist(Block b) {
-    // TODO: This costs linear (!) time.  Use a more efficient way to check if b is already
-    // present.
-    // Two possibilities:
-    //  * add unconditionally, and detect duplicates when removing from the queue.
-    //  * maintain a HashSet of the elements that are already in the queue.
-    if (!worklist.contains(b)) {
-      worklist.add(b);
-    }
+    worklist.add(b);
   }
 
   /**
    * A worklist is a priority queue of blocks in which the order is given by depth-first ordering to
    * place non-loop predecessors ahead of successors.
+   *
+   * <p>Each block of the current CFG is assigned its dense depth-first index once, in {@link
+   * #process}. Membership and ordering are then kept in a bit set indexed by depth-first order, so
+   * adding, removing, and testing membership neither box integers nor compare blocks.
    */
   protected static class Worklist {
 
-    /** Map all blocks in the CFG to their depth-first order. */
-    protected final IdentityHashMap<Block, Integer> depthFirstOrder = new IdentityHashMap<>();
+    /** The direction of the analysis. Forward analyses poll low indices first, backward high. */
+    protected final Direction direction;
+
+    /** The blocks of the current CFG, indexed by their depth-first order. */
+    protected Block[] blocks = new Block[0];
 
     /**
-     * Comparators to allow priority queue to order blocks by their depth-first order, using by
-     * forward analysis.
+     * The keys of an open-addressing hash table from block uids to depth-first indices. A slot is
+     * in use iff the corresponding entry in {@link #dfoTableIndices} is non-negative.
      */
-    public class ForwardDfoComparator implements Comparator<Block> {
-      /** Creates a new ForwardDfoComparator. */
-      public ForwardDfoComparator() {}
-
-      @SuppressWarnings("nullness:unboxing.of.nullable")
-      @Override
-      public int compare(Block b1, Block b2) {
-        return depthFirstOrder.get(b1) - depthFirstOrder.get(b2);
-      }
-    }
+    private long[] dfoTableUids = new long[0];
 
     /**
-     * Comparators to allow priority queue to order blocks by their depth-first order, using by
-     * backward analysis.
+     * The values of an open-addressing hash table from block uids to depth-first indices; -1 marks
+     * an empty slot. The length is always a power of two.
      */
-    public class BackwardDfoComparator implements Comparator<Block> {
-      /** Creates a new BackwardDfoComparator. */
-      public BackwardDfoComparator() {}
-
-      @SuppressWarnings("nullness:unboxing.of.nullable")
-      @Override
-      public int compare(Block b1, Block b2) {
-        return depthFirstOrder.get(b2) - depthFirstOrder.get(b1);
-      }
-    }
+    private int[] dfoTableIndices = new int[0];
 
-    /** The backing priority queue. */
-    protected final PriorityQueue<Block> queue;
+    /** The blocks that are currently in this worklist, as a set of depth-first indices. */
+    protected final BitSet members = new BitSet();
 
-    /** Contains the same elements as {@link #queue}, for faster lookup. */
-    protected final Set<Block> queueSet;
+    /**
+     * All members are at or after this depth-first index, in the direction of the analysis. That
+     * is, for forward analysis no member has a smaller index, and for backward analysis no member
+     * has a larger index.
+     */
+    private int cursor = 0;
 
     /**
      * Create a Worklist.
@@ -635,48 +623,103 @@ public abstract class AbstractAnalysis<
      * @param direction the direction (forward or backward)
      */
     public Worklist(Direction direction) {
-      if (direction == Direction.FORWARD) {
-        queue = new PriorityQueue<>(new ForwardDfoComparator());
-        queueSet = new HashSet<>();
-      } else if (direction == Direction.BACKWARD) {
-        queue = new PriorityQueue<>(new BackwardDfoComparator());
-        queueSet = new HashSet<>();
-      } else {
+      if (direction != Direction.FORWARD && direction != Direction.BACKWARD) {
         throw new BugInCF("Unexpected Direction: " + direction.name());
       }
+      this.direction = direction;
     }
 
     /**
      * Process the control flow graph.
      *
-     * <p>This implementation sets the depth-first order for each block, by adding the blocks to
-     * {@link #depthFirstOrder}.
+     * <p>This implementation assigns the depth-first order to each block and empties the worklist.
      *
      * @param cfg the control flow graph to process
      */
     public void process(ControlFlowGraph cfg) {
-      depthFirstOrder.clear();
-      int count = 1;
-      for (Block b : cfg.getDepthFirstOrderedBlocks()) {
-        depthFirstOrder.put(b, count++);
+      List<Block> dfoBlocks = cfg.getDepthFirstOrderedBlocks();
+      int size = dfoBlocks.size();
+      blocks = dfoBlocks.toArray(new Block[size]);
+
+      // Keep the load factor of the table at most 1/2.
+      int capacity = Integer.highestOneBit(Math.max(size, 1)) << 2;
+      dfoTableUids = new long[capacity];
+      dfoTableIndices = new int[capacity];
+      Arrays.fill(dfoTableIndices, -1);
+      int mask = capacity - 1;
+      for (int i = 0; i < size; i++) {
+        long uid = blocks[i].getUid();
+        int slot = hashUid(uid) & mask;
+        while (dfoTableIndices[slot] >= 0) {
+          slot = (slot + 1) & mask;
+        }
+        dfoTableUids[slot] = uid;
+        dfoTableIndices[slot] = i;
       }
 
-      queue.clear();
-      queueSet.clear();
+      members.clear();
+      cursor = direction == Direction.FORWARD ? 0 : size - 1;
+    }
+
+    /**
+     * Returns the depth-first index of the given block in the CFG most recently passed to {@link
+     * #process}, or -1 if the block is not reachable in that CFG.
+     *
+     * @param block a block
+     * @return the depth-first index of {@code block}, or -1 if it is not in the CFG
+     */
+    public int depthFirstOrder(Block block) {
+      if (dfoTableIndices.length == 0) {
+        return -1;
+      }
+      long uid = block.getUid();
+      int mask = dfoTableIndices.length - 1;
+      int slot = hashUid(uid) & mask;
+      int index;
+      while ((index = dfoTableIndices[slot]) >= 0) {
+        if (dfoTableUids[slot] == uid) {
+          return index;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+
+    /**
+     * Spreads the bits of a block uid, for use as a hash code.
+     *
+     * @param uid a block uid
+     * @return a hash code for {@code uid}
+     */
+    private static int hashUid(long uid) {
+      int h = (int) (uid ^ (uid >>> 32));
+      return h * 0x9E3779B9;
     }
 
     /**
-     * See {@link PriorityQueue#isEmpty}.
+     * Returns the depth-first index of the given block, which must be in the current CFG.
+     *
+     * @param block a block of the current CFG
+     * @return the depth-first index of {@code block}
+     */
+    private int indexOf(Block block) {
+      int index = depthFirstOrder(block);
+      if (index < 0) {
+        throw new BugInCF("Block is not in the control flow graph: " + block);
+      }
+      return index;
+    }
+
+    /**
+     * Returns true if this Worklist is empty.
      *
-     * @see PriorityQueue#isEmpty
      * @return true if this Worklist is empty
      */
     @Pure
     @EnsuresNonNullIf(result = false, expression = "poll()")
     @SuppressWarnings("nullness:contracts.conditional.postcondition") // forwarded
     public boolean isEmpty() {
-      assert queue.isEmpty() == queueSet.isEmpty();
-      return queue.isEmpty();
+      return members.isEmpty();
     }
 
     /**
@@ -686,50 +729,76 @@ public abstract class AbstractAnalysis<
      * @return true if this Worklist contains the given block
      */
     public boolean contains(Block block) {
-      return queueSet.contains(block);
+      int index = depthFirstOrder(block);
+      return index >= 0 && members.get(index);
     }
 
     /**
-     * Add the given block to this Worklist. Adds unconditionally: does not check containment first.
+     * Add the given block to this Worklist. If the block is already present, this method does
+     * nothing.
      *
      * @param block the block to add to this Worklist
      */
     public void add(Block block) {
-      queue.add(block);
-      queueSet.add(block);
+      int index = indexOf(block);
+      members.set(index);
+      if (direction == Direction.FORWARD ? index < cursor : index > cursor) {
+        cursor = index;
+      }
     }
 
     /**
-     * Returns the head of this Worklist.
+     * Returns and removes the head of this Worklist, or returns null if this Worklist is empty.
      *
-     * @see PriorityQueue#poll
-     * @return the head of this Worklist
+     * @return the head of this Worklist, or null if this Worklist is empty
      */
     @Pure
     public @Nullable Block poll() {
-      Block result = queue.poll();
-      if (result != null) {
-        queueSet.remove(result);
+      if (members.isEmpty()) {
+        return null;
       }
-      return result;
+      int index;
+      if (direction == Direction.FORWARD) {
+        index = members.nextSetBit(cursor);
+        cursor = index + 1;
+      } else {
+        index = members.previousSetBit(cursor);
+        cursor = index - 1;
+      }
+      members.clear(index);
+      return blocks[index];
     }
 
     /**
-     * Returns the head of this Worklist.
+     * Returns and removes the head of this Worklist.
      *
-     * @see PriorityQueue#remove
      * @return the head of this Worklist
+     * @throws NoSuchElementException if this Worklist is empty
      */
     @Pure
     public Block remove() {
-      Block result = queue.remove();
-      queueSet.remove(result);
+      Block result = poll();
+      if (result == null) {
+        throw new NoSuchElementException();
+      }
       return result;
     }
 
     @Override
     public String toString() {
-      return "Worklist(" + queue + ")";
+      StringJoiner result = new StringJoiner(", ", "Worklist([", "])");
+      if (direction == Direction.FORWARD) {
+        for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+          result.add(String.valueOf(blocks[i]));
+        }
+      } else {
+        for (int i = members.previousSetBit(blocks.length - 1);
+            i >= 0;
+            i = members.previousSetBit(i - 1)) {
+          result.add(String.valueOf(blocks[i]));
+        }
+      }
+      return result.toString();
     }
   }
 }
@@ -188,8 +188,8 @@ public class BackwardAnalysisImpl<
     worklist.process(cfg);
     SpecialBlock regularExitBlock = cfg.getRegularExitBlock();
     SpecialBlock exceptionExitBlock = cfg.getExceptionalExitBlock();
-    if (worklist.depthFirstOrder.get(regularExitBlock) == null
-        && worklist.depthFirstOrder.get(exceptionExitBlock) == null) {
+    if (worklist.depthFirstOrder(regularExitBlock) < 0
+        && worklist.depthFirstOrder(exceptionExitBlock) < 0) {
       throw new BugInCF(
           "regularExitBlock and exceptionExitBlock should never both be null at the same time.");
     }
@@ -200,12 +200,12 @@ public class BackwardAnalysisImpl<
     S exceptionalInitialStore = transferFunction.initialExceptionalExitStore(underlyingAST);
     // If regularExitBlock or exceptionExitBlock is reachable in the control flow graph, then
     // initialize it as a start point of the analysis.
-    if (worklist.depthFirstOrder.get(regularExitBlock) != null) {
+    if (worklist.depthFirstOrder(regularExitBlock) >= 0) {
       worklist.add(regularExitBlock);
       inputs.put(regularExitBlock, new TransferInput<>(null, this, normalInitialStore));
       outStores.put(regularExitBlock, normalInitialStore);
     }
-    if (worklist.depthFirstOrder.get(exceptionExitBlock) != null) {
+    if (worklist.depthFirstOrder(exceptionExitBlock) >= 0) {
       worklist.add(exceptionExitBlock);
       inputs.put(exceptionExitBlock, new TransferInput<>(null, this, exceptionalInitialStore));
       outStores.put(exceptionExitBlock, exceptionalInitialStore);
@@ -2,6 +2,7 @@ package org.checkerframework.dataflow.analysis;
 
 import com.sun.source.tree.LambdaExpressionTree;
 import com.sun.source.tree.MethodTree;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -61,6 +62,33 @@ public class ForwardAnalysisImpl<
   /** The stores after every return statement. */
   protected final IdentityHashMap<ReturnNode, TransferResult<V, S>> storesAtReturnStatements;
 
+  /**
+   * How many nodes of a regular block lie between two snapshots of the store taken during the
+   * fixpoint computation, or 0 if no snapshots are taken. See {@link #setCheckpointInterval}.
+   */
+  private int checkpointInterval = 0;
+
+  /**
+   * Snapshots of the stores within regular blocks, recorded during the most recent fixpoint
+   * computation that analyzed each block. Only populated if {@link #checkpointInterval} is
+   * positive. Unlike the other per-graph maps, this is not cleared when a new control flow graph is
+   * analyzed, because {@link AnalysisResult}s of earlier graphs may still replay their blocks; call
+   * {@link #clearCheckpoints} once those results are no longer needed.
+   */
+  private final IdentityHashMap<Block, Checkpoints<V, S>> checkpoints = new IdentityHashMap<>();
+
+  /** The number of calls to {@link #runAnalysisFor} that had to look inside a block. */
+  private long replayLookups = 0;
+
+  /** The number of transfer results that {@link #runAnalysisFor} found in its cache. */
+  private long replayCacheHits = 0;
+
+  /** The number of times {@link #runAnalysisFor} called the transfer function. */
+  private long replayTransfers = 0;
+
+  /** The number of calls to {@link #runAnalysisFor} that started from a checkpoint. */
+  private long replayCheckpointHits = 0;
+
   // `@code`, not `@link`, because dataflow module doesn't depend on framework module.
   /**
    * Construct an object that can perform a org.checkerframework.dataflow forward analysis over a
@@ -120,15 +148,28 @@ public class ForwardAnalysisImpl<
         TransferInput<V, S> inputBefore = getInputBefore(rb);
         assert inputBefore != null : "@AssumeAssertion(nullness): invariant";
         currentInput = inputBefore.copy();
+        List<Node> nodes = rb.getNodes();
+        @Nullable Checkpoints<V, S> blockCheckpoints =
+            checkpointInterval > 0 && nodes.size() > checkpointInterval
+                ? new Checkpoints<>(inputBefore)
+                : null;
         Node lastNode = null;
         boolean addToWorklistAgain = false;
-        for (Node n : rb.getNodes()) {
+        for (int i = 0; i < nodes.size(); i++) {
+          Node n = nodes.get(i);
           assert currentInput != null : "@AssumeAssertion(nullness): invariant";
+          if (blockCheckpoints != null && i != 0 && i % checkpointInterval == 0) {
+            // Copy, because the transfer function may side-effect its input.
+            blockCheckpoints.inputs.add(currentInput.copy());
+          }
           TransferResult<V, S> transferResult = callTransferFunction(n, currentInput);
           addToWorklistAgain |= updateNodeValues(n, transferResult);
           currentInput = new TransferInput<>(n, this, transferResult);
           lastNode = n;
         }
+        if (blockCheckpoints != null) {
+          checkpoints.put(rb, blockCheckpoints);
+        }
         assert currentInput != null : "@AssumeAssertion(nullness): invariant";
         // Loop will run at least once, making transferResult non-null
         // Propagate store to successors
@@ -248,21 +289,40 @@ public class ForwardAnalysisImpl<
       switch (block.getType()) {
         case REGULAR_BLOCK -> {
           RegularBlock rb = (RegularBlock) block;
+          replayLookups++;
           // Apply transfer function to contents until we found the node we are
-          // looking for.
+          // looking for, starting at the last checkpoint before it if there is one.
+          List<Node> nodes = rb.getNodes();
           TransferInput<V, S> store = blockTransferInput;
+          int start = 0;
+          @Nullable Checkpoints<V, S> blockCheckpoints = checkpoints.get(rb);
+          // A checkpoint is only valid if it was taken while analyzing the block from the same
+          // input, because the block may have been analyzed again since.
+          if (blockCheckpoints != null && blockCheckpoints.blockInput == blockTransferInput) {
+            int checkpoint =
+                Math.min(
+                    indexOfNode(nodes, node) / checkpointInterval, blockCheckpoints.inputs.size());
+            if (checkpoint > 0) {
+              start = checkpoint * checkpointInterval;
+              store = blockCheckpoints.inputs.get(checkpoint - 1);
+              replayCheckpointHits++;
+            }
+          }
           TransferResult<V, S> transferResult;
-          for (Node n : rb.getNodes()) {
+          for (int i = start; i < nodes.size(); i++) {
+            Node n = nodes.get(i);
             setCurrentNode(n);
             if (n == node && preOrPost == Analysis.BeforeOrAfter.BEFORE) {
               return store.getRegularStore();
             }
             if (cache != null && cache.containsKey(n)) {
               transferResult = cache.get(n);
+              replayCacheHits++;
             } else {
               // Copy the store to avoid changing other blocks' transfer inputs in
-              // {@link #inputs}
+              // {@link #inputs}, and the checkpoints in {@link #checkpoints}
               transferResult = callTransferFunction(n, store.copy());
+              replayTransfers++;
               if (cache != null) {
                 cache.put(n, transferResult);
               }
@@ -287,16 +347,19 @@ public class ForwardAnalysisImpl<
           if (preOrPost == Analysis.BeforeOrAfter.BEFORE) {
             return blockTransferInput.getRegularStore();
           }
+          replayLookups++;
           setCurrentNode(node);
           // Copy the store to avoid changing other blocks' transfer inputs in {@link
           // #inputs}
           TransferResult<V, S> transferResult;
           if (cache != null && cache.containsKey(node)) {
             transferResult = cache.get(node);
+            replayCacheHits++;
           } else {
             // Copy the store to avoid changing other blocks' transfer inputs in
             // {@link #inputs}
             transferResult = callTransferFunction(node, blockTransferInput.copy());
+            replayTransfers++;
             if (cache != null) {
               cache.put(node, transferResult);
             }
@@ -312,6 +375,142 @@ public class ForwardAnalysisImpl<
     }
   }
 
+  /**
+   * Returns the index of {@code node} in {@code nodes}. Unlike {@link List#indexOf}, compares by
+   * identity, because distinct nodes may be {@code equals}.
+   *
+   * @param nodes the nodes of a block
+   * @param node a node of the block
+   * @return the index of {@code node} in {@code nodes}
+   */
+  private static int indexOfNode(List<Node> nodes, @FindDistinct Node node) {
+    for (int i = 0; i < nodes.size(); i++) {
+      if (nodes.get(i) == node) {
+        return i;
+      }
+    }
+    throw new BugInCF("node %s is not in node.getBlock()=%s", node, node.getBlock());
+  }
+
+  /**
+   * Sets how many nodes of a regular block lie between two snapshots of the store. If {@code
+   * interval} is positive, then the fixpoint computation records a copy of the store before every
+   * {@code interval}-th node of each regular block, and {@link #runAnalysisFor} replays a block
+   * from the last snapshot before the requested node instead of from the start of the block. It
+   * then calls the transfer function for fewer than {@code interval} nodes per lookup, at the cost
+   * of retaining the snapshots. If {@code interval} is 0, no snapshots are taken.
+   *
+   * <p>This should be set before the analysis is run; changing it afterwards invalidates the
+   * snapshots that have been taken.
+   *
+   * @param interval the number of nodes between two snapshots, or 0 to take none
+   */
+  public void setCheckpointInterval(int interval) {
+    if (interval < 0) {
+      throw new BugInCF("negative checkpoint interval: " + interval);
+    }
+    if (interval != checkpointInterval) {
+      checkpoints.clear();
+    }
+    checkpointInterval = interval;
+  }
+
+  /**
+   * Returns how many nodes of a regular block lie between two snapshots of the store, or 0 if no
+   * snapshots are taken.
+   *
+   * @return the checkpoint interval
+   * @see #setCheckpointInterval
+   */
+  public int getCheckpointInterval() {
+    return checkpointInterval;
+  }
+
+  /**
+   * Discards the snapshots of stores taken during earlier fixpoint computations. Later calls to
+   * {@link #runAnalysisFor} for the blocks of those computations replay the blocks from their
+   * start.
+   */
+  public void clearCheckpoints() {
+    checkpoints.clear();
+  }
+
+  /**
+   * Returns counts of the work that {@link #runAnalysisFor} has done so far, for performance
+   * diagnostics.
+   *
+   * @return counts of the work that {@link #runAnalysisFor} has done so far
+   */
+  public ReplayStatistics getReplayStatistics() {
+    return new ReplayStatistics(
+        replayLookups, replayCacheHits, replayTransfers, replayCheckpointHits);
+  }
+
+  /**
+   * Counts of the work that {@link #runAnalysisFor} has done.
+   *
+   * @param lookups the number of lookups that had to look inside a block
+   * @param cacheHits the number of transfer results that were found in the cache
+   * @param transfers the number of calls to the transfer function
+   * @param checkpointHits the number of lookups that started from a checkpoint
+   */
+  public record ReplayStatistics(long lookups, long cacheHits, long transfers, long checkpointHits) {
+
+    /**
+     * Returns a one-line summary of the counts, including the cache and checkpoint hit rates.
+     *
+     * @return a one-line summary of the counts
+     */
+    @Override
+    public String toString() {
+      return String.format(
+          "%d lookups, %d transfer results from cache (%.1f%%), %d transfer calls, %d lookups"
+              + " from a checkpoint (%.1f%%)",
+          lookups,
+          cacheHits,
+          percent(cacheHits, cacheHits + transfers),
+          transfers,
+          checkpointHits,
+          percent(checkpointHits, lookups));
+    }
+
+    /**
+     * Returns {@code part} as a percentage of {@code whole}, or 0 if {@code whole} is 0.
+     *
+     * @param part the part
+     * @param whole the whole
+     * @return {@code part} as a percentage of {@code whole}
+     */
+    private static double percent(long part, long whole) {
+      return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+  }
+
+  /**
+   * The snapshots of the stores within one regular block.
+   *
+   * @param <V> the abstract value type
+   * @param <S> the store type
+   */
+  private static class Checkpoints<V extends AbstractValue<V>, S extends Store<S>> {
+    /** The input of the block when the snapshots were taken. */
+    final TransferInput<V, S> blockInput;
+
+    /**
+     * The i-th element is the input of the node at index {@code (i + 1) * checkpointInterval}.
+     */
+    final List<TransferInput<V, S>> inputs = new ArrayList<>();
+
+    /**
+     * Creates an empty set of snapshots.
+     *
+     * @param blockInput the input of the block when the snapshots are taken
+     */
+    Checkpoints(TransferInput<V, S> blockInput) {
+      this.blockInput = blockInput;
+    }
+  }
+
   @Override
   protected void initFields(ControlFlowGraph cfg) {
     thenStores.clear();
@@ -0,0 +1,126 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The facts of a gen/kill analysis of one control flow graph, numbered consecutively so that a
+ * {@link GenKillStore} can represent a set of facts as a bit vector.
+ *
+ * <p>A fact is numbered the first time it is generated, so the numbers are assigned in the order in
+ * which the transfer function encounters the facts. Facts are compared with {@code equals}, as the
+ * set-based stores did.
+ *
+ * <p>Each fact is invalidated by some <em>kill keys</em>, such as the variable that a reaching
+ * definition assigns. For each kill key, this records the bit vector of the facts that it
+ * invalidates, so that killing a key is a word-parallel operation on the store.
+ *
+ * <p>All stores of one analysis of a control flow graph must share one {@code GenKillFacts}.
+ *
+ * @param <F> the type of the facts
+ * @param <K> the type of the kill keys
+ */
+public final class GenKillFacts<F, K> {
+
+  /** Maps each fact to its number. */
+  private final Map<F, Integer> indices = new HashMap<>();
+
+  /** The facts, indexed by their number. */
+  private final List<F> facts = new ArrayList<>();
+
+  /** Maps each kill key to the bit vector of the facts that it invalidates. */
+  private final Map<K, long[]> killSets = new HashMap<>();
+
+  /** Creates an empty numbering of facts. */
+  public GenKillFacts() {}
+
+  /**
+   * Returns the number of {@code fact}, numbering it if it has not been seen before.
+   *
+   * @param fact a fact
+   * @param killKeys the kill keys that invalidate {@code fact}; only used if {@code fact} has not
+   *     been seen before
+   * @return the number of {@code fact}
+   */
+  public int add(F fact, Collection<? extends K> killKeys) {
+    Integer index = indices.get(fact);
+    if (index != null) {
+      return index;
+    }
+    int newIndex = facts.size();
+    indices.put(fact, newIndex);
+    facts.add(fact);
+    for (K key : killKeys) {
+      long[] killSet = killSets.get(key);
+      killSets.put(key, setBit(killSet == null ? new long[0] : killSet, newIndex));
+    }
+    return newIndex;
+  }
+
+  /**
+   * Returns the number of {@code fact}, or -1 if it has not been numbered.
+   *
+   * @param fact a fact
+   * @return the number of {@code fact}, or -1 if it has not been numbered
+   */
+  public int indexOf(F fact) {
+    Integer index = indices.get(fact);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the fact with the given number.
+   *
+   * @param index the number of a fact
+   * @return the fact with the given number
+   */
+  public F get(int index) {
+    return facts.get(index);
+  }
+
+  /**
+   * Returns how many facts have been numbered.
+   *
+   * @return how many facts have been numbered
+   */
+  public int size() {
+    return facts.size();
+  }
+
+  /**
+   * Returns the bit vector of the facts that {@code key} invalidates, or null if there are none.
+   * Clients must not side-effect the result.
+   *
+   * @param key a kill key
+   * @return the bit vector of the facts that {@code key} invalidates, or null if there are none
+   */
+  long @Nullable [] getKillSet(K key) {
+    return killSets.get(key);
+  }
+
+  /**
+   * Sets a bit of a bit vector, growing it if necessary.
+   *
+   * @param words a bit vector
+   * @param index the bit to set
+   * @return {@code words}, or a longer copy of it, with the bit set
+   */
+  static long[] setBit(long[] words, int index) {
+    int word = index >>> 6;
+    if (word >= words.length) {
+      words = Arrays.copyOf(words, word + 1);
+    }
+    words[word] |= 1L << index;
+    return words;
+  }
+
+  @Override
+  public String toString() {
+    return "GenKillFacts" + facts;
+  }
+}
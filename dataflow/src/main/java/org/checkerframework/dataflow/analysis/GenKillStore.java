@@ -0,0 +1,229 @@
+package org.checkerframework.dataflow.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.expression.JavaExpression;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A store of a gen/kill analysis: a set of facts, represented as a bit vector over the numbering in
+ * a {@link GenKillFacts}. Copying a store copies one {@code long} per 64 facts, and merging two
+ * stores and killing a key are word-parallel operations on the bit vectors.
+ *
+ * <p>Subclasses choose whether the analysis is a may analysis, whose least upper bound is {@link
+ * #union}, or a must analysis, whose least upper bound is {@link #intersection}.
+ *
+ * @param <F> the type of the facts
+ * @param <K> the type of the kill keys
+ * @param <S> the type of the store
+ */
+public abstract class GenKillStore<F, K, S extends GenKillStore<F, K, S>> implements Store<S> {
+
+  /** The numbering of the facts. Shared by all stores of an analysis of a control flow graph. */
+  protected final GenKillFacts<F, K> facts;
+
+  /**
+   * The bit vector of the facts in this store. Bit {@code i} is set if fact {@code i} of {@link
+   * #facts} is in this store. Bits beyond the end of the array are clear.
+   */
+  private long[] words;
+
+  /**
+   * Creates a new store.
+   *
+   * @param facts the numbering of the facts
+   * @param words the bit vector of the facts in the store. The parameter is captured and the caller
+   *     should not retain an alias.
+   */
+  protected GenKillStore(GenKillFacts<F, K> facts, long[] words) {
+    this.facts = facts;
+    this.words = words;
+  }
+
+  /**
+   * Creates a new store of the same type as this one, with the same numbering of the facts.
+   *
+   * @param words the bit vector of the facts in the new store. The parameter is captured and the
+   *     caller should not retain an alias.
+   * @return a new store
+   */
+  protected abstract S create(long[] words);
+
+  /**
+   * Returns the numbering of the facts.
+   *
+   * @return the numbering of the facts
+   */
+  public GenKillFacts<F, K> getFacts() {
+    return facts;
+  }
+
+  /**
+   * Adds a fact to this store.
+   *
+   * @param fact the fact to add
+   * @param killKeys the kill keys that invalidate {@code fact}; only used if {@code fact} has not
+   *     been numbered yet
+   * @see GenKillFacts#add
+   */
+  protected void gen(F fact, Collection<? extends K> killKeys) {
+    words = GenKillFacts.setBit(words, facts.add(fact, killKeys));
+  }
+
+  /**
+   * Removes all facts that {@code key} invalidates from this store.
+   *
+   * @param key a kill key
+   */
+  protected void kill(K key) {
+    long[] killSet = facts.getKillSet(key);
+    if (killSet == null) {
+      return;
+    }
+    int n = Math.min(words.length, killSet.length);
+    for (int i = 0; i < n; i++) {
+      words[i] &= ~killSet[i];
+    }
+  }
+
+  /**
+   * Returns true if this store contains {@code fact}.
+   *
+   * @param fact a fact
+   * @return true if this store contains {@code fact}
+   */
+  public boolean contains(F fact) {
+    int index = facts.indexOf(fact);
+    return index >= 0 && (index >>> 6) < words.length && (words[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Returns true if this store contains no facts.
+   *
+   * @return true if this store contains no facts
+   */
+  public boolean isEmpty() {
+    for (long word : words) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the facts in this store, in the order in which they were numbered.
+   *
+   * @return the facts in this store
+   */
+  public List<F> toList() {
+    List<F> result = new ArrayList<>();
+    for (int i = 0; i < words.length; i++) {
+      long word = words[i];
+      while (word != 0) {
+        result.add(facts.get((i << 6) + Long.numberOfTrailingZeros(word)));
+        word &= word - 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new store that contains the facts that are in this store or in {@code other}. This is
+   * the least upper bound of a may analysis.
+   *
+   * @param other another store of the same analysis
+   * @return a new store that contains the facts that are in this store or in {@code other}
+   */
+  protected S union(S other) {
+    long[] otherWords = checkSameFacts(other);
+    long[] longer = words.length >= otherWords.length ? words : otherWords;
+    long[] shorter = longer == words ? otherWords : words;
+    long[] result = longer.clone();
+    for (int i = 0; i < shorter.length; i++) {
+      result[i] |= shorter[i];
+    }
+    return create(result);
+  }
+
+  /**
+   * Returns a new store that contains the facts that are in both this store and {@code other}. This
+   * is the least upper bound of a must analysis.
+   *
+   * @param other another store of the same analysis
+   * @return a new store that contains the facts that are in both this store and {@code other}
+   */
+  protected S intersection(S other) {
+    long[] otherWords = checkSameFacts(other);
+    long[] result = Arrays.copyOf(words, Math.min(words.length, otherWords.length));
+    for (int i = 0; i < result.length; i++) {
+      result[i] &= otherWords[i];
+    }
+    return create(result);
+  }
+
+  /**
+   * Throws an exception if {@code other} does not use the same numbering of the facts as this.
+   *
+   * @param other another store
+   * @return the bit vector of {@code other}
+   */
+  private long[] checkSameFacts(GenKillStore<F, K, S> other) {
+    if (facts != other.facts) {
+      throw new BugInCF("Stores of different analyses: %s %s", this, other);
+    }
+    return other.words;
+  }
+
+  @Override
+  public S copy() {
+    return create(words.clone());
+  }
+
+  @Override
+  public S widenedUpperBound(S previous) {
+    throw new BugInCF(getClass().getSimpleName() + ".widenedUpperBound was called!");
+  }
+
+  @Override
+  public boolean canAlias(JavaExpression a, JavaExpression b) {
+    return true;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (obj == null || obj.getClass() != getClass()) {
+      return false;
+    }
+    GenKillStore<?, ?, ?> other = (GenKillStore<?, ?, ?>) obj;
+    if (facts != other.facts) {
+      return false;
+    }
+    long[] longer = words.length >= other.words.length ? words : other.words;
+    long[] shorter = longer == words ? other.words : words;
+    for (int i = 0; i < shorter.length; i++) {
+      if (words[i] != other.words[i]) {
+        return false;
+      }
+    }
+    for (int i = shorter.length; i < longer.length; i++) {
+      if (longer[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    // Like BitSet.hashCode(), which does not depend on trailing zero words.
+    long h = 1234;
+    for (int i = words.length - 1; i >= 0; i--) {
+      h ^= words[i] * (i + 1);
+    }
+    return (int) ((h >> 32) ^ h);
+  }
+}
@@ -1,35 +1,42 @@
 package org.checkerframework.dataflow.busyexpr;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.StringJoiner;
-import org.checkerframework.checker.nullness.qual.Nullable;
-import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.analysis.GenKillFacts;
+import org.checkerframework.dataflow.analysis.GenKillStore;
 import org.checkerframework.dataflow.cfg.node.BinaryOperationNode;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
-import org.checkerframework.dataflow.expression.JavaExpression;
-import org.checkerframework.javacutil.BugInCF;
 
 /** A busy expression store contains a set of busy expressions represented by nodes. */
-public class BusyExprStore implements Store<BusyExprStore> {
+public class BusyExprStore extends GenKillStore<BusyExprValue, Node, BusyExprStore> {
 
-  /** A set of busy expression abstract values. */
-  private final Set<BusyExprValue> busyExprValueSet;
+  /**
+   * Create a new BusyExprStore that contains no busy expressions.
+   *
+   * @param facts the numbering of the busy expressions, shared by all stores of an analysis. The
+   *     kill keys of an expression are the variables that it contains.
+   */
+  public BusyExprStore(GenKillFacts<BusyExprValue, Node> facts) {
+    this(facts, new long[0]);
+  }
 
   /**
    * Create a new BusyExprStore.
    *
-   * @param busyExprValueSet a set of busy expression abstract values. The parameter is captured and
-   *     the caller should not retain an alias.
+   * @param facts the numbering of the busy expressions, shared by all stores of an analysis
+   * @param words the bit vector of the busy expressions. The parameter is captured and the caller
+   *     should not retain an alias.
    */
-  public BusyExprStore(Set<BusyExprValue> busyExprValueSet) {
-    this.busyExprValueSet = busyExprValueSet;
+  private BusyExprStore(GenKillFacts<BusyExprValue, Node> facts, long[] words) {
+    super(facts, words);
   }
 
-  /** Create a new BusyExprStore. */
-  public BusyExprStore() {
-    busyExprValueSet = new LinkedHashSet<>();
+  @Override
+  protected BusyExprStore create(long[] words) {
+    return new BusyExprStore(facts, words);
   }
 
   /**
@@ -38,8 +45,7 @@ public class BusyExprStore implements Store<BusyExprStore> {
    * @param var a variable
    */
   public void killBusyExpr(Node var) {
-    busyExprValueSet.removeIf(
-        busyExprValue -> exprContainsVariable(busyExprValue.busyExpression, var));
+    kill(var);
   }
 
   /**
@@ -60,13 +66,37 @@ public class BusyExprStore implements Store<BusyExprStore> {
     return expr.equals(var);
   }
 
+  /**
+   * Adds the variables that the expression contains to {@code variables}. These are the kill keys
+   * of the expression: {@link #exprContainsVariable}{@code (expr, var)} is true exactly if {@code
+   * var} is equal to one of them.
+   *
+   * @param expr an expression
+   * @param variables the list to which to add the variables
+   */
+  private static void addVariables(Node expr, List<Node> variables) {
+    if (expr instanceof BinaryOperationNode binaryNode) {
+      addVariables(binaryNode.getLeftOperand(), variables);
+      addVariables(binaryNode.getRightOperand(), variables);
+    } else {
+      variables.add(expr);
+    }
+  }
+
   /**
    * Add busy expression e to busy expression value set.
    *
    * @param e the busy expression to be added
    */
   public void putBusyExpr(BusyExprValue e) {
-    busyExprValueSet.add(e);
+    if (facts.indexOf(e) >= 0) {
+      // The kill keys are only needed the first time.
+      gen(e, Collections.emptyList());
+      return;
+    }
+    List<Node> variables = new ArrayList<>();
+    addVariables(e.busyExpression, variables);
+    gen(e, variables);
   }
 
   /**
@@ -83,37 +113,20 @@ public class BusyExprStore implements Store<BusyExprStore> {
     }
   }
 
-  @Override
-  public BusyExprStore copy() {
-    return new BusyExprStore(new LinkedHashSet<>(busyExprValueSet));
-  }
-
   @Override
   public BusyExprStore leastUpperBound(BusyExprStore other) {
-    Set<BusyExprValue> busyExprValueSetLub = new LinkedHashSet<>(this.busyExprValueSet);
-    busyExprValueSetLub.retainAll(other.busyExprValueSet);
-
-    return new BusyExprStore(busyExprValueSetLub);
-  }
-
-  @Override
-  public BusyExprStore widenedUpperBound(BusyExprStore previous) {
-    throw new BugInCF("BusyExprStore.widenedUpperBound was called!");
-  }
-
-  @Override
-  public boolean canAlias(JavaExpression a, JavaExpression b) {
-    return true;
+    return intersection(other);
   }
 
   @Override
   public String visualize(CFGVisualizer<?, BusyExprStore, ?> viz) {
     String key = "busy expressions";
-    if (busyExprValueSet.isEmpty()) {
+    List<BusyExprValue> busyExprValues = toList();
+    if (busyExprValues.isEmpty()) {
       return viz.visualizeStoreKeyVal(key, "none");
     }
     StringJoiner sjStoreVal = new StringJoiner(", ");
-    for (BusyExprValue busyExprValue : busyExprValueSet) {
+    for (BusyExprValue busyExprValue : busyExprValues) {
       sjStoreVal.add(busyExprValue.toString());
     }
     return viz.visualizeStoreKeyVal(key, sjStoreVal.toString());
@@ -121,19 +134,6 @@ public class BusyExprStore implements Store<BusyExprStore> {
 
   @Override
   public String toString() {
-    return busyExprValueSet.toString();
-  }
-
-  @Override
-  public boolean equals(@Nullable Object obj) {
-    if (!(obj instanceof BusyExprStore other)) {
-      return false;
-    }
-    return other.busyExprValueSet.equals(this.busyExprValueSet);
-  }
-
-  @Override
-  public int hashCode() {
-    return this.busyExprValueSet.hashCode();
+    return toList().toString();
   }
 }
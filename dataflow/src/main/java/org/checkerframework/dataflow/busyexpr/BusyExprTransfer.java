@@ -1,7 +1,9 @@
 package org.checkerframework.dataflow.busyexpr;
 
 import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.BackwardTransferFunction;
+import org.checkerframework.dataflow.analysis.GenKillFacts;
 import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
@@ -21,18 +23,41 @@ public class BusyExprTransfer
         TransferInput<UnusedAbstractValue, BusyExprStore>>
     implements BackwardTransferFunction<UnusedAbstractValue, BusyExprStore> {
 
+  /** The AST whose busy expressions {@link #facts} numbers, or null if none has been analyzed. */
+  private @Nullable UnderlyingAST factsAST;
+
+  /** The numbering of the busy expressions of {@link #factsAST}. */
+  private @Nullable GenKillFacts<BusyExprValue, Node> facts;
+
   /** Creates a BusyExprTransfer. */
   public BusyExprTransfer() {}
 
   @Override
   public BusyExprStore initialNormalExitStore(
       UnderlyingAST underlyingAST, List<ReturnNode> returnNodes) {
-    return new BusyExprStore();
+    return new BusyExprStore(getFacts(underlyingAST));
   }
 
   @Override
   public BusyExprStore initialExceptionalExitStore(UnderlyingAST underlyingAST) {
-    return new BusyExprStore();
+    return new BusyExprStore(getFacts(underlyingAST));
+  }
+
+  /**
+   * Returns the numbering of the busy expressions of the given AST. Both initial stores of an
+   * analysis must use the same numbering, so this creates a new one only when the AST changes.
+   *
+   * @param underlyingAST the AST that is being analyzed
+   * @return the numbering of the busy expressions of {@code underlyingAST}
+   */
+  private GenKillFacts<BusyExprValue, Node> getFacts(UnderlyingAST underlyingAST) {
+    GenKillFacts<BusyExprValue, Node> result = facts;
+    if (result == null || underlyingAST != factsAST) {
+      result = new GenKillFacts<>();
+      facts = result;
+      factsAST = underlyingAST;
+    }
+    return result;
   }
 
   @Override
@@ -71,14 +71,25 @@ public class ArrayAccess extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (!(obj instanceof ArrayAccess other)) {
       return false;
     }
+    if (cachedHashCodesDiffer(other)) {
+      return false;
+    }
     return array.equals(other.array) && index.equals(other.index);
   }
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     return Objects.hash(array, index);
   }
 
@@ -87,9 +87,15 @@ public class ArrayCreation extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (!(obj instanceof ArrayCreation other)) {
       return false;
     }
+    if (cachedHashCodesDiffer(other)) {
+      return false;
+    }
     return this.dimensions.equals(other.getDimensions())
         && this.initializers.equals(other.getInitializers())
         // It might be better to use Types.isSameType(getType(), other.getType()), but I
@@ -99,6 +105,11 @@ public class ArrayCreation extends JavaExpression {
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     return Objects.hash(dimensions, initializers, getType().toString());
   }
 
@@ -105,9 +105,15 @@ public class BinaryOperation extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object other) {
+    if (this == other) {
+      return true;
+    }
     if (!(other instanceof BinaryOperation biOp)) {
       return false;
     }
+    if (cachedHashCodesDiffer(biOp)) {
+      return false;
+    }
     if (operationKind != biOp.getOperationKind()) {
       return false;
     }
@@ -120,6 +126,11 @@ public class BinaryOperation extends JavaExpression {
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     if (isCommutative()) {
       // Use a commutative combination of the operands' hash codes so that equal operands in
       // swapped order (for which `equals()` returns true) hash identically.
@@ -96,9 +96,15 @@ public class FieldAccess extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (!(obj instanceof FieldAccess fa)) {
       return false;
     }
+    if (cachedHashCodesDiffer(fa)) {
+      return false;
+    }
     if (!fa.getField().equals(getField())) {
       return false;
     }
@@ -114,6 +120,11 @@ public class FieldAccess extends JavaExpression {
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     return Objects.hash(getField(), getReceiver());
   }
 
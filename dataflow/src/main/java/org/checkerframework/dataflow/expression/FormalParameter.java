@@ -82,6 +82,9 @@ public class FormalParameter extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (!(obj instanceof FormalParameter other)) {
       return false;
     }
@@ -91,6 +94,11 @@ public class FormalParameter extends JavaExpression {
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     VarSymbol vs = (VarSymbol) element;
     // Hash the same fields that `equals()` compares (via `LocalVariable.sameElement()`),
     // mirroring `LocalVariable.hashCode()`.
@@ -67,6 +67,11 @@ import org.plumelib.util.CollectionsP;
  * <p>This class's representation is like an AST: subparts are also expressions. For declared names
  * (fields, local variables, and methods), it also contains an Element.
  *
+ * <p>A JavaExpression is immutable: clients must not side-effect the lists passed to or returned by
+ * its constructors and accessors. Stores hash and compare the same expressions many times, so the
+ * subclasses whose hash codes are expensive compute them once and cache them, and their {@code
+ * equals} methods first test for identity and for unequal cached hash codes.
+ *
  * <p>Each subclass represents a different type of expression, such as {@link
  * org.checkerframework.dataflow.expression.MethodCall}, {@link
  * org.checkerframework.dataflow.expression.ArrayAccess}, {@link
@@ -79,6 +84,12 @@ public abstract class JavaExpression {
   /** The type of this expression. */
   protected final TypeMirror type;
 
+  /**
+   * The hash code of this expression, or 0 if it has not been computed yet. Used only by the
+   * subclasses that override {@link #computeHashCode}.
+   */
+  private int hashCode = 0;
+
   /**
    * Create a JavaExpression.
    *
@@ -93,6 +104,42 @@ public abstract class JavaExpression {
     return type;
   }
 
+  /**
+   * Computes the hash code of this expression. Stores hash the same expressions many times, so a
+   * subclass whose hash code is expensive to compute overrides this method and implements {@link
+   * #hashCode()} by calling {@link #cachedHashCode}, which calls this method only once.
+   *
+   * @return the hash code of this expression
+   */
+  protected int computeHashCode() {
+    throw new BugInCF("%s does not cache its hash code", getClass().getSimpleName());
+  }
+
+  /**
+   * Returns the hash code of this expression, computing it with {@link #computeHashCode} the first
+   * time.
+   *
+   * @return the hash code of this expression
+   */
+  protected final int cachedHashCode() {
+    if (hashCode == 0) {
+      hashCode = computeHashCode();
+    }
+    return hashCode;
+  }
+
+  /**
+   * Returns true if the hash codes of this and {@code other} have both been cached and differ, in
+   * which case the two expressions are not equal. An {@code equals} method can use this to return
+   * early.
+   *
+   * @param other an expression
+   * @return true if this and {@code other} have different cached hash codes
+   */
+  protected final boolean cachedHashCodesDiffer(JavaExpression other) {
+    return hashCode != 0 && other.hashCode != 0 && hashCode != other.hashCode;
+  }
+
   /**
    * Returns true if the expression is deterministic.
    *
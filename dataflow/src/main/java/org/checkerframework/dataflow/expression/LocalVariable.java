@@ -86,6 +86,9 @@ public class LocalVariable extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (!(obj instanceof LocalVariable other)) {
       return false;
     }
@@ -95,6 +98,11 @@ public class LocalVariable extends JavaExpression {
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     VarSymbol vs = (VarSymbol) element;
     return Objects.hash(vs.pos, vs.name, vs.owner);
   }
@@ -120,6 +120,9 @@ public class MethodCall extends JavaExpression {
     if (!(obj instanceof MethodCall other)) {
       return false;
     }
+    if (cachedHashCodesDiffer(other)) {
+      return false;
+    }
     if (method.getKind() == ElementKind.CONSTRUCTOR) {
       return false;
     }
@@ -133,6 +136,11 @@ public class MethodCall extends JavaExpression {
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     if (method.getKind() == ElementKind.CONSTRUCTOR) {
       return System.identityHashCode(this);
     }
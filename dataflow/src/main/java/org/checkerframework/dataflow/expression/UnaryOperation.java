@@ -85,14 +85,25 @@ public class UnaryOperation extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object other) {
+    if (this == other) {
+      return true;
+    }
     if (!(other instanceof UnaryOperation unOp)) {
       return false;
     }
+    if (cachedHashCodesDiffer(unOp)) {
+      return false;
+    }
     return operationKind == unOp.getOperationKind() && operand.equals(unOp.operand);
   }
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     return Objects.hash(operationKind, operand);
   }
 
@@ -123,6 +123,9 @@ public class ValueLiteral extends JavaExpression {
 
   @Override
   public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (!(obj instanceof ValueLiteral other)) {
       return false;
     }
@@ -133,6 +136,11 @@ public class ValueLiteral extends JavaExpression {
 
   @Override
   public int hashCode() {
+    return cachedHashCode();
+  }
+
+  @Override
+  protected int computeHashCode() {
     return Objects.hash(value, type.toString());
   }
 
@@ -1,11 +1,10 @@
 package org.checkerframework.dataflow.livevariable;
 
-import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.Collections;
+import java.util.List;
 import java.util.StringJoiner;
-import org.checkerframework.checker.nullness.qual.Nullable;
-import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.analysis.GenKillFacts;
+import org.checkerframework.dataflow.analysis.GenKillStore;
 import org.checkerframework.dataflow.cfg.node.BinaryOperationNode;
 import org.checkerframework.dataflow.cfg.node.FieldAccessNode;
 import org.checkerframework.dataflow.cfg.node.InstanceOfNode;
@@ -15,29 +14,33 @@ import org.checkerframework.dataflow.cfg.node.TernaryExpressionNode;
 import org.checkerframework.dataflow.cfg.node.TypeCastNode;
 import org.checkerframework.dataflow.cfg.node.UnaryOperationNode;
 import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
-import org.checkerframework.dataflow.expression.JavaExpression;
-import org.checkerframework.javacutil.BugInCF;
-import org.plumelib.util.ArraySet;
 
 /** A live variable store contains a set of live variables represented by nodes. */
-public class LiveVarStore implements Store<LiveVarStore> {
+public class LiveVarStore extends GenKillStore<LiveVarNode, LiveVarNode, LiveVarStore> {
 
-  /** The set of live variables in this store. */
-  private final Set<LiveVarNode> liveVarNodeSet;
-
-  /** Create a new LiveVarStore. */
-  public LiveVarStore() {
-    liveVarNodeSet = new LinkedHashSet<>();
+  /**
+   * Create a new LiveVarStore that contains no live variables.
+   *
+   * @param facts the numbering of the live variables, shared by all stores of an analysis
+   */
+  public LiveVarStore(GenKillFacts<LiveVarNode, LiveVarNode> facts) {
+    this(facts, new long[0]);
   }
 
   /**
    * Create a new LiveVarStore.
    *
-   * @param liveVarNodeSet the set of live variable nodes. The parameter is captured and the caller
+   * @param facts the numbering of the live variables, shared by all stores of an analysis
+   * @param words the bit vector of the live variables. The parameter is captured and the caller
    *     should not retain an alias.
    */
-  public LiveVarStore(Set<LiveVarNode> liveVarNodeSet) {
-    this.liveVarNodeSet = liveVarNodeSet;
+  private LiveVarStore(GenKillFacts<LiveVarNode, LiveVarNode> facts, long[] words) {
+    super(facts, words);
+  }
+
+  @Override
+  protected LiveVarStore create(long[] words) {
+    return new LiveVarStore(facts, words);
   }
 
   /**
@@ -46,7 +49,7 @@ public class LiveVarStore implements Store<LiveVarStore> {
    * @param variable a live variable
    */
   public void putLiveVar(LiveVarNode variable) {
-    liveVarNodeSet.add(variable);
+    gen(variable, Collections.singletonList(variable));
   }
 
   /**
@@ -55,7 +58,7 @@ public class LiveVarStore implements Store<LiveVarStore> {
    * @param variable a live variable
    */
   public void killLiveVar(LiveVarNode variable) {
-    liveVarNodeSet.remove(variable);
+    kill(variable);
   }
 
   /**
@@ -84,53 +87,20 @@ public class LiveVarStore implements Store<LiveVarStore> {
     }
   }
 
-  @Override
-  public boolean equals(@Nullable Object obj) {
-    if (!(obj instanceof LiveVarStore other)) {
-      return false;
-    }
-    return other.liveVarNodeSet.equals(this.liveVarNodeSet);
-  }
-
-  @Override
-  public int hashCode() {
-    return this.liveVarNodeSet.hashCode();
-  }
-
-  @Override
-  public LiveVarStore copy() {
-    return new LiveVarStore(new HashSet<>(liveVarNodeSet));
-  }
-
   @Override
   public LiveVarStore leastUpperBound(LiveVarStore other) {
-    Set<LiveVarNode> liveVarNodeSetLub =
-        ArraySet.newArraySetOrLinkedHashSet(
-            this.liveVarNodeSet.size() + other.liveVarNodeSet.size());
-    liveVarNodeSetLub.addAll(this.liveVarNodeSet);
-    liveVarNodeSetLub.addAll(other.liveVarNodeSet);
-    return new LiveVarStore(liveVarNodeSetLub);
-  }
-
-  /** It should not be called since it is not used by the backward analysis. */
-  @Override
-  public LiveVarStore widenedUpperBound(LiveVarStore previous) {
-    throw new BugInCF("wub of LiveVarStore get called!");
-  }
-
-  @Override
-  public boolean canAlias(JavaExpression a, JavaExpression b) {
-    return true;
+    return union(other);
   }
 
   @Override
   public String visualize(CFGVisualizer<?, LiveVarStore, ?> viz) {
     String key = "live variables";
-    if (liveVarNodeSet.isEmpty()) {
+    List<LiveVarNode> liveVars = toList();
+    if (liveVars.isEmpty()) {
       return viz.visualizeStoreKeyVal(key, "none");
     }
     StringJoiner sjStoreVal = new StringJoiner(", ");
-    for (LiveVarNode liveVar : liveVarNodeSet) {
+    for (LiveVarNode liveVar : liveVars) {
       sjStoreVal.add(liveVar.toString());
     }
     return viz.visualizeStoreKeyVal(key, sjStoreVal.toString());
@@ -138,6 +108,6 @@ public class LiveVarStore implements Store<LiveVarStore> {
 
   @Override
   public String toString() {
-    return liveVarNodeSet.toString();
+    return toList().toString();
   }
 }
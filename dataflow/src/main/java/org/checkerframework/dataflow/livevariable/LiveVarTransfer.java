@@ -1,7 +1,9 @@
 package org.checkerframework.dataflow.livevariable;
 
 import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.BackwardTransferFunction;
+import org.checkerframework.dataflow.analysis.GenKillFacts;
 import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
@@ -22,6 +24,12 @@ public class LiveVarTransfer
         TransferInput<UnusedAbstractValue, LiveVarStore>>
     implements BackwardTransferFunction<UnusedAbstractValue, LiveVarStore> {
 
+  /** The AST whose live variables {@link #facts} numbers, or null if none has been analyzed. */
+  private @Nullable UnderlyingAST factsAST;
+
+  /** The numbering of the live variables of {@link #factsAST}. */
+  private @Nullable GenKillFacts<LiveVarNode, LiveVarNode> facts;
+
   /** Creates a new LiveVarTransfer. */
   public LiveVarTransfer() {}
 
@@ -29,12 +37,29 @@ public class LiveVarTransfer
   @SideEffectFree
   public LiveVarStore initialNormalExitStore(
       UnderlyingAST underlyingAST, List<ReturnNode> returnNodes) {
-    return new LiveVarStore();
+    return new LiveVarStore(getFacts(underlyingAST));
   }
 
   @Override
   public LiveVarStore initialExceptionalExitStore(UnderlyingAST underlyingAST) {
-    return new LiveVarStore();
+    return new LiveVarStore(getFacts(underlyingAST));
+  }
+
+  /**
+   * Returns the numbering of the live variables of the given AST. Both initial stores of an
+   * analysis must use the same numbering, so this creates a new one only when the AST changes.
+   *
+   * @param underlyingAST the AST that is being analyzed
+   * @return the numbering of the live variables of {@code underlyingAST}
+   */
+  private GenKillFacts<LiveVarNode, LiveVarNode> getFacts(UnderlyingAST underlyingAST) {
+    GenKillFacts<LiveVarNode, LiveVarNode> result = facts;
+    if (result == null || underlyingAST != factsAST) {
+      result = new GenKillFacts<>();
+      facts = result;
+      factsAST = underlyingAST;
+    }
+    return result;
   }
 
   @Override
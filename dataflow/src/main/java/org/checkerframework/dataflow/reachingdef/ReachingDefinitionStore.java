@@ -1,37 +1,45 @@
 package org.checkerframework.dataflow.reachingdef;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.Collections;
+import java.util.List;
 import java.util.StringJoiner;
-import org.checkerframework.checker.nullness.qual.Nullable;
-import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.analysis.GenKillFacts;
+import org.checkerframework.dataflow.analysis.GenKillStore;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.visualize.CFGVisualizer;
-import org.checkerframework.dataflow.expression.JavaExpression;
-import org.checkerframework.javacutil.BugInCF;
 
 /**
  * A reaching definition store contains a set of reaching definitions represented by
  * ReachingDefinitionNode
  */
-public class ReachingDefinitionStore implements Store<ReachingDefinitionStore> {
+public class ReachingDefinitionStore
+    extends GenKillStore<ReachingDefinitionNode, Node, ReachingDefinitionStore> {
 
-  /** The set of reaching definitions in this store. */
-  private final Set<ReachingDefinitionNode> reachingDefSet;
-
-  /** Create a new ReachDefinitionStore. */
-  public ReachingDefinitionStore() {
-    reachingDefSet = new LinkedHashSet<>();
+  /**
+   * Create a new ReachingDefinitionStore that contains no reaching definitions.
+   *
+   * @param facts the numbering of the reaching definitions, shared by all stores of an analysis.
+   *     The kill key of a definition is its target.
+   */
+  public ReachingDefinitionStore(GenKillFacts<ReachingDefinitionNode, Node> facts) {
+    this(facts, new long[0]);
   }
 
   /**
-   * Create a new ReachDefinitionStore.
+   * Create a new ReachingDefinitionStore.
    *
-   * @param reachingDefSet a set of reaching definition nodes. The parameter is captured and the
+   * @param facts the numbering of the reaching definitions, shared by all stores of an analysis
+   * @param words the bit vector of the reaching definitions. The parameter is captured and the
    *     caller should not retain an alias.
    */
-  public ReachingDefinitionStore(Set<ReachingDefinitionNode> reachingDefSet) {
-    this.reachingDefSet = reachingDefSet;
+  private ReachingDefinitionStore(
+      GenKillFacts<ReachingDefinitionNode, Node> facts, long[] words) {
+    super(facts, words);
+  }
+
+  @Override
+  protected ReachingDefinitionStore create(long[] words) {
+    return new ReachingDefinitionStore(facts, words);
   }
 
   /**
@@ -40,11 +48,10 @@ public class ReachingDefinitionStore implements Store<ReachingDefinitionStore> {
    * @param defTarget target of a reaching definition
    */
   public void killDef(Node defTarget) {
-    // We use `.equals` instead of `==` here to compare value equality
-    // rather than reference equality, because if two left-hand side node
-    // have same values, we need to kill the old one and replace with the
-    // new one.
-    reachingDefSet.removeIf(generatedDefNode -> generatedDefNode.def.getTarget().equals(defTarget));
+    // GenKillFacts compares kill keys with `.equals` rather than `==`,
+    // because if two left-hand side nodes have the same value, we need to
+    // kill the old definition and replace it with the new one.
+    kill(defTarget);
   }
 
   /**
@@ -53,54 +60,23 @@ public class ReachingDefinitionStore implements Store<ReachingDefinitionStore> {
    * @param def a reaching definition
    */
   public void putDef(ReachingDefinitionNode def) {
-    reachingDefSet.add(def);
-  }
-
-  @Override
-  public boolean equals(@Nullable Object obj) {
-    if (!(obj instanceof ReachingDefinitionStore other)) {
-      return false;
-    }
-    return other.reachingDefSet.equals(this.reachingDefSet);
-  }
-
-  @Override
-  public int hashCode() {
-    return this.reachingDefSet.hashCode();
-  }
-
-  @Override
-  public ReachingDefinitionStore copy() {
-    return new ReachingDefinitionStore(new LinkedHashSet<>(reachingDefSet));
+    gen(def, Collections.singletonList(def.def.getTarget()));
   }
 
   @Override
   public ReachingDefinitionStore leastUpperBound(ReachingDefinitionStore other) {
-    LinkedHashSet<ReachingDefinitionNode> reachingDefSetLub =
-        new LinkedHashSet<>(this.reachingDefSet.size() + other.reachingDefSet.size());
-    reachingDefSetLub.addAll(this.reachingDefSet);
-    reachingDefSetLub.addAll(other.reachingDefSet);
-    return new ReachingDefinitionStore(reachingDefSetLub);
-  }
-
-  @Override
-  public ReachingDefinitionStore widenedUpperBound(ReachingDefinitionStore previous) {
-    throw new BugInCF("ReachingDefinitionStore.widenedUpperBound was called!");
-  }
-
-  @Override
-  public boolean canAlias(JavaExpression a, JavaExpression b) {
-    return true;
+    return union(other);
   }
 
   @Override
   public String visualize(CFGVisualizer<?, ReachingDefinitionStore, ?> viz) {
     String key = "reaching definitions";
-    if (reachingDefSet.isEmpty()) {
+    List<ReachingDefinitionNode> reachingDefs = toList();
+    if (reachingDefs.isEmpty()) {
       return viz.visualizeStoreKeyVal(key, "none");
     }
     StringJoiner sjStoreVal = new StringJoiner(", ", "{ ", " }");
-    for (ReachingDefinitionNode reachDefNode : reachingDefSet) {
+    for (ReachingDefinitionNode reachDefNode : reachingDefs) {
       sjStoreVal.add(reachDefNode.toString());
     }
     return viz.visualizeStoreKeyVal(key, sjStoreVal.toString());
@@ -108,6 +84,6 @@ public class ReachingDefinitionStore implements Store<ReachingDefinitionStore> {
 
   @Override
   public String toString() {
-    return "ReachingDefinitionStore: " + reachingDefSet.toString();
+    return "ReachingDefinitionStore: " + toList();
   }
 }
@@ -3,6 +3,7 @@ package org.checkerframework.dataflow.reachingdef;
 import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.ForwardTransferFunction;
+import org.checkerframework.dataflow.analysis.GenKillFacts;
 import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
@@ -30,7 +31,7 @@ public class ReachingDefinitionTransfer
   @Override
   public ReachingDefinitionStore initialStore(
       UnderlyingAST underlyingAST, @Nullable List<LocalVariableNode> parameters) {
-    return new ReachingDefinitionStore();
+    return new ReachingDefinitionStore(new GenKillFacts<>());
   }
 
   @Override
@@ -4,6 +4,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import javax.lang.model.element.AnnotationMirror;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
@@ -16,6 +17,8 @@ import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
 import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.type.TypeHierarchy;
+import org.checkerframework.framework.util.FrequencyCache;
+import org.checkerframework.framework.util.typeinference8.DefaultTypeArgumentInference;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
 import org.checkerframework.javacutil.AnnotationProvider;
 import org.checkerframework.javacutil.BugInCF;
@@ -167,6 +170,15 @@ public abstract class BaseTypeChecker extends SourceChecker {
     }
   }
 
+  @Override
+  public void typeProcessingOver() {
+    // The subcheckers write their own caches, in SourceChecker.typeProcessingOver.
+    if (getVisitor() != null) {
+      getTypeFactory().writeElementTypeCache();
+    }
+    super.typeProcessingOver();
+  }
+
   @Override
   protected boolean shouldAddShutdownHook() {
     if (super.shouldAddShutdownHook() || getTypeFactory().getCFGVisualizer() != null) {
@@ -200,6 +212,42 @@ public abstract class BaseTypeChecker extends SourceChecker {
     }
   }
 
+  @Override
+  protected void printStats() {
+    super.printStats();
+    printTypeFactoryStats(this);
+    for (SourceChecker checker : getSubcheckers()) {
+      if (checker instanceof BaseTypeChecker btc) {
+        printTypeFactoryStats(btc);
+      }
+    }
+  }
+
+  /**
+   * Prints the dataflow lookup, cache, and type argument inference statistics of the type factory
+   * of a checker.
+   *
+   * @param checker a checker
+   */
+  private static void printTypeFactoryStats(BaseTypeChecker checker) {
+    String checkerName = checker.getClass().getSimpleName();
+    GenericAnnotatedTypeFactory<?, ?, ?, ?> atf = checker.getTypeFactory();
+    System.out.println(
+        "Dataflow lookups for " + checkerName + ": " + atf.getFlowReplayStatistics());
+    for (Map.Entry<String, FrequencyCache.Statistics> entry :
+        atf.getCacheStatistics().entrySet()) {
+      System.out.println(
+          "Cache " + entry.getKey() + " for " + checkerName + ": " + entry.getValue());
+    }
+    if (atf.getTypeArgumentInference() instanceof DefaultTypeArgumentInference inference) {
+      System.out.println(
+          "Type argument inference for "
+              + checkerName
+              + ": "
+              + inference.getIncorporationStatistics());
+    }
+  }
+
   @Override
   protected Set<String> createSupportedLintOptions() {
     Set<String> lintSet = super.createSupportedLintOptions();
@@ -38,6 +38,7 @@ import org.checkerframework.javacutil.AnnotationMirrorSet;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.TypesUtils;
+import org.checkerframework.javacutil.UserError;
 
 /**
  * {@link CFAbstractAnalysis} is an extensible org.checkerframework.dataflow analysis for the
@@ -134,6 +135,31 @@ public abstract class CFAbstractAnalysis<
     this.checker = checker;
     this.transferFunction = createTransferFunction();
     this.fieldValues = new ArrayList<>();
+    setCheckpointInterval(getCheckpointInterval(checker));
+  }
+
+  /**
+   * Returns the value of the {@code -AflowCheckpointInterval} command-line option, or 0 if it is
+   * not provided.
+   *
+   * @param checker the checker whose options to read
+   * @return the number of nodes between two snapshots of the store, or 0 to take none
+   * @see ForwardAnalysisImpl#setCheckpointInterval
+   */
+  private static int getCheckpointInterval(BaseTypeChecker checker) {
+    String option = checker.getOption("flowCheckpointInterval");
+    if (option == null) {
+      return 0;
+    }
+    try {
+      int parsed = Integer.parseInt(option);
+      if (parsed < 0) {
+        throw new UserError("flowCheckpointInterval must be a non-negative integer: " + option);
+      }
+      return parsed;
+    } catch (NumberFormatException ex) {
+      throw new UserError("flowCheckpointInterval must be a non-negative integer: " + option);
+    }
   }
 
   /**
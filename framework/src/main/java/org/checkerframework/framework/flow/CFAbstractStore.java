@@ -2,7 +2,6 @@ package org.checkerframework.framework.flow;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -39,13 +38,13 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
 import org.checkerframework.framework.qual.MonotonicQualifier;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
+import org.checkerframework.framework.util.PersistentHashMap;
 import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.ElementUtils;
 import org.plumelib.util.CollectionsP;
 import org.plumelib.util.IPair;
-import org.plumelib.util.MapsP;
 import org.plumelib.util.ToStringComparator;
 import org.plumelib.util.UniqueId;
 
@@ -142,12 +141,12 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
    */
   protected CFAbstractStore(CFAbstractAnalysis<V, S, ?> analysis, boolean sequentialSemantics) {
     this.analysis = analysis;
-    this.localVariableValues = new HashMap<>();
+    this.localVariableValues = new PersistentHashMap<>();
     this.thisValue = null;
-    this.fieldValues = new HashMap<>();
-    this.methodCallExpressions = new HashMap<>();
-    this.arrayValues = new HashMap<>();
-    this.classValues = new HashMap<>();
+    this.fieldValues = new PersistentHashMap<>();
+    this.methodCallExpressions = new PersistentHashMap<>();
+    this.arrayValues = new PersistentHashMap<>();
+    this.classValues = new PersistentHashMap<>();
     this.sequentialSemantics = sequentialSemantics;
     this.assumeSideEffectFree =
         analysis.checker.hasOption("assumeSideEffectFree")
@@ -156,18 +155,19 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
   }
 
   /**
-   * Copy constructor.
+   * Copy constructor. Takes constant time: the copy shares the structure of the maps of {@code
+   * other}, until either store is modified.
    *
    * @param other a CFAbstractStore to copy into this
    */
   protected CFAbstractStore(CFAbstractStore<V, S> other) {
     this.analysis = other.analysis;
-    this.localVariableValues = new HashMap<>(other.localVariableValues);
+    this.localVariableValues = PersistentHashMap.copyOf(other.localVariableValues);
     this.thisValue = other.thisValue;
-    this.fieldValues = new HashMap<>(other.fieldValues);
-    this.methodCallExpressions = new HashMap<>(other.methodCallExpressions);
-    this.arrayValues = new HashMap<>(other.arrayValues);
-    this.classValues = new HashMap<>(other.classValues);
+    this.fieldValues = PersistentHashMap.copyOf(other.fieldValues);
+    this.methodCallExpressions = PersistentHashMap.copyOf(other.methodCallExpressions);
+    this.arrayValues = PersistentHashMap.copyOf(other.arrayValues);
+    this.classValues = PersistentHashMap.copyOf(other.classValues);
     this.sequentialSemantics = other.sequentialSemantics;
     this.assumeSideEffectFree = other.assumeSideEffectFree;
     this.assumePureGetters = other.assumePureGetters;
@@ -518,19 +518,21 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
       GenericAnnotatedTypeFactory<V, S, ?, ?> atypeFactory,
       @Nullable JavaExpression unrefinableReceiverJe,
       @Nullable List<JavaExpression> sideEffectsOnlyExpressions) {
-    Map<FieldAccess, V> newFieldValues = new HashMap<>(MapsP.mapCapacity(fieldValues));
+    // Start from a (constant-time) copy, so that fields that are not side-effected keep sharing
+    // structure with the stores that this store was copied from.
+    Map<FieldAccess, V> newFieldValues = PersistentHashMap.copyOf(fieldValues);
     for (Map.Entry<FieldAccess, V> e : fieldValues.entrySet()) {
       FieldAccess fieldAccess = e.getKey();
       V previousValue = e.getValue();
 
-      if (!isSideEffected(fieldAccess, unrefinableReceiverJe, sideEffectsOnlyExpressions)) {
-        // If the field hasn't been side-effected, there is no need to compute a new value for it.
-        // For unmodifiable fields, this is safe because they are not assignable by other code.
-        // For the exempt receiver, skipping recomputation is necessary to preserve its value.
-        newFieldValues.put(fieldAccess, previousValue);
-      } else {
+      // If the field hasn't been side-effected, there is no need to compute a new value for it.
+      // For unmodifiable fields, this is safe because they are not assignable by other code.
+      // For the exempt receiver, skipping recomputation is necessary to preserve its value.
+      if (isSideEffected(fieldAccess, unrefinableReceiverJe, sideEffectsOnlyExpressions)) {
         V newValue = newFieldValueAfterMethodCall(fieldAccess, atypeFactory, previousValue);
-        if (newValue != null) {
+        if (newValue == null) {
+          newFieldValues.remove(fieldAccess);
+        } else if (newValue != previousValue) {
           // Keep information for all hierarchies where we had a monotonic annotation.
           newFieldValues.put(fieldAccess, newValue);
         }
@@ -1327,20 +1329,14 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
   private S upperBound(S other, boolean shouldWiden) {
     S newStore = analysis.createEmptyStore(sequentialSemantics);
 
-    for (Map.Entry<LocalVariable, V> e : other.localVariableValues.entrySet()) {
-      // local variables that are only part of one store, but not the other are discarded, as
-      // one of store implicitly contains 'top' for that variable.
-      LocalVariable localVar = e.getKey();
-      V thisVal = localVariableValues.get(localVar);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-
-        if (mergedVal != null) {
-          newStore.localVariableValues.put(localVar, mergedVal);
-        }
-      }
-    }
+    // Local variables, fields, array accesses, method calls, and class names that are only part of
+    // one store, but not the other, are discarded, as one store implicitly contains 'top' for
+    // them.
+    upperBoundOfMaps(
+        newStore.localVariableValues,
+        localVariableValues,
+        other.localVariableValues,
+        shouldWiden);
 
     // information about the current object
     {
@@ -1353,57 +1349,67 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
       }
     }
 
-    for (Map.Entry<FieldAccess, V> e : other.fieldValues.entrySet()) {
-      // information about fields that are only part of one store, but not the other are
-      // discarded, as one store implicitly contains 'top' for that field.
-      FieldAccess el = e.getKey();
-      V thisVal = fieldValues.get(el);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-        if (mergedVal != null) {
-          newStore.fieldValues.put(el, mergedVal);
-        }
-      }
-    }
-    for (Map.Entry<ArrayAccess, V> e : other.arrayValues.entrySet()) {
-      // information about arrays that are only part of one store, but not the other are
-      // discarded, as one store implicitly contains 'top' for that array access.
-      ArrayAccess el = e.getKey();
-      V thisVal = arrayValues.get(el);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-        if (mergedVal != null) {
-          newStore.arrayValues.put(el, mergedVal);
-        }
-      }
-    }
-    for (Map.Entry<MethodCall, V> e : other.methodCallExpressions.entrySet()) {
-      // information about methods that are only part of one store, but not the other are
-      // discarded, as one store implicitly contains 'top' for that field.
-      MethodCall el = e.getKey();
-      V thisVal = methodCallExpressions.get(el);
-      if (thisVal != null) {
-        V otherVal = e.getValue();
-        V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-        if (mergedVal != null) {
-          newStore.methodCallExpressions.put(el, mergedVal);
-        }
-      }
+    upperBoundOfMaps(newStore.fieldValues, fieldValues, other.fieldValues, shouldWiden);
+    upperBoundOfMaps(newStore.arrayValues, arrayValues, other.arrayValues, shouldWiden);
+    upperBoundOfMaps(
+        newStore.methodCallExpressions,
+        methodCallExpressions,
+        other.methodCallExpressions,
+        shouldWiden);
+    upperBoundOfMaps(newStore.classValues, classValues, other.classValues, shouldWiden);
+    return newStore;
+  }
+
+  /**
+   * Puts into {@code result} the upper bound of {@code thisMap} and {@code otherMap}: the keys that
+   * are in both maps, mapped to the upper bound of their values.
+   *
+   * <p>If both maps are {@link PersistentHashMap}s, then {@code result} starts out as a copy of
+   * {@code thisMap}, and only the entries outside the subtrees that the two maps share are visited.
+   * An entry whose value is the same object in both maps is kept as is.
+   *
+   * @param <K> the type of the keys
+   * @param result an empty map, into which to put the upper bound
+   * @param thisMap a map of this store
+   * @param otherMap the corresponding map of the other store
+   * @param shouldWiden true if widening should be used instead of the least upper bound
+   */
+  private <K> void upperBoundOfMaps(
+      Map<K, V> result, Map<K, V> thisMap, Map<K, V> otherMap, boolean shouldWiden) {
+    if (result.isEmpty()
+        && thisMap instanceof PersistentHashMap<K, V> thisPersistentMap
+        && otherMap instanceof PersistentHashMap<K, V> otherPersistentMap) {
+      result.putAll(thisPersistentMap);
+      thisPersistentMap.allUnsharedEntriesSatisfy(
+          otherPersistentMap,
+          (key, thisVal) -> {
+            V otherVal = otherPersistentMap.get(key);
+            if (otherVal == null) {
+              result.remove(key);
+            } else if (otherVal != thisVal) {
+              V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
+              if (mergedVal != null) {
+                result.put(key, mergedVal);
+              } else {
+                result.remove(key);
+              }
+            }
+            return true;
+          });
+      return;
     }
-    for (Map.Entry<ClassName, V> e : other.classValues.entrySet()) {
-      ClassName el = e.getKey();
-      V thisVal = classValues.get(el);
+
+    for (Map.Entry<K, V> e : otherMap.entrySet()) {
+      K key = e.getKey();
+      V thisVal = thisMap.get(key);
       if (thisVal != null) {
         V otherVal = e.getValue();
         V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
         if (mergedVal != null) {
-          newStore.classValues.put(el, mergedVal);
+          result.put(key, mergedVal);
         }
       }
     }
-    return newStore;
   }
 
   private V upperBoundOfValues(V otherVal, V thisVal, boolean shouldWiden) {
@@ -1417,40 +1423,41 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
    * predicate.
    */
   protected boolean supersetOf(CFAbstractStore<V, S> other) {
-    for (Map.Entry<LocalVariable, V> e : other.localVariableValues.entrySet()) {
-      LocalVariable key = e.getKey();
-      V value = localVariableValues.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
-    }
     if (!Objects.equals(thisValue, other.thisValue)) {
       return false;
     }
-    for (Map.Entry<FieldAccess, V> e : other.fieldValues.entrySet()) {
-      FieldAccess key = e.getKey();
-      V value = fieldValues.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
-    }
-    for (Map.Entry<ArrayAccess, V> e : other.arrayValues.entrySet()) {
-      ArrayAccess key = e.getKey();
-      V value = arrayValues.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
+    return mapSupersetOf(localVariableValues, other.localVariableValues)
+        && mapSupersetOf(fieldValues, other.fieldValues)
+        && mapSupersetOf(arrayValues, other.arrayValues)
+        && mapSupersetOf(methodCallExpressions, other.methodCallExpressions)
+        && mapSupersetOf(classValues, other.classValues);
+  }
+
+  /**
+   * Returns true iff {@code thisMap} contains a superset of the entries of {@code otherMap}. If
+   * both maps are {@link PersistentHashMap}s, the entries in subtrees that they share are not
+   * compared.
+   *
+   * @param <K> the type of the keys
+   * @param thisMap a map of this store
+   * @param otherMap the corresponding map of the other store
+   * @return true iff {@code thisMap} contains a superset of the entries of {@code otherMap}
+   */
+  private static <K, V> boolean mapSupersetOf(Map<K, V> thisMap, Map<K, V> otherMap) {
+    if (thisMap.size() < otherMap.size()) {
+      return false;
     }
-    for (Map.Entry<MethodCall, V> e : other.methodCallExpressions.entrySet()) {
-      MethodCall key = e.getKey();
-      V value = methodCallExpressions.get(key);
-      if (value == null || !value.equals(e.getValue())) {
-        return false;
-      }
+    if (thisMap instanceof PersistentHashMap<K, V> thisPersistentMap
+        && otherMap instanceof PersistentHashMap<K, V> otherPersistentMap) {
+      return otherPersistentMap.allUnsharedEntriesSatisfy(
+          thisPersistentMap,
+          (key, otherVal) -> {
+            V value = thisPersistentMap.get(key);
+            return value != null && value.equals(otherVal);
+          });
     }
-    for (Map.Entry<ClassName, V> e : other.classValues.entrySet()) {
-      ClassName key = e.getKey();
-      V value = classValues.get(key);
+    for (Map.Entry<K, V> e : otherMap.entrySet()) {
+      V value = thisMap.get(e.getKey());
       if (value == null || !value.equals(e.getValue())) {
         return false;
       }
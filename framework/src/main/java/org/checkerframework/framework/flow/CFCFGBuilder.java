@@ -9,6 +9,9 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.VariableElement;
@@ -64,19 +67,41 @@ public class CFCFGBuilder extends CFGBuilder {
       }
     }
 
-    CFTreeBuilder builder = new CFTreeBuilder(env);
-    PhaseOneResult phase1result =
-        new CFCFGTranslationPhaseOne(
-                builder, checker, factory, assumeAssertionsEnabled, assumeAssertionsDisabled, env)
-            .process(root, underlyingAST);
-    ControlFlowGraph phase2result = CFGTranslationPhaseTwo.process(phase1result);
-    ControlFlowGraph phase3result = CFGTranslationPhaseThree.process(phase2result);
+    // Checkers that are not subcheckers of one another share the control-flow graphs whose
+    // construction does not depend on which of them builds them.
+    SharedCFGs sharedCFGs = factory.shouldCache ? SharedCFGs.instance(env) : null;
+    SharedCFGs.Variant variant =
+        new SharedCFGs.Variant(assumeAssertionsEnabled, assumeAssertionsDisabled);
+    ControlFlowGraph result =
+        sharedCFGs == null
+            ? null
+            : sharedCFGs.get(root, underlyingAST.getCode(), variant, checker, factory);
+
+    if (result == null) {
+      CFTreeBuilder builder = new CFTreeBuilder(env);
+      CFCFGTranslationPhaseOne phaseOne =
+          new CFCFGTranslationPhaseOne(
+              builder, checker, factory, assumeAssertionsEnabled, assumeAssertionsDisabled, env);
+      PhaseOneResult phase1result = phaseOne.process(root, underlyingAST);
+      ControlFlowGraph phase2result = CFGTranslationPhaseTwo.process(phase1result);
+      result = CFGTranslationPhaseThree.process(phase2result);
+      if (sharedCFGs != null) {
+        sharedCFGs.put(
+            root,
+            underlyingAST.getCode(),
+            variant,
+            result,
+            phaseOne.getArtificialTreeElements(),
+            phaseOne.getAssumeAssertions(),
+            factory);
+      }
+    }
     if (factory instanceof GenericAnnotatedTypeFactory<?, ?, ?, ?> asGATF) {
       if (asGATF.hasOrIsSubchecker) {
-        asGATF.addSharedCFGForTree(underlyingAST.getCode(), phase3result);
+        asGATF.addSharedCFGForTree(underlyingAST.getCode(), result);
       }
     }
-    return phase3result;
+    return result;
   }
 
   /**
@@ -121,6 +146,17 @@ public class CFCFGBuilder extends CFGBuilder {
     /** Type factory to provide types used during CFG building. */
     protected final AnnotatedTypeFactory factory;
 
+    /**
+     * The enclosing element of each artificial tree registered by {@link #handleArtificialTree}.
+     */
+    private final Map<Tree, Element> artificialTreeElements = new LinkedHashMap<>();
+
+    /**
+     * Whether each {@code assert} statement with a detail message was assumed to be executed
+     * because of an {@code @AssumeAssertion} string; see {@link #assumeAssertionsEnabledFor}.
+     */
+    private final Map<AssertTree, Boolean> assumeAssertions = new LinkedHashMap<>();
+
     public CFCFGTranslationPhaseOne(
         CFTreeBuilder builder,
         BaseTypeChecker checker,
@@ -135,27 +171,56 @@ public class CFCFGBuilder extends CFGBuilder {
 
     @Override
     protected boolean assumeAssertionsEnabledFor(AssertTree tree) {
-      if (assumeAssertionsActivatedForAssertTree(checker, tree)) {
+      boolean activated = assumeAssertionsActivatedForAssertTree(checker, tree);
+      if (tree.getDetail() != null) {
+        assumeAssertions.put(tree, activated);
+      }
+      if (activated) {
         return true;
       }
       return super.assumeAssertionsEnabledFor(tree);
     }
 
+    /**
+     * Returns whether each {@code assert} statement with a detail message was assumed to be
+     * executed because of an {@code @AssumeAssertion} string. Another checker can reuse the
+     * control-flow graph only if the strings have the same effect for it.
+     *
+     * @return whether each {@code assert} statement with a detail message translated so far was
+     *     assumed to be executed because of an {@code @AssumeAssertion} string
+     */
+    public Map<AssertTree, Boolean> getAssumeAssertions() {
+      return Collections.unmodifiableMap(assumeAssertions);
+    }
+
     @Override
     public void handleArtificialTree(Tree tree) {
       MethodTree enclosingMethod = TreePathUtil.enclosingMethod(getCurrentPath());
       if (enclosingMethod != null) {
         Element methodElement = TreeUtils.elementFromDeclaration(enclosingMethod);
         factory.setEnclosingElementForArtificialTree(tree, methodElement);
+        artificialTreeElements.put(tree, methodElement);
       } else {
         ClassTree enclosingClass = TreePathUtil.enclosingClass(getCurrentPath());
         if (enclosingClass != null) {
           Element classElement = TreeUtils.elementFromDeclaration(enclosingClass);
           factory.setEnclosingElementForArtificialTree(tree, classElement);
+          artificialTreeElements.put(tree, classElement);
         }
       }
     }
 
+    /**
+     * Returns the enclosing element of each artificial tree that {@link #handleArtificialTree}
+     * registered with the type factory. Another type factory that reuses the control-flow graph
+     * must register them too.
+     *
+     * @return the enclosing element of each artificial tree created so far
+     */
+    public Map<Tree, Element> getArtificialTreeElements() {
+      return Collections.unmodifiableMap(artificialTreeElements);
+    }
+
     @Override
     protected VariableTree createEnhancedForLoopIteratorVariable(
         MethodInvocationTree iteratorCall, VariableElement variableElement) {
@@ -0,0 +1,285 @@
+package org.checkerframework.framework.flow;
+
+import com.sun.source.tree.AssertTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.node.MethodInvocationNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.qual.AssertMethod;
+import org.checkerframework.dataflow.qual.TerminatesExecution;
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.javacutil.AnnotationUtils;
+
+/**
+ * The control-flow graphs that have been built for the current compilation unit during one javac
+ * invocation. The instance is stored in the javac {@link Context}, so it is shared by checkers
+ * that run in the same invocation but are not subcheckers of one another, such as the two
+ * checkers in {@code -processor NullnessChecker,IndexChecker}. (A checker and its subcheckers
+ * already share every control-flow graph; see {@link
+ * org.checkerframework.framework.type.GenericAnnotatedTypeFactory#getSharedCFGForTree}.)
+ *
+ * <p>A control-flow graph is reused only by a checker for which {@link CFCFGBuilder} would build
+ * the same graph: one with the same assertion options, for which the {@code @AssumeAssertion}
+ * strings of the code's {@code assert} statements have the same effect, and that sees the same
+ * {@code @TerminatesExecution} and {@code @AssertMethod} annotations on the methods that the code
+ * calls. Otherwise the checker builds its own variant, which is also shared.
+ *
+ * <p>Only the graphs of one compilation unit are kept: every checker processes a class before
+ * javac moves on to the next one, so the graphs are discarded when a checker asks about a new
+ * compilation unit.
+ */
+final class SharedCFGs {
+
+  /** The key of the instance in the javac context. */
+  private static final Context.Key<SharedCFGs> KEY = new Context.Key<>();
+
+  /** The compilation unit whose control-flow graphs are in {@link #cfgs}. */
+  private @Nullable CompilationUnitTree root;
+
+  /** Maps a method, lambda, or class to the variants of its control-flow graph. */
+  private final Map<Tree, List<SharedCFG>> cfgs = new IdentityHashMap<>();
+
+  /** Creates a new SharedCFGs. */
+  private SharedCFGs() {}
+
+  /**
+   * Returns the instance for the given processing environment, or null if the processing
+   * environment is not javac's.
+   *
+   * @param processingEnv the processing environment
+   * @return the instance for {@code processingEnv}, or null
+   */
+  static @Nullable SharedCFGs instance(ProcessingEnvironment processingEnv) {
+    if (!(processingEnv instanceof JavacProcessingEnvironment)) {
+      return null;
+    }
+    Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+    synchronized (SharedCFGs.class) {
+      SharedCFGs result = context.get(KEY);
+      if (result == null) {
+        result = new SharedCFGs();
+        context.put(KEY, result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Returns a control-flow graph for {@code code} that another checker built and that {@link
+   * CFCFGBuilder} would build the same way for {@code factory}, or null if there is none. Before
+   * returning the graph, registers its artificial trees with {@code factory}, as building it would
+   * have done.
+   *
+   * @param root the compilation unit that contains {@code code}
+   * @param code the code whose control-flow graph is wanted
+   * @param variant the options with which {@code factory} builds control-flow graphs
+   * @param checker the checker that wants the control-flow graph
+   * @param factory the type factory of {@code checker}
+   * @return a control-flow graph for {@code code}, or null
+   */
+  synchronized @Nullable ControlFlowGraph get(
+      CompilationUnitTree root,
+      Tree code,
+      Variant variant,
+      BaseTypeChecker checker,
+      AnnotatedTypeFactory factory) {
+    setRoot(root);
+    List<SharedCFG> variants = cfgs.get(code);
+    if (variants == null) {
+      return null;
+    }
+    BaseTypeChecker ultimateParent = checker.getUltimateParentChecker();
+    for (SharedCFG shared : variants) {
+      // A checker that rebuilds a graph keeps doing so, as it would without sharing.
+      @SuppressWarnings("interning:not.interned") // Checking reference equality.
+      boolean sameChecker =
+          shared.builtBy.getChecker().getUltimateParentChecker() == ultimateParent;
+      if (!sameChecker
+          && shared.variant.equals(variant)
+          && shared.hasSameAssumeAssertions(checker)
+          && shared.isUsableBy(factory)) {
+        shared.artificialTrees.forEach(factory::setEnclosingElementForArtificialTree);
+        return shared.cfg;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Records a control-flow graph so that other checkers can reuse it.
+   *
+   * @param root the compilation unit that contains {@code code}
+   * @param code the code whose control-flow graph was built
+   * @param variant the options with which {@code cfg} was built
+   * @param cfg the control-flow graph of {@code code}
+   * @param artificialTrees the enclosing element of each artificial tree created while building
+   *     {@code cfg}
+   * @param assumeAssertions whether {@code assert} statements with a detail message were assumed
+   *     to be executed because of an {@code @AssumeAssertion} string, while building {@code cfg}
+   * @param builtBy the type factory that built {@code cfg}
+   */
+  synchronized void put(
+      CompilationUnitTree root,
+      Tree code,
+      Variant variant,
+      ControlFlowGraph cfg,
+      Map<Tree, Element> artificialTrees,
+      Map<AssertTree, Boolean> assumeAssertions,
+      AnnotatedTypeFactory builtBy) {
+    setRoot(root);
+    cfgs.computeIfAbsent(code, k -> new ArrayList<>(1))
+        .add(new SharedCFG(cfg, variant, artificialTrees, assumeAssertions, builtBy));
+  }
+
+  /**
+   * Discards the control-flow graphs if {@code root} is a new compilation unit.
+   *
+   * @param root the current compilation unit
+   */
+  @SuppressWarnings("interning:not.interned") // Checking reference equality.
+  private void setRoot(CompilationUnitTree root) {
+    if (this.root != root) {
+      this.root = root;
+      cfgs.clear();
+    }
+  }
+
+  /**
+   * The options that affect how {@link CFCFGBuilder} builds a control-flow graph. The {@code
+   * @AssumeAssertion} strings that a checker recognizes affect the graph too, but only for the
+   * {@code assert} statements that the code contains; see {@link SharedCFG#assumeAssertions}.
+   *
+   * @param assumeAssertionsEnabled true if the checker assumes that assertions are enabled
+   * @param assumeAssertionsDisabled true if the checker assumes that assertions are disabled
+   */
+  record Variant(boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled) {}
+
+  /** A control-flow graph, with what is needed to decide whether another checker can reuse it. */
+  private static final class SharedCFG {
+
+    /** The control-flow graph. */
+    final ControlFlowGraph cfg;
+
+    /** The options with which {@link #cfg} was built. */
+    final Variant variant;
+
+    /** The enclosing element of each artificial tree created while building {@link #cfg}. */
+    final Map<Tree, Element> artificialTrees;
+
+    /**
+     * Whether each {@code assert} statement with a detail message was assumed to be executed
+     * because of an {@code @AssumeAssertion} string, while building {@link #cfg}.
+     */
+    final Map<AssertTree, Boolean> assumeAssertions;
+
+    /** The type factory that built {@link #cfg}. */
+    final AnnotatedTypeFactory builtBy;
+
+    /** The methods that {@link #cfg} calls; null until first needed. */
+    private @Nullable Set<ExecutableElement> calledMethods;
+
+    /**
+     * Creates a new SharedCFG.
+     *
+     * @param cfg the control-flow graph
+     * @param variant the options with which {@code cfg} was built
+     * @param artificialTrees the enclosing element of each artificial tree created while building
+     *     {@code cfg}
+     * @param assumeAssertions whether each {@code assert} statement with a detail message was
+     *     assumed to be executed because of an {@code @AssumeAssertion} string
+     * @param builtBy the type factory that built {@code cfg}
+     */
+    SharedCFG(
+        ControlFlowGraph cfg,
+        Variant variant,
+        Map<Tree, Element> artificialTrees,
+        Map<AssertTree, Boolean> assumeAssertions,
+        AnnotatedTypeFactory builtBy) {
+      this.cfg = cfg;
+      this.variant = variant;
+      this.artificialTrees = artificialTrees;
+      this.assumeAssertions = assumeAssertions;
+      this.builtBy = builtBy;
+    }
+
+    /**
+     * Returns true if the {@code @AssumeAssertion} strings of the {@code assert} statements in
+     * {@link #cfg} have the same effect for {@code checker} as for the checker that built it.
+     *
+     * @param checker a checker
+     * @return true if {@code checker} assumes the same {@code assert} statements to be executed
+     */
+    boolean hasSameAssumeAssertions(BaseTypeChecker checker) {
+      for (Map.Entry<AssertTree, Boolean> entry : assumeAssertions.entrySet()) {
+        if (CFCFGBuilder.assumeAssertionsActivatedForAssertTree(checker, entry.getKey())
+            != entry.getValue()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns true if {@code factory} sees the same {@code @TerminatesExecution} and
+     * {@code @AssertMethod} annotations as {@link #builtBy} on every method that {@link #cfg}
+     * calls. The control-flow graph depends on no other declaration annotations.
+     *
+     * @param factory a type factory
+     * @return true if {@link #cfg} does not depend on which of the two type factories built it
+     */
+    boolean isUsableBy(AnnotatedTypeFactory factory) {
+      if (calledMethods == null) {
+        calledMethods = new LinkedHashSet<>();
+        for (Node node : cfg.getAllNodes()) {
+          if (node instanceof MethodInvocationNode invocation) {
+            calledMethods.add(invocation.getTarget().getMethod());
+          }
+        }
+      }
+      for (ExecutableElement method : calledMethods) {
+        if (!sameDeclAnnotation(method, TerminatesExecution.class, factory)
+            || !sameDeclAnnotation(method, AssertMethod.class, factory)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns true if {@code factory} and {@link #builtBy} see the same declaration annotation of
+     * the given class on {@code method}.
+     *
+     * @param method a method
+     * @param annoClass an annotation class
+     * @param factory a type factory
+     * @return true if the two type factories see the same annotation on {@code method}
+     */
+    private boolean sameDeclAnnotation(
+        ExecutableElement method,
+        Class<? extends Annotation> annoClass,
+        AnnotatedTypeFactory factory) {
+      AnnotationMirror built = builtBy.getDeclAnnotation(method, annoClass);
+      AnnotationMirror used = factory.getDeclAnnotation(method, annoClass);
+      if (built == null || used == null) {
+        return built == null && used == null;
+      }
+      return AnnotationUtils.areSame(built, used);
+    }
+  }
+}
@@ -75,10 +75,12 @@ import org.checkerframework.checker.signature.qual.ClassGetName;
 import org.checkerframework.checker.signature.qual.FullyQualifiedName;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.reflection.MethodValChecker;
+import org.checkerframework.dataflow.expression.JavaExpression;
 import org.checkerframework.framework.qual.AnnotatedFor;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.util.CheckerMain;
 import org.checkerframework.framework.util.OptionConfiguration;
+import org.checkerframework.framework.util.StringToJavaExpression;
 import org.checkerframework.framework.util.TreePathCacher;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
 import org.checkerframework.javacutil.AnnotationProvider;
@@ -416,9 +418,34 @@ import org.plumelib.util.UtilP;
   // Set the cache size for caches in AnnotatedTypeFactory
   "atfCacheSize",
 
+  // Set the capacities of individual caches in AnnotatedTypeFactory, as a comma-separated list of
+  // name=size pairs.  Overrides atfCacheSize for the named caches.
+  // org.checkerframework.framework.type.AnnotatedTypeFactory.createCache()
+  "atfCacheSizes",
+
   // Sets AnnotatedTypeFactory shouldCache to false
   "atfDoNotCache",
 
+  // Memoize top-level subtype checks, in a cache of the given size that is cleared for each
+  // compilation unit.
+  // org.checkerframework.framework.type.DefaultTypeHierarchy
+  "subtypeCacheSize",
+
+  // Store the annotated types of elements from .jar files and the JDK in the given directory, and
+  // reuse them in later compilations.
+  // org.checkerframework.framework.type.PersistentElementTypeCache
+  "elementTypeCache",
+
+  // Parse stub files and the annotated JDK on the given number of background threads, before they
+  // are needed.
+  // org.checkerframework.framework.stub.AnnotationFileElementTypes
+  "stubParseThreads",
+
+  // Take a snapshot of the dataflow store every N nodes of a basic block, so that looking up the
+  // store at a node replays at most N nodes.  0 (the default) takes no snapshots.
+  // org.checkerframework.framework.flow.CFAbstractAnalysis.getCheckpointInterval()
+  "flowCheckpointInterval",
+
   // Language Server Protocol (LSP) Support
 
   // TODO: document `-AlspTypeInfo` in manual, as a debugging option.
@@ -688,6 +715,16 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
    */
   protected TreePathCacher treePathCacher = null;
 
+  /**
+   * Caches the Java expressions that {@link StringToJavaExpression#atTypeDecl}, {@link
+   * StringToJavaExpression#atFieldDecl}, and {@link StringToJavaExpression#atMethodDecl} parse.
+   * Maps a pair of an expression string and the declaration at which it is parsed to the result of
+   * parsing. The result depends on the current compilation unit, against which class names are
+   * resolved, so {@link #setRoot} clears this cache.
+   */
+  private final Map<IPair<String, Element>, JavaExpression> declarationExpressionCache =
+      new HashMap<>();
+
   /** Creates a source checker. */
   protected SourceChecker() {}
 
@@ -774,6 +811,7 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
   public void setRoot(CompilationUnitTree newRoot) {
     currentRoot = newRoot;
     visitor.setRoot(currentRoot);
+    declarationExpressionCache.clear();
     if (parentChecker == null) {
       // Only clear the path cache if this is the main checker.
       treePathCacher.clear();
@@ -1300,6 +1338,11 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
     Log log = Log.instance(context);
 
+    // The subcheckers run one after another on this thread, even those that do not depend on one
+    // another.  Type-checking uses javac's symbol table, Types, and Trees, which complete symbols
+    // lazily and are not thread-safe, and a subchecker may query the type factory of any other
+    // subchecker.  Only work that does not use javac, such as parsing stub files, is done on other
+    // threads.
     int numErrorsOfAllPreviousCheckers = this.errsOnLastExit;
     for (SourceChecker subchecker : getSubcheckers()) {
       subchecker.errsOnLastExit = numErrorsOfAllPreviousCheckers;
@@ -3609,6 +3652,16 @@ public abstract class SourceChecker extends AbstractTypeProcessor implements Opt
     return TreePath.getPath(currentRoot, currentRoot);
   }
 
+  /**
+   * Returns the cache of Java expression strings parsed at declarations in the current compilation
+   * unit. Only {@link StringToJavaExpression} should use this.
+   *
+   * @return the cache of Java expression strings parsed at declarations
+   */
+  public Map<IPair<String, Element>, JavaExpression> getDeclarationExpressionCache() {
+    return declarationExpressionCache;
+  }
+
   /**
    * Index of this checker {@link #getSubcheckers()} or the size of {@link #getSubcheckers()} if
    * this is the ultimate ancestor checker. Do not use this field directly. Call {@link
@@ -1,25 +1,40 @@
 package org.checkerframework.framework.stub;
 
 import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.tools.javac.comp.AttrContext;
+import com.sun.tools.javac.comp.Env;
+import com.sun.tools.javac.comp.Todo;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
 import io.github.classgraph.ClassGraph;
 import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.JarURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -30,7 +45,9 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.IntersectionType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -44,11 +61,13 @@ import org.checkerframework.framework.stub.AnnotationFileUtil.AnnotationFileType
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.framework.util.CheckerDaemon;
 import org.checkerframework.javacutil.AnnotationMirrorSet;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.SystemUtil;
 import org.checkerframework.javacutil.TypesUtils;
+import org.checkerframework.javacutil.UserError;
 import org.plumelib.util.CollectionsP;
 import org.plumelib.util.IPair;
 
@@ -57,6 +76,16 @@ import org.plumelib.util.IPair;
  * using an ajava file, only holds information on public elements as with stub files.
  */
 public class AnnotationFileElementTypes {
+
+  /**
+   * The name of the index of the annotated JDK, in its root directory. It is written by {@code
+   * JavaStubifier}; see {@link #readJdkIndex}.
+   */
+  private static final String JDK_INDEX_NAME = "index.txt";
+
+  /** The first line of the index of the annotated JDK. Must match {@code JavaStubifier}. */
+  private static final String JDK_INDEX_HEADER =
+      "# Checker Framework annotated JDK index, format 2";
   /** Annotations from annotation files (but not from annotated JDK files). */
   private final AnnotationFileAnnotations annotationFileAnnos;
 
@@ -84,6 +113,40 @@ public class AnnotationFileElementTypes {
    */
   private final Map<String, String> remainingJdkStubFilesJar = new HashMap<>();
 
+  /**
+   * Mapping from fully-qualified class name of a JDK stub file that has not yet been read to the
+   * declarations in it that contain annotations, separated by spaces, as listed by the index of the
+   * annotated JDK; see {@link #readJdkIndex}. Empty if the annotated JDK has no index.
+   */
+  private final Map<String, String> jdkAnnotatedDeclarations = new HashMap<>();
+
+  /**
+   * Mapping from fully-qualified name of a top-level class to the stub files that declare it and
+   * whose parsing has been deferred, in the order in which they were given. When the stub files
+   * for a class are parsed, its mapping is removed from this map.
+   *
+   * <p>Stub files listed in {@code @StubFiles}, returned by {@link
+   * BaseTypeChecker#getExtraStubFiles}, or passed via {@code -Astubs} are parsed when a type or
+   * declaration annotation is first requested for one of the classes that they declare, rather
+   * than at startup, if parsing them cannot issue warnings about elements that are not found.
+   */
+  private final Map<String, List<DeferredStubFile>> deferredStubFiles = new HashMap<>();
+
+  /** The number of stub files that have been passed to {@link #parseOrDeferStubFile}. */
+  private int stubFileCount = 0;
+
+  /**
+   * The classes for which {@link #parseDeferredStubFilesOfSupertypes} has parsed the deferred stub
+   * files of the class and all its supertypes.
+   */
+  private final Set<TypeElement> supertypesWithoutDeferredStubFiles = new HashSet<>();
+
+  /** True if parsing built-in stub files can be deferred; see {@link #deferredStubFiles}. */
+  private final boolean deferBuiltinStubFiles;
+
+  /** True if parsing command-line stub files can be deferred; see {@link #deferredStubFiles}. */
+  private final boolean deferCommandLineStubFiles;
+
   /** Which version number of the annotated JDK should be used? */
   private final String annotatedJdkVersion;
 
@@ -102,6 +165,22 @@ public class AnnotationFileElementTypes {
   /** True if -AstubDebug was passed on the command line. */
   private final boolean stubDebug;
 
+  /**
+   * Parses stub files on background threads before they are needed, or null if the {@code
+   * -AstubParseThreads} command-line option was not passed. See {@link #prefetchStubFiles} and
+   * {@link #prefetchJdkStubFiles}.
+   */
+  private final @Nullable SharedStubUnits prefetcher;
+
+  /** The classes whose JDK stub files {@link #prefetchJdkStubFiles} has already prefetched. */
+  private final Set<String> prefetchedJdkClasses = new HashSet<>();
+
+  /**
+   * True if {@link #prefetchJdkStubFiles} has prefetched the JDK stub files of the compilation
+   * units queued for attribution.
+   */
+  private boolean prefetchedQueuedCompilationUnits = false;
+
   /**
    * Creates an empty annotation source.
    *
@@ -119,6 +198,48 @@ public class AnnotationFileElementTypes {
     this.permitMissingJdk = factory.getChecker().hasOption("permitMissingJdk");
     this.ignorejdkastub = factory.getChecker().hasOption("ignorejdkastub");
     this.stubDebug = factory.getChecker().hasOption("stubDebug");
+
+    // Stub files that might issue warnings about missing elements are parsed at startup, so that
+    // the warnings are issued even if the stub file is not otherwise used.
+    SourceChecker checker = factory.getChecker();
+    boolean mayWarn =
+        stubDebug
+            || checker.hasOption("stubWarnIfNotFound")
+            || checker.hasOption("stubWarnIfOverwritesBytecode")
+            || checker.hasOption("stubWarnIfRedundantWithBytecode");
+    this.deferBuiltinStubFiles = !mayWarn;
+    this.deferCommandLineStubFiles = !mayWarn && checker.hasOption("stubNoWarnIfNotFound");
+
+    int stubParseThreads = getStubParseThreads(checker);
+    SharedStubUnits sharedStubUnits =
+        stubParseThreads == 0 ? null : SharedStubUnits.instance(factory.getProcessingEnv());
+    if (sharedStubUnits != null) {
+      sharedStubUnits.startWorkers(stubParseThreads);
+    }
+    this.prefetcher = sharedStubUnits;
+  }
+
+  /**
+   * Returns the number of background threads that parse stub files, as given by the {@code
+   * -AstubParseThreads} command-line option, or 0 if stub files are parsed only when needed.
+   *
+   * @param checker the checker
+   * @return the number of background threads that parse stub files, or 0
+   */
+  private static int getStubParseThreads(SourceChecker checker) {
+    String option = checker.getOption("stubParseThreads");
+    if (option == null) {
+      return 0;
+    }
+    try {
+      int parsed = Integer.parseInt(option);
+      if (parsed < 0) {
+        throw new UserError("stubParseThreads must be a non-negative integer: " + option);
+      }
+      return parsed;
+    } catch (NumberFormatException ex) {
+      throw new UserError("stubParseThreads must be a non-negative integer: " + option);
+    }
   }
 
   /**
@@ -160,6 +281,9 @@ public class AnnotationFileElementTypes {
     }
     parsing = true;
     BaseTypeChecker checker = factory.getChecker();
+    if (prefetcher != null) {
+      prefetchStubFiles();
+    }
     if (!ignorejdkastub) {
       // 1. jdk.astub
       // Only look in .jar files, and parse it right away.
@@ -341,12 +465,9 @@ public class AnnotationFileElementTypes {
           // ajava files are parsed as stub files. The extra annotation data in an
           // ajava file is parsed when type-checking the ajava file's corresponding
           // Java file.
-          AnnotationFileParser.parseStubFile(
+          parseOrDeferStubFile(
               resource.getDescription(),
               annotationFileStream,
-              factory,
-              processingEnv,
-              annotationFileAnnos,
               fileType == AnnotationFileType.AJAVA ? AnnotationFileType.AJAVA_AS_STUB : fileType);
         }
       } else {
@@ -358,8 +479,7 @@ public class AnnotationFileElementTypes {
         }
         try (InputStream in = checker.getClass().getResourceAsStream(path)) {
           if (in != null) {
-            AnnotationFileParser.parseStubFile(
-                path, in, factory, processingEnv, annotationFileAnnos, fileType);
+            parseOrDeferStubFile(path, in, fileType);
           } else {
             // Didn't find the file.  Issue a warning.
 
@@ -430,6 +550,8 @@ public class AnnotationFileElementTypes {
     if (isParsing()) {
       return null;
     }
+    // User-supplied stub files must be parsed before the JDK, so that they take precedence.
+    maybeParseDeferredStubFiles(e);
     maybeParseEnclosingJdkClass(e);
     AnnotatedTypeMirror type = annotationFileAnnos.atypes.get(e);
     return type == null ? null : type.deepCopy();
@@ -462,6 +584,7 @@ public class AnnotationFileElementTypes {
       return AnnotationMirrorSet.emptySet();
     }
 
+    maybeParseDeferredStubFiles(elt);
     maybeParseEnclosingJdkClass(elt);
     String eltName = ElementUtils.getQualifiedName(elt);
     if (annotationFileAnnos.declAnnos.containsKey(eltName)) {
@@ -524,6 +647,7 @@ public class AnnotationFileElementTypes {
     if (isParsing()) {
       throw new BugInCF("parsing while calling injectRecordComponentType");
     }
+    maybeParseDeferredStubFiles(elt);
 
     if (elt.getKind() == ElementKind.METHOD) {
       if (((ExecutableElement) elt).getParameters().isEmpty()) {
@@ -590,6 +714,11 @@ public class AnnotationFileElementTypes {
 
     ExecutableElement method = (ExecutableElement) elt;
 
+    // A fake override is declared in the stub file of a subtype of the method's class.
+    parseDeferredStubFilesOfSupertypes(receiverType.getUnderlyingType());
+    parseJdkStubFilesOfSupertypes(
+        receiverType.getUnderlyingType(), method.getSimpleName().toString(), new HashSet<>());
+
     // This is a list of pairs of (where defined, method type) for fake overrides.  The second
     // element of each pair is currently always an AnnotatedExecutableType.
     List<IPair<TypeMirror, AnnotatedTypeMirror>> candidates =
@@ -657,13 +786,421 @@ public class AnnotationFileElementTypes {
         fakeReceiverType, candidates, applicableClasses, applicableInterfaces);
   }
 
+  /**
+   * Makes every later javac invocation in this JVM reuse the stub files that earlier invocations
+   * parsed. A stub file whose contents have changed is parsed again. This is for a JVM that runs
+   * many compilations, such as {@link CheckerDaemon}.
+   */
+  public static void shareParsedStubFilesAcrossInvocations() {
+    SharedStubUnits.shareAcrossInvocations();
+  }
+
+  /**
+   * Starts parsing, on background threads, the JDK stub files of the classes that {@code root}
+   * imports, so that they are ready when the checker first uses the classes. Does nothing unless
+   * the {@code -AstubParseThreads} command-line option was passed.
+   *
+   * <p>The first call also prefetches the JDK stub files of the classes that the compilation units
+   * still queued for attribution import, after those of {@code root}. The background threads then
+   * parse them while the javac thread type-checks the compilation units before them.
+   *
+   * @param root the compilation unit that is about to be type-checked
+   */
+  public void prefetchJdkStubFiles(CompilationUnitTree root) {
+    if (prefetcher == null || !shouldParseJdk) {
+      return;
+    }
+    prefetchJdkStubFilesOfImports(root);
+    if (!prefetchedQueuedCompilationUnits) {
+      prefetchedQueuedCompilationUnits = true;
+      Context context = ((JavacProcessingEnvironment) factory.getProcessingEnv()).getContext();
+      Set<CompilationUnitTree> queued = Collections.newSetFromMap(new IdentityHashMap<>());
+      queued.add(root);
+      for (Env<AttrContext> env : Todo.instance(context)) {
+        if (queued.add(env.toplevel)) {
+          prefetchJdkStubFilesOfImports(env.toplevel);
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts parsing, on background threads, the JDK stub files of the classes that {@code root}
+   * imports and that have not been prefetched yet.
+   *
+   * @param root a compilation unit
+   */
+  private void prefetchJdkStubFilesOfImports(CompilationUnitTree root) {
+    List<String> jarEntryNames = new ArrayList<>();
+    for (ImportTree importTree : root.getImports()) {
+      // The imported name might be a member or nested class, so also try its prefixes.
+      String name = importTree.getQualifiedIdentifier().toString();
+      while (true) {
+        if ("".equals(jdkAnnotatedDeclarations.get(name))) {
+          // The file contains no annotations, so it is never parsed.
+          break;
+        } else if (remainingJdkStubFiles.containsKey(name)) {
+          if (prefetchedJdkClasses.add(name)) {
+            try {
+              prefetch(Files.newInputStream(remainingJdkStubFiles.get(name)));
+            } catch (IOException e) {
+              // The error is reported when the file is parsed.
+            }
+          }
+          break;
+        } else if (remainingJdkStubFilesJar.containsKey(name)) {
+          if (prefetchedJdkClasses.add(name)) {
+            jarEntryNames.add(remainingJdkStubFilesJar.get(name));
+          }
+          break;
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot == -1) {
+          break;
+        }
+        name = name.substring(0, dot);
+      }
+    }
+    if (jarEntryNames.isEmpty()) {
+      return;
+    }
+    JarURLConnection connection = getJarURLConnectionToJdk();
+    try (JarFile jarFile = connection.getJarFile()) {
+      for (String jarEntryName : jarEntryNames) {
+        prefetch(jarFile.getInputStream(jarFile.getJarEntry(jarEntryName)));
+      }
+    } catch (IOException e) {
+      // The error is reported when the file is parsed.
+    }
+  }
+
   //
   // End of public methods, private helper methods follow
   //
 
+  /**
+   * Starts parsing, on background threads, the stub files that {@link #parseStubFiles} parses,
+   * other than the annotated JDK. Issues no warnings: a stub file that cannot be found or read is
+   * reported when {@link #parseStubFiles} reaches it.
+   */
+  private void prefetchStubFiles() {
+    BaseTypeChecker checker = factory.getChecker();
+    if (!ignorejdkastub) {
+      List<String> jdkStubFileNames = new ArrayList<>(3);
+      jdkStubFileNames.add("jdk.astub");
+      jdkStubFileNames.add("jdk" + annotatedJdkVersion + ".astub");
+      if (annotatedJdkVersion.equals("8")) {
+        jdkStubFileNames.add("jdk11.astub");
+      }
+      for (Class<?> checkerClass : Arrays.asList(this.getClass(), checker.getClass())) {
+        for (String stubFileName : jdkStubFileNames) {
+          prefetch(checkerClass.getResourceAsStream(stubFileName));
+        }
+      }
+    }
+    StubFiles stubFilesAnnotation = checker.getClass().getAnnotation(StubFiles.class);
+    if (stubFilesAnnotation != null) {
+      prefetchAnnotationFiles(
+          Arrays.asList(stubFilesAnnotation.value()), AnnotationFileType.BUILTIN_STUB);
+    }
+    prefetchAnnotationFiles(checker.getExtraStubFiles(), AnnotationFileType.BUILTIN_STUB);
+    String stubsOption = checker.getOption("stubs");
+    if (stubsOption != null) {
+      prefetchAnnotationFiles(
+          SystemUtil.pathSeparatorSplitter.splitToList(stubsOption),
+          AnnotationFileType.COMMAND_LINE_STUB);
+    }
+  }
+
+  /**
+   * Starts parsing, on background threads, the files that {@link #parseAnnotationFiles} parses for
+   * the same arguments.
+   *
+   * @param annotationFiles list of files and directories to parse
+   * @param fileType the file type of files to parse
+   */
+  private void prefetchAnnotationFiles(List<String> annotationFiles, AnnotationFileType fileType) {
+    if (prefetcher == null) {
+      return;
+    }
+    for (String path : annotationFiles) {
+      for (byte[] contents :
+          readAnnotationFiles(path, fileType, factory.getChecker().getClass())) {
+        prefetcher.prefetch(contents);
+      }
+    }
+  }
+
+  /**
+   * Returns the contents of the annotation files that {@link #parseAnnotationFiles} parses for one
+   * element of its list: the files at or under {@code path}, or else the resource {@code path} of
+   * {@code checkerClass}, where the prefix "checker.jar/" names the top level of the jar file that
+   * contains the checker. Omits the files that cannot be found or read, which {@link
+   * #parseAnnotationFiles} reports.
+   *
+   * @param path an annotation file, a directory of annotation files, or the name of a resource
+   * @param fileType the file type of the annotation files
+   * @param checkerClass the class of the checker whose resources may contain the file
+   * @return the contents of the annotation files for {@code path}, in the order in which they are
+   *     parsed
+   */
+  @SuppressWarnings("builder:required.method.not.called") // see parseAnnotationFiles
+  public static List<byte[]> readAnnotationFiles(
+      String path, AnnotationFileType fileType, Class<?> checkerClass) {
+    List<byte[]> result = new ArrayList<>();
+    String base = System.getProperty("test.src");
+    String fullPath = (base == null) ? path : base + "/" + path;
+    List<AnnotationFileResource> allFiles =
+        AnnotationFileUtil.allAnnotationFiles(fullPath, fileType);
+    if (allFiles != null) {
+      for (AnnotationFileResource resource : allFiles) {
+        try (InputStream in = resource.getInputStream()) {
+          result.add(in.readAllBytes());
+        } catch (IOException e) {
+          // The error is reported when the file is parsed.
+        }
+      }
+    } else {
+      if (path.startsWith("checker.jar/")) {
+        path = "/" + path.substring("checker.jar/".length());
+      }
+      try (InputStream in = checkerClass.getResourceAsStream(path)) {
+        if (in != null) {
+          result.add(in.readAllBytes());
+        }
+      } catch (IOException e) {
+        // The error is reported when the file is parsed.
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads a stub file and starts parsing it on a background thread. Closes {@code in}.
+   *
+   * @param in the contents of a stub file, or null to do nothing
+   */
+  private void prefetch(@Nullable InputStream in) {
+    if (in == null || prefetcher == null) {
+      return;
+    }
+    try (InputStream stubFileIn = in) {
+      prefetcher.prefetch(stubFileIn.readAllBytes());
+    } catch (IOException e) {
+      // The error is reported when the file is parsed.
+    }
+  }
+
+  /**
+   * Parses the stub file in {@code in} now, or defers parsing it until one of the classes that it
+   * declares is used; see {@link #deferredStubFiles}.
+   *
+   * <p>If a class is declared in more than one stub file, the stub files are parsed in the order in
+   * which they were passed to this method, so that the last stub file takes precedence. Therefore,
+   * before a stub file is parsed, the deferred stub files that were passed before it and that
+   * declare a class in common with it are parsed.
+   *
+   * @param description a description of the stub file, such as its name
+   * @param in the contents of the stub file
+   * @param fileType the type of the stub file
+   */
+  private void parseOrDeferStubFile(
+      String description, InputStream in, AnnotationFileType fileType) {
+    boolean defer =
+        switch (fileType) {
+          case BUILTIN_STUB -> deferBuiltinStubFiles;
+          case COMMAND_LINE_STUB -> deferCommandLineStubFiles;
+          default -> false;
+        };
+    if (!defer && deferredStubFiles.isEmpty()) {
+      AnnotationFileParser.parseStubFile(
+          description, in, factory, factory.getProcessingEnv(), annotationFileAnnos, fileType);
+      return;
+    }
+
+    byte[] contents;
+    try (InputStream stubFileIn = in) {
+      contents = stubFileIn.readAllBytes();
+    } catch (IOException e) {
+      factory
+          .getChecker()
+          .message(Diagnostic.Kind.NOTE, "Could not read annotation resource: " + description);
+      return;
+    }
+    List<String> classNames =
+        AnnotationFileUtil.getTopLevelClassNames(new String(contents, StandardCharsets.UTF_8));
+    DeferredStubFile stubFile =
+        new DeferredStubFile(
+            description,
+            contents,
+            fileType,
+            classNames == null ? Collections.emptyList() : classNames,
+            stubFileCount++);
+    if (classNames == null || classNames.isEmpty()) {
+      // The stub file could not be scanned or it annotates packages, so parse it now, after all
+      // the stub files before it.
+      for (List<DeferredStubFile> stubFiles : new ArrayList<>(deferredStubFiles.values())) {
+        for (DeferredStubFile other : stubFiles) {
+          parseDeferredStubFile(other);
+        }
+      }
+      deferredStubFiles.clear();
+      parseDeferredStubFile(stubFile);
+    } else if (defer) {
+      for (String className : classNames) {
+        deferredStubFiles.computeIfAbsent(className, k -> new ArrayList<>(1)).add(stubFile);
+      }
+    } else {
+      parseDeferredStubFile(stubFile);
+    }
+  }
+
+  /**
+   * Parses the deferred stub files that declare the outermost enclosing class of {@code e}, if any.
+   *
+   * @param e an element whose outermost enclosing class's stub files might be parsed
+   */
+  private void maybeParseDeferredStubFiles(Element e) {
+    if (deferredStubFiles.isEmpty()) {
+      return;
+    }
+    String className = getOutermostEnclosingClass(e);
+    if (className == null || className.isEmpty()) {
+      return;
+    }
+    List<DeferredStubFile> stubFiles = deferredStubFiles.remove(className);
+    if (stubFiles != null) {
+      for (DeferredStubFile stubFile : stubFiles) {
+        parseDeferredStubFile(stubFile);
+      }
+    }
+  }
+
+  /**
+   * Parses the deferred stub files that declare the class of {@code type} or one of its
+   * supertypes.
+   *
+   * @param type a type
+   */
+  private void parseDeferredStubFilesOfSupertypes(TypeMirror type) {
+    if (deferredStubFiles.isEmpty()) {
+      return;
+    }
+    switch (type.getKind()) {
+      case DECLARED -> {}
+      case TYPEVAR -> {
+        parseDeferredStubFilesOfSupertypes(((TypeVariable) type).getUpperBound());
+        return;
+      }
+      case INTERSECTION -> {
+        for (TypeMirror bound : ((IntersectionType) type).getBounds()) {
+          parseDeferredStubFilesOfSupertypes(bound);
+        }
+        return;
+      }
+      default -> {
+        return;
+      }
+    }
+    TypeElement typeElement = TypesUtils.getTypeElement(type);
+    if (typeElement == null || !supertypesWithoutDeferredStubFiles.add(typeElement)) {
+      return;
+    }
+    maybeParseDeferredStubFiles(typeElement);
+    parseDeferredStubFilesOfSupertypes(typeElement.getSuperclass());
+    for (TypeMirror supertype : typeElement.getInterfaces()) {
+      parseDeferredStubFilesOfSupertypes(supertype);
+    }
+  }
+
+  /**
+   * Parses a stub file, unless it has already been parsed. First parses the deferred stub files
+   * that were passed to {@link #parseOrDeferStubFile} before it and that declare a class in common
+   * with it.
+   *
+   * @param stubFile the stub file to parse
+   */
+  private void parseDeferredStubFile(DeferredStubFile stubFile) {
+    byte[] contents = stubFile.contents;
+    if (contents == null) {
+      return;
+    }
+    stubFile.contents = null;
+    for (String className : stubFile.classNames) {
+      List<DeferredStubFile> stubFiles = deferredStubFiles.get(className);
+      if (stubFiles != null) {
+        for (DeferredStubFile other : new ArrayList<>(stubFiles)) {
+          if (other.index < stubFile.index) {
+            parseDeferredStubFile(other);
+          }
+        }
+      }
+    }
+
+    if (stubDebug) {
+      System.out.printf("parsing deferred stub file %s%n", stubFile.description);
+    }
+    boolean wasParsing = parsing;
+    parsing = true;
+    try {
+      AnnotationFileParser.parseStubFile(
+          stubFile.description,
+          new ByteArrayInputStream(contents),
+          factory,
+          factory.getProcessingEnv(),
+          annotationFileAnnos,
+          stubFile.fileType);
+    } finally {
+      parsing = wasParsing;
+    }
+  }
+
+  /** A stub file whose parsing might be deferred; see {@link #deferredStubFiles}. */
+  private static class DeferredStubFile {
+    /** A description of the stub file, such as its name. */
+    final String description;
+
+    /** The contents of the stub file, or null if it has been parsed. */
+    byte @Nullable [] contents;
+
+    /** The type of the stub file. */
+    final AnnotationFileType fileType;
+
+    /** The fully-qualified names of the top-level classes that the stub file declares. */
+    final List<String> classNames;
+
+    /** The position of this stub file among all the stub files, which determines precedence. */
+    final int index;
+
+    /**
+     * Creates a DeferredStubFile.
+     *
+     * @param description a description of the stub file, such as its name
+     * @param contents the contents of the stub file
+     * @param fileType the type of the stub file
+     * @param classNames the fully-qualified names of the top-level classes that the stub file
+     *     declares
+     * @param index the position of this stub file among all the stub files
+     */
+    DeferredStubFile(
+        String description,
+        byte[] contents,
+        AnnotationFileType fileType,
+        List<String> classNames,
+        int index) {
+      this.description = description;
+      this.contents = contents;
+      this.fileType = fileType;
+      this.classNames = classNames;
+      this.index = index;
+    }
+  }
+
   /**
    * Parses the outermost enclosing class of {@code e} if it is in the annotated JDK and it has not
-   * already been parsed.
+   * already been parsed. Does not parse it if the index of the annotated JDK shows that the
+   * declaration of {@code e} contains no annotations: a declaration without annotations in a JDK
+   * stub file has the same type as the element itself.
    *
    * @param e element whose outermost enclosing class might be parsed, if it is in the JDK and has
    *     not already been parsed
@@ -682,6 +1219,22 @@ public class AnnotationFileElementTypes {
     if (className == null || className.isEmpty()) {
       return;
     }
+    if (!mightBeAnnotatedInJdk(className, e)) {
+      if (stubDebug) {
+        System.out.printf("  no annotations in the JDK stub file of %s: %s%n", className, e);
+      }
+      return;
+    }
+    parseJdkClass(className);
+  }
+
+  /**
+   * Parses the JDK stub file for a class if it has not already been parsed.
+   *
+   * @param className the fully-qualified name of a top-level class
+   */
+  private void parseJdkClass(String className) {
+    jdkAnnotatedDeclarations.remove(className);
     if (remainingJdkStubFiles.containsKey(className)) {
       parseJdkStubFile(remainingJdkStubFiles.remove(className));
     } else if (remainingJdkStubFilesJar.containsKey(className)) {
@@ -693,6 +1246,128 @@ public class AnnotationFileElementTypes {
     }
   }
 
+  /**
+   * Returns false if the index of the annotated JDK shows that the declaration of {@code e} in the
+   * not-yet-parsed JDK stub file for {@code className} contains no annotations.
+   *
+   * @param className the fully-qualified name of the outermost enclosing class of {@code e}
+   * @param e an element
+   * @return false if the declaration of {@code e} in the JDK stub file for {@code className} is
+   *     known to contain no annotations
+   */
+  private boolean mightBeAnnotatedInJdk(String className, Element e) {
+    String declarations = jdkAnnotatedDeclarations.get(className);
+    if (declarations == null) {
+      return true;
+    }
+    Element declaration = e.getKind() == ElementKind.PARAMETER ? e.getEnclosingElement() : e;
+    ElementKind kind = declaration.getKind();
+    if (kind.isClass() || kind.isInterface()) {
+      String name = jdkIndexName((TypeElement) declaration);
+      return name == null || containsWord(declarations, name);
+    }
+    if (!(kind.isField() || kind == ElementKind.METHOD || kind == ElementKind.CONSTRUCTOR)
+        || !(declaration.getEnclosingElement() instanceof TypeElement)) {
+      return true;
+    }
+    String typeName = jdkIndexName((TypeElement) declaration.getEnclosingElement());
+    if (typeName == null) {
+      return true;
+    }
+    String memberName =
+        kind == ElementKind.CONSTRUCTOR ? "<init>" : declaration.getSimpleName().toString();
+    return containsWord(declarations, typeName + "#" + memberName)
+        || containsWord(declarations, typeName + "#*");
+  }
+
+  /**
+   * Returns the name of a type in the index of the annotated JDK: the simple names of the type and
+   * of its enclosing types, separated by dots.
+   *
+   * @param type a type element
+   * @return the name of {@code type} in the index, or null if it is a local or anonymous class
+   */
+  private static @Nullable String jdkIndexName(TypeElement type) {
+    Element enclosing = type.getEnclosingElement();
+    if (enclosing.getKind() == ElementKind.PACKAGE) {
+      return type.getSimpleName().toString();
+    } else if (enclosing instanceof TypeElement) {
+      String enclosingName = jdkIndexName((TypeElement) enclosing);
+      return enclosingName == null ? null : enclosingName + "." + type.getSimpleName();
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Returns true if {@code word} is one of the space-separated words in {@code words}.
+   *
+   * @param words a space-separated list of words
+   * @param word a word
+   * @return true if {@code word} is one of the words in {@code words}
+   */
+  private static boolean containsWord(String words, String word) {
+    int start = words.indexOf(word);
+    while (start != -1) {
+      int end = start + word.length();
+      if ((start == 0 || words.charAt(start - 1) == ' ')
+          && (end == words.length() || words.charAt(end) == ' ')) {
+        return true;
+      }
+      start = words.indexOf(word, start + 1);
+    }
+    return false;
+  }
+
+  /**
+   * Parses the JDK stub files for {@code type} and its supertypes that declare an annotated method
+   * named {@code methodName}, so that the fake overrides in them are known. Does nothing if the
+   * annotated JDK has no index; then, only the JDK stub files that have been parsed for other
+   * reasons contribute fake overrides.
+   *
+   * @param type a type
+   * @param methodName the name of a method
+   * @param visited the type elements that have already been visited
+   */
+  private void parseJdkStubFilesOfSupertypes(
+      TypeMirror type, String methodName, Set<TypeElement> visited) {
+    if (!shouldParseJdk || jdkAnnotatedDeclarations.isEmpty()) {
+      return;
+    }
+    switch (type.getKind()) {
+      case DECLARED -> {}
+      case TYPEVAR -> {
+        parseJdkStubFilesOfSupertypes(((TypeVariable) type).getUpperBound(), methodName, visited);
+        return;
+      }
+      case INTERSECTION -> {
+        for (TypeMirror bound : ((IntersectionType) type).getBounds()) {
+          parseJdkStubFilesOfSupertypes(bound, methodName, visited);
+        }
+        return;
+      }
+      default -> {
+        return;
+      }
+    }
+    TypeElement typeElement = TypesUtils.getTypeElement(type);
+    if (typeElement == null || !visited.add(typeElement)) {
+      return;
+    }
+    String className = getOutermostEnclosingClass(typeElement);
+    String typeName = jdkIndexName(typeElement);
+    String declarations = className == null ? null : jdkAnnotatedDeclarations.get(className);
+    if (declarations != null
+        && typeName != null
+        && containsWord(declarations, typeName + "#" + methodName)) {
+      parseJdkClass(className);
+    }
+    parseJdkStubFilesOfSupertypes(typeElement.getSuperclass(), methodName, visited);
+    for (TypeMirror supertype : typeElement.getInterfaces()) {
+      parseJdkStubFilesOfSupertypes(supertype, methodName, visited);
+    }
+  }
+
   /**
    * Returns the fully qualified name of the outermost enclosing class of {@code e} or {@code null}
    * if no such class exists for {@code e}, such as when {@code e} is a package or module element.
@@ -756,24 +1431,72 @@ public class AnnotationFileElementTypes {
     }
 
     JarURLConnection connection = getJarURLConnectionToJdk();
-    parsing = true;
     try (JarFile jarFile = connection.getJarFile()) {
-      try (InputStream jdkStub = jarFile.getInputStream(jarFile.getJarEntry(jarEntryName))) {
-        AnnotationFileParser.parseJdkFileAsStub(
-            jarEntryName, jdkStub, factory, factory.getProcessingEnv(), annotationFileAnnos);
-      } catch (IOException e) {
-        throw new BugInCF("cannot open the jdk stub file " + jarEntryName, e);
-      }
+      parseJdkJarEntry(jarFile, jarEntryName);
     } catch (IOException e) {
       throw new BugInCF("cannot open the Jar file " + connection.getEntryName(), e);
+    }
+
+    if (stubDebug) {
+      System.out.printf("exited parseJdkJarEntry(%s)%n", jarEntryName);
+    }
+  }
+
+  /**
+   * Parses the stub file in the given jar entry of a Jar file that is already open.
+   *
+   * @param jarFile the Jar file that contains the annotated JDK
+   * @param jarEntryName name of the jar entry to parse
+   */
+  private void parseJdkJarEntry(JarFile jarFile, String jarEntryName) {
+    parsing = true;
+    try (InputStream jdkStub = jarFile.getInputStream(jarFile.getJarEntry(jarEntryName))) {
+      AnnotationFileParser.parseJdkFileAsStub(
+          jarEntryName, jdkStub, factory, factory.getProcessingEnv(), annotationFileAnnos);
+    } catch (IOException e) {
+      throw new BugInCF("cannot open the jdk stub file " + jarEntryName, e);
     } catch (BugInCF e) {
       throw new BugInCF("Exception while parsing " + jarEntryName + ": " + e.getMessage(), e);
     } finally {
       parsing = false;
     }
+  }
 
-    if (stubDebug) {
-      System.out.printf("exited parseJdkJarEntry(%s)%n", jarEntryName);
+  /**
+   * Reads the index of the annotated JDK, which {@code JavaStubifier} writes when the annotated JDK
+   * is built. The index lists the files of the annotated JDK, relative to its root directory and in
+   * sorted order. It omits {@code module-info.java} files and {@code package-info.java} files that
+   * contain no annotations, so that they need not be parsed. After each file name and a tab, the
+   * index lists the declarations in the file that contain annotations, separated by spaces; see
+   * {@link #mightBeAnnotatedInJdk}.
+   *
+   * @param in the contents of the index, or null if there is no index
+   * @return a map, in sorted order, from the files listed in the index to the declarations in them
+   *     that contain annotations; or null if there is no index or it cannot be read
+   */
+  private @Nullable Map<String, String> readJdkIndex(@Nullable InputStream in) {
+    if (in == null) {
+      return null;
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String header = reader.readLine();
+      if (!JDK_INDEX_HEADER.equals(header)) {
+        return null;
+      }
+      Map<String, String> result = new LinkedHashMap<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int tab = line.indexOf('\t');
+        if (tab != -1) {
+          result.put(line.substring(0, tab), line.substring(tab + 1));
+        } else if (!line.isEmpty()) {
+          result.put(line, "");
+        }
+      }
+      return result;
+    } catch (IOException e) {
+      return null;
     }
   }
 
@@ -831,7 +1554,8 @@ public class AnnotationFileElementTypes {
 
   /**
    * Walk through the JDK directory and create a mapping, {@link #remainingJdkStubFiles}, from file
-   * name to the class contained within it. Also, parses all {@code package-info.java} files.
+   * name to the class contained within it. Also, parses all {@code package-info.java} files. Uses
+   * the index of the annotated JDK, if any, instead of walking the directory.
    *
    * @param jdkDirectory the URL pointing to the JDK directory
    */
@@ -843,50 +1567,86 @@ public class AnnotationFileElementTypes {
       throw new BugInCF("Cannot parse URL: " + jdkDirectory.toString(), e);
     }
 
-    try (Stream<Path> walk = Files.walk(root)) {
-      List<Path> paths =
-          walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
-              .collect(Collectors.toList());
+    List<Path> paths;
+    Path indexFile = root.resolve(JDK_INDEX_NAME);
+    Map<String, String> jdkIndex = null;
+    if (Files.isRegularFile(indexFile)) {
+      try {
+        jdkIndex = readJdkIndex(Files.newInputStream(indexFile));
+      } catch (IOException e) {
+        // Walk the directory instead.
+      }
+    }
+    if (jdkIndex != null) {
+      paths = CollectionsP.mapList(root::resolve, jdkIndex.keySet());
+    } else {
+      try (Stream<Path> walk = Files.walk(root)) {
+        paths =
+            walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
+                .collect(Collectors.toList());
+      } catch (IOException e) {
+        throw new BugInCF("prepJdkFromFile(" + jdkDirectory + ")", e);
+      }
       paths.sort(Path::compareTo);
-      for (Path path : paths) {
-        if (path.getFileName().toString().equals("package-info.java")) {
-          parseJdkStubFile(path);
-          continue;
-        }
-        if (path.getFileName().toString().equals("module-info.java")) {
-          // JavaParser can't parse module-info files, so skip them.
-          continue;
-        }
-        if (parseAllJdkFiles) {
-          parseJdkStubFile(path);
-          continue;
+    }
+
+    List<Path> pathsToParse = new ArrayList<>();
+    for (Path path : paths) {
+      if (path.getFileName().toString().equals("package-info.java")) {
+        pathsToParse.add(path);
+        continue;
+      }
+      if (path.getFileName().toString().equals("module-info.java")) {
+        // JavaParser can't parse module-info files, so skip them.
+        continue;
+      }
+      if (parseAllJdkFiles) {
+        pathsToParse.add(path);
+        continue;
+      }
+      Path relativePath = root.relativize(path);
+      // The number 4 is to strip off "/src/<module>/share/classes".
+      Path savepath = relativePath.subpath(4, relativePath.getNameCount());
+      String savepathString = savepath.toString();
+      // The number 5 is to remove trailing ".java".
+      String savepathWithoutExtension = savepathString.substring(0, savepathString.length() - 5);
+      String fqName = savepathWithoutExtension.replace(File.separatorChar, '.');
+      remainingJdkStubFiles.put(fqName, path);
+      if (jdkIndex != null) {
+        String declarations =
+            jdkIndex.get(relativePath.toString().replace(File.separatorChar, '/'));
+        if (declarations != null) {
+          jdkAnnotatedDeclarations.put(fqName, declarations);
         }
-        Path relativePath = root.relativize(path);
-        // The number 4 is to strip off "/src/<module>/share/classes".
-        Path savepath = relativePath.subpath(4, relativePath.getNameCount());
-        String savepathString = savepath.toString();
-        // The number 5 is to remove trailing ".java".
-        String savepathWithoutExtension = savepathString.substring(0, savepathString.length() - 5);
-        String fqName = savepathWithoutExtension.replace(File.separatorChar, '.');
-        remainingJdkStubFiles.put(fqName, path);
       }
-      if (stubDebug) {
-        System.out.printf(
-            "Contents of remainingJdkStubFiles for %s from %s:%n",
-            factory.getClass().getSimpleName(), jdkDirectory);
-        printSortedIndented(remainingJdkStubFiles.keySet());
-        System.out.printf(
-            "End of remainingJdkStubFiles for %s from %s.%n",
-            factory.getClass().getSimpleName(), jdkDirectory);
+    }
+    if (prefetcher != null) {
+      for (Path path : pathsToParse) {
+        try {
+          prefetch(Files.newInputStream(path));
+        } catch (IOException e) {
+          // The error is reported when the file is parsed.
+        }
       }
-    } catch (IOException e) {
-      throw new BugInCF("prepJdkFromFile(" + jdkDirectory + ")", e);
+    }
+    for (Path path : pathsToParse) {
+      parseJdkStubFile(path);
+    }
+    if (stubDebug) {
+      System.out.printf(
+          "Contents of remainingJdkStubFiles for %s from %s:%n",
+          factory.getClass().getSimpleName(), jdkDirectory);
+      printSortedIndented(remainingJdkStubFiles.keySet());
+      System.out.printf(
+          "End of remainingJdkStubFiles for %s from %s.%n",
+          factory.getClass().getSimpleName(), jdkDirectory);
     }
   }
 
   /**
    * Walk through the JDK directory and create a mapping, {@link #remainingJdkStubFilesJar}, from
    * file name to the class contained within it. Also, parses all {@code package-info.java} files.
+   * Uses the index of the annotated JDK, if any, instead of listing the entries of the jar file.
    *
    * @param jdkJarfile the URL pointing to the JDK jarfile
    */
@@ -894,21 +1654,33 @@ public class AnnotationFileElementTypes {
     JarURLConnection connection = getJarURLConnectionToJdk();
 
     try (JarFile jarFile = connection.getJarFile()) {
-      ArrayList<JarEntry> entries = CollectionsP.makeArrayList(jarFile.entries());
-      entries.sort(Comparator.comparing(Object::toString));
-      for (JarEntry jarEntry : entries) {
-        // filter out directories and non-Java files
-        if (jarEntry.isDirectory()) {
-          continue;
+      List<String> entryNames;
+      JarEntry indexEntry = jarFile.getJarEntry("annotated-jdk/" + JDK_INDEX_NAME);
+      Map<String, String> jdkIndex =
+          indexEntry == null ? null : readJdkIndex(jarFile.getInputStream(indexEntry));
+      if (jdkIndex != null) {
+        entryNames = CollectionsP.mapList(name -> "annotated-jdk/" + name, jdkIndex.keySet());
+      } else {
+        ArrayList<JarEntry> entries = CollectionsP.makeArrayList(jarFile.entries());
+        entries.sort(Comparator.comparing(Object::toString));
+        entryNames = new ArrayList<>(entries.size());
+        for (JarEntry jarEntry : entries) {
+          // filter out directories
+          if (!jarEntry.isDirectory()) {
+            entryNames.add(jarEntry.getName());
+          }
         }
-        String jarEntryName = jarEntry.getName();
+      }
+      List<String> jarEntryNamesToParse = new ArrayList<>();
+      for (String jarEntryName : entryNames) {
+        // filter out non-Java files
         if (!(jarEntryName.startsWith("annotated-jdk") && jarEntryName.endsWith(".java"))
             // JavaParser can't parse module-info files, so skip them.
             || jarEntryName.endsWith("module-info.java")) {
           continue;
         }
         if (parseAllJdkFiles || jarEntryName.endsWith("package-info.java")) {
-          parseJdkJarEntry(jarEntryName);
+          jarEntryNamesToParse.add(jarEntryName);
           continue;
         }
         int index = jarEntryName.indexOf("/share/classes/") + "/share/classes/".length();
@@ -916,6 +1688,20 @@ public class AnnotationFileElementTypes {
         String fqClassName =
             jarEntryName.substring(index, jarEntryName.length() - 5).replace('/', '.');
         remainingJdkStubFilesJar.put(fqClassName, jarEntryName);
+        if (jdkIndex != null) {
+          String declarations = jdkIndex.get(jarEntryName.substring("annotated-jdk/".length()));
+          if (declarations != null) {
+            jdkAnnotatedDeclarations.put(fqClassName, declarations);
+          }
+        }
+      }
+      if (prefetcher != null) {
+        for (String jarEntryName : jarEntryNamesToParse) {
+          prefetch(jarFile.getInputStream(jarFile.getJarEntry(jarEntryName)));
+        }
+      }
+      for (String jarEntryName : jarEntryNamesToParse) {
+        parseJdkJarEntry(jarFile, jarEntryName);
       }
       if (stubDebug) {
         String factoryClass = factory.getClass().getSimpleName().toString();
@@ -927,7 +1713,7 @@ public class AnnotationFileElementTypes {
             "End of remainingJdkStubFilesJar for %s from %s.%n", factoryClass, jarFileURL);
 
         System.out.printf("Contents of %s:%n", jarFileURL);
-        printSortedIndented(entries.stream().map(JarEntry::getName).collect(Collectors.toList()));
+        printSortedIndented(entryNames);
         System.out.printf("End of %s.%n", jarFileURL);
       }
     } catch (IOException e) {
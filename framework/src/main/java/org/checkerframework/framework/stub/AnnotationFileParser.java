@@ -747,7 +747,8 @@ public final class AnnotationFileParser {
    * #stubUnit}. Also sets {@link #allAnnotations}. Does not copy annotations out of {@link
    * #stubUnit}; that is done by the {@code process*} methods.
    *
-   * <p>Subsequently, all work uses the AST.
+   * <p>Subsequently, all work uses the AST. The AST of a stub file is shared with the other checkers
+   * of this javac invocation (see {@link SharedStubUnits}), so it must not be modified.
    *
    * @param inputStream the stream from which to read an annotation file
    */
@@ -755,7 +756,13 @@ public final class AnnotationFileParser {
     stubDebug(
         "started parsing annotation file %s for %s",
         filename, atypeFactory.getClass().getSimpleName());
-    stubUnit = JavaParserUtil.parseStubUnit(inputStream);
+    // Ajava files are modified after parsing, so they are not shared.
+    SharedStubUnits sharedStubUnits =
+        fileType == AnnotationFileType.AJAVA ? null : SharedStubUnits.instance(processingEnv);
+    stubUnit =
+        sharedStubUnits == null
+            ? JavaParserUtil.parseStubUnit(inputStream)
+            : sharedStubUnits.parse(inputStream);
 
     // getImportedAnnotations() also modifies importedConstants and importedTypes. This should
     // be refactored to be nicer.
@@ -252,6 +252,166 @@ public class AnnotationFileUtil {
     return typeParts;
   }
 
+  /**
+   * Returns the fully-qualified names of the top-level classes that a stub file declares, by
+   * scanning its text rather than parsing it. Returns null if the stub file has annotations on a
+   * package declaration, which apply to no class, or if it cannot be scanned, for example because
+   * its braces are unbalanced.
+   *
+   * @param contents the contents of a stub file
+   * @return the fully-qualified names of the top-level classes that {@code contents} declares, or
+   *     null
+   */
+  public static @Nullable List<String> getTopLevelClassNames(String contents) {
+    List<String> result = new ArrayList<>();
+    String packageName = "";
+    int braceDepth = 0;
+    int parenDepth = 0;
+    // True if an annotation has been seen since the end of the last declaration.
+    boolean annotated = false;
+    // True if the previous token was "@".
+    boolean afterAt = false;
+    // True if the previous token was a keyword that introduces a class declaration.
+    boolean afterClassKeyword = false;
+    int length = contents.length();
+    int i = 0;
+    while (i < length) {
+      char c = contents.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      if (contents.startsWith("//", i)) {
+        int end = contents.indexOf('\n', i);
+        i = (end == -1) ? length : end + 1;
+        continue;
+      }
+      if (contents.startsWith("/*", i)) {
+        int end = contents.indexOf("*/", i + 2);
+        if (end == -1) {
+          return null;
+        }
+        i = end + 2;
+        continue;
+      }
+      if (c == '"' || c == '\'') {
+        i = skipLiteral(contents, i);
+        if (i == -1) {
+          return null;
+        }
+        afterAt = false;
+        afterClassKeyword = false;
+        continue;
+      }
+      if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length && Character.isJavaIdentifierPart(contents.charAt(i))) {
+          i++;
+        }
+        String word = contents.substring(start, i);
+        if (braceDepth == 0 && parenDepth == 0) {
+          if (afterClassKeyword) {
+            result.add(packageName.isEmpty() ? word : packageName + "." + word);
+            annotated = false;
+            afterClassKeyword = false;
+          } else if (afterAt) {
+            if (word.equals("interface")) {
+              afterClassKeyword = true;
+            } else {
+              annotated = true;
+            }
+          } else {
+            switch (word) {
+              case "class", "interface", "enum", "record" -> afterClassKeyword = true;
+              case "package", "import" -> {
+                int end = contents.indexOf(';', i);
+                if (end == -1 || (word.equals("package") && annotated)) {
+                  return null;
+                }
+                if (word.equals("package")) {
+                  packageName = contents.substring(i, end).replaceAll("\\s+", "");
+                  if (!packageName.matches("[\\p{javaJavaIdentifierPart}.]+")) {
+                    return null;
+                  }
+                }
+                i = end + 1;
+              }
+              default -> {}
+            }
+          }
+        }
+        afterAt = false;
+        continue;
+      }
+      switch (c) {
+        case '{' -> {
+          if (braceDepth == 0 && parenDepth == 0) {
+            annotated = false;
+          }
+          braceDepth++;
+        }
+        case '}' -> braceDepth--;
+        case '(' -> parenDepth++;
+        case ')' -> parenDepth--;
+        case ';' -> {
+          if (braceDepth == 0 && parenDepth == 0) {
+            annotated = false;
+          }
+        }
+        default -> {}
+      }
+      if (braceDepth < 0 || parenDepth < 0) {
+        return null;
+      }
+      afterAt = (c == '@');
+      afterClassKeyword = false;
+      i++;
+    }
+    if (braceDepth != 0 || parenDepth != 0) {
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the index just after the string, text block, or character literal that starts at
+   * {@code start}.
+   *
+   * @param contents Java source code
+   * @param start the index of the opening quote of a literal in {@code contents}
+   * @return the index just after the literal, or -1 if the literal is not terminated
+   */
+  private static int skipLiteral(String contents, int start) {
+    char quote = contents.charAt(start);
+    if (contents.startsWith("\"\"\"", start)) {
+      int i = start + 3;
+      while (i < contents.length()) {
+        if (contents.charAt(i) == '\\') {
+          i += 2;
+        } else if (contents.startsWith("\"\"\"", i)) {
+          return i + 3;
+        } else {
+          i++;
+        }
+      }
+      return -1;
+    }
+    int i = start + 1;
+    while (i < contents.length()) {
+      char c = contents.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote) {
+        return i + 1;
+      } else if (c == '\n') {
+        return -1;
+      } else {
+        i++;
+      }
+    }
+    return -1;
+  }
+
   private static final class ElementPrinter extends SimpleVoidVisitor<Void> {
     public static String toString(Node n) {
       ElementPrinter printer = new ElementPrinter();
@@ -0,0 +1,235 @@
+package org.checkerframework.framework.stub;
+
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ast.StubUnit;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.processing.ProcessingEnvironment;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.util.JavaParserUtil;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * The stub file ASTs that have been parsed during one javac invocation. The instance is stored in
+ * the javac {@link Context}, so it is shared by every checker and subchecker that runs in the
+ * invocation. Each of them still processes the AST itself, keeping only the annotations that it
+ * supports; only the JavaParser parse is shared.
+ *
+ * <p>ASTs are keyed by a hash of the file contents, so files with the same name but different
+ * contents, such as the stub files of different checkers, are not confused. ASTs are held through
+ * soft references, so they do not keep memory alive under pressure. The ASTs must not be modified.
+ *
+ * <p>If {@link #startWorkers} has been called, {@link #prefetch} parses stub files on background
+ * threads. Only the parse runs in the background: the result is used, and any parse error is
+ * reported, when {@link #parse} is called on the javac thread, so the order of warnings does not
+ * depend on thread scheduling.
+ */
+final class SharedStubUnits {
+
+  /** The key of the instance in the javac context. */
+  private static final Context.Key<SharedStubUnits> KEY = new Context.Key<>();
+
+  /** Maps a hash of the contents of a stub file to its AST. */
+  private final Map<String, SoftReference<StubUnit>> units = new ConcurrentHashMap<>();
+
+  /**
+   * Maps a hash of the contents of a stub file to its parse on a background thread, while the parse
+   * is running. A finished parse moves its AST to {@link #units}, so the AST of a file that is
+   * prefetched but never used is held only softly.
+   */
+  private final Map<String, Future<StubUnit>> pending = new ConcurrentHashMap<>();
+
+  /** The background threads that parse stub files, or null if {@link #prefetch} does nothing. */
+  private volatile @Nullable ExecutorService workers;
+
+  /**
+   * The instance that every javac invocation in this JVM uses, or null if each invocation has its
+   * own. See {@link #shareAcrossInvocations}.
+   */
+  private static @Nullable SharedStubUnits sharedAcrossInvocations = null;
+
+  /** Creates a new SharedStubUnits. */
+  private SharedStubUnits() {}
+
+  /**
+   * Returns the instance for the given processing environment, or null if the processing
+   * environment is not javac's.
+   *
+   * @param processingEnv the processing environment
+   * @return the instance for {@code processingEnv}, or null
+   */
+  static @Nullable SharedStubUnits instance(ProcessingEnvironment processingEnv) {
+    if (!(processingEnv instanceof JavacProcessingEnvironment)) {
+      return null;
+    }
+    Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+    synchronized (SharedStubUnits.class) {
+      if (sharedAcrossInvocations != null) {
+        return sharedAcrossInvocations;
+      }
+      SharedStubUnits result = context.get(KEY);
+      if (result == null) {
+        result = new SharedStubUnits();
+        context.put(KEY, result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Makes every later javac invocation in this JVM use the same instance, so that a stub file is
+   * parsed once per JVM rather than once per invocation. A stub file whose contents change between
+   * invocations is parsed again, because ASTs are keyed by the file contents.
+   */
+  static synchronized void shareAcrossInvocations() {
+    if (sharedAcrossInvocations == null) {
+      sharedAcrossInvocations = new SharedStubUnits();
+    }
+  }
+
+  /**
+   * Makes {@link #prefetch} parse stub files on the given number of background threads. Does
+   * nothing if the threads have already been started. The threads are daemon threads and stop
+   * when they have been idle for a second.
+   *
+   * @param threads the number of background threads
+   */
+  synchronized void startWorkers(int threads) {
+    if (workers != null) {
+      return;
+    }
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            1,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "Checker Framework stub parser");
+              thread.setDaemon(true);
+              return thread;
+            });
+    pool.allowCoreThreadTimeOut(true);
+    workers = pool;
+  }
+
+  /**
+   * Starts parsing the stub file with the given contents on a background thread, if {@link
+   * #startWorkers} has been called and the stub file has not been parsed yet. A later call to
+   * {@link #parse} with the same contents uses the result.
+   *
+   * @param contents the contents of a stub file
+   */
+  void prefetch(byte[] contents) {
+    ExecutorService workers = this.workers;
+    if (workers == null) {
+      return;
+    }
+    String key = hash(contents);
+    SoftReference<StubUnit> ref = units.get(key);
+    if (ref != null && ref.get() != null) {
+      return;
+    }
+    pending.computeIfAbsent(
+        key,
+        k ->
+            workers.submit(
+                () -> {
+                  try {
+                    StubUnit unit =
+                        JavaParserUtil.parseStubUnit(new ByteArrayInputStream(contents));
+                    units.put(k, new SoftReference<>(unit));
+                    return unit;
+                  } finally {
+                    // If the parse failed, parse() parses the file again and reports the error.
+                    pending.remove(k);
+                  }
+                }));
+  }
+
+  /**
+   * Returns the AST of the stub file with the given contents, parsing it if no checker has parsed
+   * or {@linkplain #prefetch prefetched} the same contents yet. Parse errors are not cached.
+   *
+   * @param inputStream the contents of a stub file
+   * @return the AST of the stub file, which must not be modified
+   * @throws ParseProblemException if the stub file cannot be read or has parse errors
+   */
+  StubUnit parse(InputStream inputStream) {
+    byte[] contents;
+    try {
+      contents = inputStream.readAllBytes();
+    } catch (IOException e) {
+      throw new ParseProblemException(e);
+    }
+    String key = hash(contents);
+    Future<StubUnit> future = pending.remove(key);
+    StubUnit result;
+    if (future != null) {
+      result = await(future);
+    } else {
+      SoftReference<StubUnit> ref = units.get(key);
+      result = ref == null ? null : ref.get();
+      if (result != null) {
+        return result;
+      }
+      result = JavaParserUtil.parseStubUnit(new ByteArrayInputStream(contents));
+    }
+    units.put(key, new SoftReference<>(result));
+    return result;
+  }
+
+  /**
+   * Waits for a background parse and returns its result.
+   *
+   * @param future a background parse
+   * @return the AST produced by {@code future}
+   * @throws ParseProblemException if the stub file has parse errors
+   */
+  private static StubUnit await(Future<StubUnit> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BugInCF(e, "Interrupted while parsing a stub file");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new BugInCF(cause, "Exception while parsing a stub file");
+    }
+  }
+
+  /**
+   * Returns a hash of some bytes.
+   *
+   * @param bytes some bytes
+   * @return a hash of {@code bytes}
+   */
+  private static String hash(byte[] bytes) {
+    try {
+      return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new BugInCF(e, "SHA-256 is not available");
+    }
+  }
+}
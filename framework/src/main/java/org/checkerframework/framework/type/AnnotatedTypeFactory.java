@@ -54,6 +54,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -118,11 +119,13 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedPrimitiv
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVariable;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedWildcardType;
 import org.checkerframework.framework.type.visitor.AnnotatedTypeCombiner;
+import org.checkerframework.framework.type.visitor.AnnotatedTypeScanner;
 import org.checkerframework.framework.type.visitor.SimpleAnnotatedTypeScanner;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.AnnotatedTypes.TypeArguments;
 import org.checkerframework.framework.util.CheckerMain;
 import org.checkerframework.framework.util.FieldInvariants;
+import org.checkerframework.framework.util.FrequencyCache;
 import org.checkerframework.framework.util.TreePathCacher;
 import org.checkerframework.framework.util.TypeInformationPresenter;
 import org.checkerframework.framework.util.typeinference8.DefaultTypeArgumentInference;
@@ -147,7 +150,6 @@ import org.checkerframework.javacutil.trees.DetachedVarSymbol;
 import org.plumelib.util.CollectionsP;
 import org.plumelib.util.IPair;
 import org.plumelib.util.ImmutableTypes;
-import org.plumelib.util.MapsP;
 import org.plumelib.util.StringsP;
 import org.plumelib.util.SystemP;
 
@@ -527,6 +529,37 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
   /** Size of LRU cache if one isn't specified using the atfCacheSize option. */
   private static final int DEFAULT_CACHE_SIZE = 300;
 
+  /**
+   * The capacities of individual caches, from the {@code -AatfCacheSizes} option. Maps a cache name,
+   * as passed to {@link #createCache}, to its capacity.
+   */
+  private final Map<String, Integer> cacheSizes;
+
+  /** The caches created by {@link #createCache}, for {@link #getCacheStatistics}. */
+  private final List<FrequencyCache<?, ?>> caches = new ArrayList<>();
+
+  /**
+   * Counts the component types of an annotated type, for weighing cached types. Type variables and
+   * wildcards that refer to themselves are counted once.
+   */
+  private final AnnotatedTypeScanner<Integer, Void> componentCounter =
+      new SimpleAnnotatedTypeScanner<>((type, p) -> 1, Integer::sum, 0);
+
+  /**
+   * Freezes a type and its component types, before they are shared by {@link #elementCache}. A type
+   * is frozen only after its components have been scanned, because the getters of the bounds of
+   * type variables and wildcards initialize the bounds lazily, which modifies the type.
+   */
+  private final AnnotatedTypeScanner<Void, Void> freezer =
+      new AnnotatedTypeScanner<Void, Void>() {
+        @Override
+        protected Void scan(AnnotatedTypeMirror type, Void p) {
+          super.scan(type, p);
+          type.freeze();
+          return null;
+        }
+      };
+
   /** Mapping from a Tree to its annotated type; defaults have been applied. */
   private final Map<Tree, AnnotatedTypeMirror> classAndMethodTreeCache;
 
@@ -554,6 +587,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    */
   private final Map<Element, AnnotatedTypeMirror> elementCache;
 
+  /**
+   * The on-disk cache of the types of elements read from class files, or null if the {@code
+   * -AelementTypeCache} command-line option is not given.
+   */
+  private final @Nullable PersistentElementTypeCache persistentElementTypeCache;
+
   /** Mapping from an Element to the source Tree of the declaration. */
   private final Map<Element, Tree> elementToTreeCache;
 
@@ -619,16 +658,18 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     this.treePathCache = checker.getTreePathCacher();
 
     this.shouldCache = !checker.hasOption("atfDoNotCache");
+    this.cacheSizes = parseCacheSizes(checker.getOption("atfCacheSizes"));
     if (shouldCache) {
       int cacheSize = getCacheSize();
-      this.classAndMethodTreeCache = MapsP.createLruCache(cacheSize);
-      this.fromExpressionTreeCache = MapsP.createLruCache(cacheSize);
-      this.fromMemberTreeCache = MapsP.createLruCache(cacheSize);
-      this.fromTypeTreeCache = MapsP.createLruCache(cacheSize);
-      this.elementCache = MapsP.createLruCache(cacheSize);
-      this.elementToTreeCache = MapsP.createLruCache(cacheSize);
-      this.annotationClassNames =
-          Collections.synchronizedMap(MapsP.createLruCache(ANNOTATION_CACHE_SIZE));
+      this.classAndMethodTreeCache =
+          createCache("classAndMethodTree", cacheSize, this::getCacheWeight);
+      this.fromExpressionTreeCache =
+          createCache("fromExpressionTree", cacheSize, this::getCacheWeight);
+      this.fromMemberTreeCache = createCache("fromMemberTree", cacheSize, this::getCacheWeight);
+      this.fromTypeTreeCache = createCache("fromTypeTree", cacheSize, this::getCacheWeight);
+      this.elementCache = createCache("element", cacheSize, this::getCacheWeight);
+      this.elementToTreeCache = createCache("elementToTree", cacheSize, null);
+      this.annotationClassNames = createCache("annotationClassNames", ANNOTATION_CACHE_SIZE, null);
     } else {
       this.classAndMethodTreeCache = null;
       this.fromExpressionTreeCache = null;
@@ -638,6 +679,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
       this.elementToTreeCache = null;
       this.annotationClassNames = null;
     }
+    String elementTypeCacheOption = checker.getOption("elementTypeCache");
+    this.persistentElementTypeCache =
+        elementTypeCacheOption == null
+            ? null
+            : PersistentElementTypeCache.create(this, elementTypeCacheOption);
 
     this.typeFormatter = createAnnotatedTypeFormatter();
     this.annotationFormatter = createAnnotationFormatter();
@@ -972,6 +1018,14 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
       // elementCache.clear();
     }
 
+    if (typeHierarchy instanceof DefaultTypeHierarchy defaultTypeHierarchy) {
+      defaultTypeHierarchy.clearSubtypeCache();
+    }
+
+    if (root != null) {
+      stubTypes.prefetchJdkStubFiles(root);
+    }
+
     if (root != null && checker.hasOption("ajava")) {
       // Search for an ajava file with annotations for the current source file and the current
       // checker. It will be in a directory specified by the "ajava" option in a subdirectory
@@ -1394,6 +1448,96 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     }
   }
 
+  /**
+   * Parses the value of the {@code -AatfCacheSizes} option, a comma-separated list of {@code
+   * name=size} pairs.
+   *
+   * @param option the value of the option, or null if it was not supplied
+   * @return a map from cache names to capacities
+   */
+  private static Map<String, Integer> parseCacheSizes(@Nullable String option) {
+    if (option == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Integer> result = new HashMap<>();
+    for (String pair : option.split(",")) {
+      int equals = pair.indexOf('=');
+      if (equals == -1) {
+        throw new UserError("atfCacheSizes must be a list of name=size pairs: " + option);
+      }
+      String size = pair.substring(equals + 1).trim();
+      try {
+        int parsed = Integer.parseInt(size);
+        if (parsed <= 0) {
+          throw new UserError("atfCacheSizes sizes must be positive integers: " + option);
+        }
+        result.put(pair.substring(0, equals).trim(), parsed);
+      } catch (NumberFormatException ex) {
+        throw new UserError("atfCacheSizes sizes must be positive integers: " + option);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Creates a cache for this type factory. The capacity of the cache is the one given for {@code
+   * name} by the {@code -AatfCacheSizes} option, or else {@code defaultCapacity}.
+   *
+   * <p>Subclasses may override this to use a different cache implementation. The default
+   * implementation returns a {@link FrequencyCache}, whose statistics {@link #getCacheStatistics}
+   * reports.
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   * @param name the name of the cache
+   * @param defaultCapacity the capacity of the cache, if {@code -AatfCacheSizes} does not give one
+   * @param weigher the weigher for values, or null if the capacity is a number of entries
+   * @return a new cache
+   */
+  protected <K, V> Map<K, V> createCache(
+      String name, int defaultCapacity, @Nullable ToIntFunction<? super V> weigher) {
+    FrequencyCache<K, V> cache =
+        new FrequencyCache<>(name, cacheSizes.getOrDefault(name, defaultCapacity), weigher);
+    caches.add(cache);
+    return cache;
+  }
+
+  /**
+   * Returns the weight of an annotated type in a cache: one unit per four component types, so that
+   * a cache of large types holds fewer of them.
+   *
+   * @param type an annotated type
+   * @return the weight of {@code type} in a cache
+   */
+  protected int getCacheWeight(AnnotatedTypeMirror type) {
+    return 1 + (componentCounter.visit(type) - 1) / 4;
+  }
+
+  /**
+   * Returns the hit, miss, and eviction counts of the caches of this type factory that were created
+   * by {@link #createCache}, of the subtype cache of its {@link DefaultTypeHierarchy}, if any, and
+   * of the on-disk cache of element types, if any.
+   *
+   * @return a map from cache names to the statistics of the caches
+   */
+  public Map<String, FrequencyCache.Statistics> getCacheStatistics() {
+    Map<String, FrequencyCache.Statistics> result = new LinkedHashMap<>();
+    for (FrequencyCache<?, ?> cache : caches) {
+      result.put(cache.getName(), cache.getStatistics());
+    }
+    if (typeHierarchy instanceof DefaultTypeHierarchy defaultTypeHierarchy) {
+      FrequencyCache.Statistics subtypeStatistics =
+          defaultTypeHierarchy.getSubtypeCacheStatistics();
+      if (subtypeStatistics != null) {
+        result.put("subtype", subtypeStatistics);
+      }
+    }
+    if (persistentElementTypeCache != null) {
+      result.put("elementTypeCache", persistentElementTypeCache.getStatistics());
+    }
+    return result;
+  }
+
   /**
    * Returns an AnnotatedTypeMirror representing the annotated type of {@code elt}.
    *
@@ -1443,8 +1587,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     if (tree == null) {
       throw new BugInCF("AnnotatedTypeFactory.getAnnotatedType: null tree");
     }
-    if (shouldCache && classAndMethodTreeCache.containsKey(tree)) {
-      return classAndMethodTreeCache.get(tree).deepCopy();
+    if (shouldCache) {
+      AnnotatedTypeMirror cached = classAndMethodTreeCache.get(tree);
+      if (cached != null) {
+        return cached.deepCopy();
+      }
     }
 
     AnnotatedTypeMirror type;
@@ -1595,9 +1742,45 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    * @return AnnotatedTypeMirror of the element with explicitly-written and stub file annotations
    */
   public AnnotatedTypeMirror fromElement(Element elt) {
-    if (shouldCache && elementCache.containsKey(elt)) {
-      return elementCache.get(elt).deepCopy();
+    if (shouldCache) {
+      AnnotatedTypeMirror cached = elementCache.get(elt);
+      if (cached != null) {
+        return cached.deepCopy();
+      }
+    }
+    return fromElementUncached(elt);
+  }
+
+  /**
+   * Like {@link #fromElement(Element)}, but may return a type that is shared with the cache of this
+   * type factory rather than a copy. A shared type is frozen (see {@link
+   * AnnotatedTypeMirror#isFrozen()}): it and its component types throw an exception if they are
+   * modified. Use this method instead of {@link #fromElement(Element)} when only reading the
+   * result, to avoid copying the type; call {@link AnnotatedTypeMirror#deepCopy()} on the result to
+   * get a type that may be modified.
+   *
+   * @param elt the element
+   * @return AnnotatedTypeMirror of the element with explicitly-written and stub file annotations,
+   *     which must not be modified
+   */
+  public AnnotatedTypeMirror fromElementShared(Element elt) {
+    if (shouldCache) {
+      AnnotatedTypeMirror cached = elementCache.get(elt);
+      if (cached != null) {
+        return cached;
+      }
     }
+    return fromElementUncached(elt);
+  }
+
+  /**
+   * Computes the result of {@link #fromElement(Element)} without consulting the cache, and caches
+   * a frozen copy of it if possible.
+   *
+   * @param elt the element
+   * @return AnnotatedTypeMirror of the element with explicitly-written and stub file annotations
+   */
+  private AnnotatedTypeMirror fromElementUncached(Element elt) {
     if (elt.getKind() == ElementKind.PACKAGE) {
       return toAnnotatedType(elt.asType(), false);
     }
@@ -1611,10 +1794,18 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     Tree decl = declarationFromElement(elt);
 
     if (decl == null) {
-      type = stubTypes.getAnnotatedTypeMirror(elt);
+      PersistentElementTypeCache persistentCache =
+          isParsingAnnotationFiles() ? null : persistentElementTypeCache;
+      type = persistentCache == null ? null : persistentCache.get(elt);
       if (type == null) {
-        type = toAnnotatedType(elt.asType(), ElementUtils.isTypeDeclaration(elt));
-        ElementAnnotationApplier.apply(type, elt, this);
+        type = stubTypes.getAnnotatedTypeMirror(elt);
+        if (type == null) {
+          type = toAnnotatedType(elt.asType(), ElementUtils.isTypeDeclaration(elt));
+          ElementAnnotationApplier.apply(type, elt, this);
+        }
+        if (persistentCache != null) {
+          persistentCache.put(elt, type);
+        }
       }
     } else if (decl instanceof ClassTree ct) {
       type = fromClass(ct);
@@ -1648,15 +1839,36 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     }
     // Caching is disabled if annotation files are being parsed, because calls to this
     // method before the annotation files are fully read can return incorrect results.
-    if (shouldCache
-        && !stubTypes.isParsing()
-        && !ajavaTypes.isParsing()
-        && (currentFileAjavaTypes == null || !currentFileAjavaTypes.isParsing())) {
-      elementCache.put(elt, type.deepCopy());
+    if (shouldCache && !isParsingAnnotationFiles()) {
+      AnnotatedTypeMirror shared = type.deepCopy();
+      freezer.visit(shared);
+      elementCache.put(elt, shared);
     }
     return type;
   }
 
+  /**
+   * Returns true if stub or ajava files are being parsed. Types computed while annotation files are
+   * being parsed may be incomplete, so they are not cached.
+   *
+   * @return true if stub or ajava files are being parsed
+   */
+  private boolean isParsingAnnotationFiles() {
+    return stubTypes.isParsing()
+        || ajavaTypes.isParsing()
+        || (currentFileAjavaTypes != null && currentFileAjavaTypes.isParsing());
+  }
+
+  /**
+   * Writes the types that were added to the on-disk cache of element types, if the {@code
+   * -AelementTypeCache} command-line option is given. Called when type processing is over.
+   */
+  public void writeElementTypeCache() {
+    if (persistentElementTypeCache != null) {
+      persistentElementTypeCache.write();
+    }
+  }
+
   /**
    * Returns an AnnotatedDeclaredType with explicit annotations from the ClassTree {@code tree}.
    *
@@ -1687,8 +1899,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
       throw new BugInCF(
           "AnnotatedTypeFactory.fromMember: not a method or variable declaration: " + tree);
     }
-    if (shouldCache && fromMemberTreeCache.containsKey(tree)) {
-      return fromMemberTreeCache.get(tree).deepCopy();
+    if (shouldCache) {
+      AnnotatedTypeMirror cached = fromMemberTreeCache.get(tree);
+      if (cached != null) {
+        return cached.deepCopy();
+      }
     }
     AnnotatedTypeMirror result = TypeFromTree.fromMember(this, tree);
 
@@ -1781,9 +1996,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    */
   private AnnotatedTypeMirror fromExpression(ExpressionTree tree) {
     logGat("fromExpression(%s) of kind %s%n", tree, tree.getKind());
-    if (shouldCache && fromExpressionTreeCache.containsKey(tree)) {
-      logGat("fromExpression(%s) => [cached] %s%n", tree, fromExpressionTreeCache.get(tree));
-      return fromExpressionTreeCache.get(tree).deepCopy();
+    if (shouldCache) {
+      AnnotatedTypeMirror cached = fromExpressionTreeCache.get(tree);
+      if (cached != null) {
+        logGat("fromExpression(%s) => [cached] %s%n", tree, cached);
+        return cached.deepCopy();
+      }
     }
 
     AnnotatedTypeMirror result = TypeFromTree.fromExpression(this, tree);
@@ -1813,8 +2031,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
    * @return the (partially) annotated type of the type in the AST
    */
   /*package-private*/ final AnnotatedTypeMirror fromTypeTree(Tree tree) {
-    if (shouldCache && fromTypeTreeCache.containsKey(tree)) {
-      return fromTypeTreeCache.get(tree).deepCopy();
+    if (shouldCache) {
+      AnnotatedTypeMirror cached = fromTypeTreeCache.get(tree);
+      if (cached != null) {
+        return cached.deepCopy();
+      }
     }
 
     AnnotatedTypeMirror result = TypeFromTree.fromTypeTree(this, tree);
@@ -3696,8 +3917,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     if (root == null) {
       return null;
     }
-    if (shouldCache && elementToTreeCache.containsKey(elt)) {
-      return elementToTreeCache.get(elt);
+    if (shouldCache) {
+      // The cached tree may be null, so use containsKey only when get returns null.
+      Tree cached = elementToTreeCache.get(elt);
+      if (cached != null || elementToTreeCache.containsKey(elt)) {
+        return cached;
+      }
     }
 
     // Check for new declarations, outside of the AST.
@@ -87,6 +87,14 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
   // Caution: Assumes that a type can have at most one AnnotationMirror for any Annotation type.
   protected final AnnotationMirrorSet primaryAnnotations = new AnnotationMirrorSet();
 
+  /**
+   * True if this type is shared, for example with a cache of the type factory, and so must not be
+   * modified. Copies of a frozen type are not frozen.
+   *
+   * @see AnnotatedTypeFactory#fromElementShared(Element)
+   */
+  private boolean frozen = false;
+
   // /** The explicitly written annotations on this type. */
   // TODO: use this to cache the result once computed? For generic types?
   // protected final AnnotationMirrorSet explicitannotations =
@@ -625,6 +633,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
     if (annotation == null) {
       throw new BugInCF("AnnotatedTypeMirror.addAnnotation: null argument.");
     }
+    checkNotFrozen();
     annotation = atypeFactory.canonicalAnnotation(annotation, underlyingType);
     if (atypeFactory.isSupportedQualifier(annotation)) {
       this.primaryAnnotations.add(annotation);
@@ -718,6 +727,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
    * @return true if the annotation was removed, false if the type's annotations were unchanged
    */
   public boolean removePrimaryAnnotation(AnnotationMirror a) {
+    checkNotFrozen();
     AnnotationMirror anno = AnnotationUtils.getSame(primaryAnnotations, a);
     if (anno != null) {
       return primaryAnnotations.remove(anno);
@@ -732,6 +742,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
    * @return true if the annotation was removed, false if the type's annotations were unchanged
    */
   public boolean removePrimaryAnnotationByClass(Class<? extends Annotation> a) {
+    checkNotFrozen();
     AnnotationMirror anno = atypeFactory.getAnnotationByClass(primaryAnnotations, a);
     if (anno != null) {
       return primaryAnnotations.remove(anno);
@@ -770,9 +781,40 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
 
   /** Removes all primary annotations on this type. */
   public void clearPrimaryAnnotations() {
+    checkNotFrozen();
     primaryAnnotations.clear();
   }
 
+  /**
+   * Returns true if this type is shared and must not be modified. Call {@link #deepCopy()} to
+   * obtain a type that may be modified.
+   *
+   * @return true if this type is shared and must not be modified
+   * @see AnnotatedTypeFactory#fromElementShared(Element)
+   */
+  public final boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Marks this type as shared, so that the methods that modify it throw an exception. Does not
+   * affect component types.
+   */
+  /*package-private*/ final void freeze() {
+    frozen = true;
+  }
+
+  /**
+   * Throws an exception if this type is frozen. The methods that modify a type call this.
+   *
+   * @throws BugInCF if this type is frozen
+   */
+  protected final void checkNotFrozen() {
+    if (frozen) {
+      throw new BugInCF("Attempt to modify a shared type; modify a deepCopy() instead: %s", this);
+    }
+  }
+
   @SideEffectFree
   @Override
   public final String toString() {
@@ -1013,6 +1055,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param ts a list of type arguments to be captured by this method
      */
     public void setTypeArguments(List<? extends AnnotatedTypeMirror> ts) {
+      checkNotFrozen();
       if (ts == null || ts.isEmpty()) {
         typeArgs = Collections.emptyList();
       } else if (isDeclaration()) {
@@ -1156,6 +1199,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param enclosingType the new enclosing type
      */
     public void setEnclosingType(@Nullable AnnotatedDeclaredType enclosingType) {
+      checkNotFrozen();
       this.enclosingType = enclosingType;
     }
 
@@ -1207,6 +1251,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
 
     @Override
     public void addAnnotation(AnnotationMirror annotation) {
+      checkNotFrozen();
       primaryAnnotations.add(annotation);
     }
   }
@@ -1385,6 +1430,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param receiverType the receiver type
      */
     public void setReceiverType(@Nullable AnnotatedDeclaredType receiverType) {
+      checkNotFrozen();
       this.receiverType = receiverType;
       receiverTypeComputed = true;
     }
@@ -1588,6 +1634,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the component type
      */
     public void setComponentType(AnnotatedTypeMirror type) {
+      checkNotFrozen();
       this.componentType = type;
     }
 
@@ -1706,6 +1753,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param declaration true if this type variable should be considered a declaration
      */
     public void setDeclaration(boolean declaration) {
+      checkNotFrozen();
       this.declaration = declaration;
     }
 
@@ -1748,6 +1796,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the lower bound type
      */
     public void setLowerBound(AnnotatedTypeMirror type) {
+      checkNotFrozen();
       checkBound("Lower", type, this);
       this.lowerBound = type;
       fixupBoundAnnotations();
@@ -1814,6 +1863,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the upper bound type
      */
     public void setUpperBound(AnnotatedTypeMirror type) {
+      checkNotFrozen();
       checkBound("Upper", type, this);
       this.upperBound = type;
       fixupBoundAnnotations();
@@ -2104,6 +2154,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the type of the lower bound
      */
     public void setSuperBound(AnnotatedTypeMirror type) {
+      checkNotFrozen();
       checkBound("Super", type, this);
       this.superBound = type;
       fixupBoundAnnotations();
@@ -2134,6 +2185,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param type the type of the upper bound
      */
     public void setExtendsBound(AnnotatedTypeMirror type) {
+      checkNotFrozen();
       checkBound("Extends", type, this);
       this.extendsBound = type;
       fixupBoundAnnotations();
@@ -2391,6 +2443,7 @@ public abstract class AnnotatedTypeMirror implements DeepCopyable<AnnotatedTypeM
      * @param bounds a list of bounds to be captured by this method
      */
     public void setBounds(List<AnnotatedTypeMirror> bounds) {
+      checkNotFrozen();
       this.bounds = bounds;
     }
 
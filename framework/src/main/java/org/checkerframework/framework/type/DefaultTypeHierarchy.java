@@ -10,6 +10,8 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Types;
+import org.checkerframework.checker.initialization.qual.UnderInitialization;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.qual.AnnotatedFor;
 import org.checkerframework.framework.qual.Covariant;
@@ -22,13 +24,16 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVari
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedUnionType;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedWildcardType;
 import org.checkerframework.framework.type.visitor.AbstractAtmComboVisitor;
+import org.checkerframework.framework.type.visitor.SimpleAnnotatedTypeScanner;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.AtmCombo;
+import org.checkerframework.framework.util.FrequencyCache;
 import org.checkerframework.javacutil.AnnotationMirrorSet;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.TreeUtils;
 import org.checkerframework.javacutil.TypesUtils;
+import org.checkerframework.javacutil.UserError;
 
 /**
  * Default implementation of TypeHierarchy that implements the JLS specification with minor
@@ -83,6 +88,41 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
   /** The Covariant.value field/element. */
   final ExecutableElement covariantValueElement;
 
+  /**
+   * Memoizes the result of {@link #isSubtype(AnnotatedTypeMirror, AnnotatedTypeMirror,
+   * AnnotationMirror)} for top-level queries whose types have component types, or null if the
+   * {@code -AsubtypeCacheSize} option is not given. Unlike {@link #isSubtypeVisitHistory}, it
+   * stores both true and false results, and it is cleared at the start of each compilation unit.
+   * The keys hold copies of the queried types, and they are compared structurally (see {@link
+   * AnnotatedTypeMirror#equals}). Structural equality ignores whether a type is raw, so queries
+   * whose types have raw components are not memoized; see {@link #hasRawComponent}.
+   */
+  private final @Nullable FrequencyCache<SubtypeQuery, Boolean> subtypeCache;
+
+  /**
+   * Determines whether a type is, or contains, a raw type or a type argument of a raw type. Such a
+   * type is structurally equal to the corresponding non-raw type, but it may have a different
+   * subtyping result.
+   */
+  private final SimpleAnnotatedTypeScanner<Boolean, Void> hasRawComponent =
+      new SimpleAnnotatedTypeScanner<>(
+          (type, p) ->
+              (type.getKind() == TypeKind.DECLARED
+                      && ((AnnotatedDeclaredType) type).isUnderlyingTypeRaw())
+                  || AnnotatedTypes.isTypeArgOfRawType(type),
+          Boolean::logicalOr,
+          false);
+
+  /**
+   * A top-level subtyping query.
+   *
+   * @param subtype the possible subtype
+   * @param supertype the possible supertype
+   * @param top the top of the hierarchy in which the types are compared
+   */
+  private record SubtypeQuery(
+      AnnotatedTypeMirror subtype, AnnotatedTypeMirror supertype, AnnotationMirror top) {}
+
   /**
    * Creates a DefaultTypeHierarchy.
    *
@@ -109,6 +149,52 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
 
     covariantValueElement =
         TreeUtils.getMethod(Covariant.class, "value", 0, checker.getProcessingEnvironment());
+
+    int subtypeCacheSize = getSubtypeCacheSize();
+    this.subtypeCache =
+        subtypeCacheSize == 0 ? null : new FrequencyCache<>("subtype", subtypeCacheSize);
+  }
+
+  /**
+   * Returns the capacity of the subtype cache, as given by the {@code -AsubtypeCacheSize} option,
+   * or 0 if the subtype cache is disabled.
+   *
+   * @return the capacity of the subtype cache, or 0
+   */
+  private int getSubtypeCacheSize(@UnderInitialization DefaultTypeHierarchy this) {
+    String option = checker.getOption("subtypeCacheSize");
+    if (option == null) {
+      return 0;
+    }
+    try {
+      int parsed = Integer.parseInt(option);
+      if (parsed < 0) {
+        throw new UserError("subtypeCacheSize must be a non-negative integer: " + option);
+      }
+      return parsed;
+    } catch (NumberFormatException ex) {
+      throw new UserError("subtypeCacheSize must be a non-negative integer: " + option);
+    }
+  }
+
+  /**
+   * Clears the memoized results of subtyping queries. The type factory calls this at the start of
+   * each compilation unit.
+   */
+  public void clearSubtypeCache() {
+    if (subtypeCache != null) {
+      subtypeCache.clear();
+    }
+  }
+
+  /**
+   * Returns the hit, miss, and eviction counts of the subtype cache.
+   *
+   * @return the statistics of the subtype cache, or null if the {@code -AsubtypeCacheSize} option
+   *     is not given
+   */
+  public FrequencyCache.@Nullable Statistics getSubtypeCacheStatistics() {
+    return subtypeCache == null ? null : subtypeCache.getStatistics();
   }
 
   /**
@@ -134,8 +220,27 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
    */
   @Override
   public boolean isSubtype(AnnotatedTypeMirror subtype, AnnotatedTypeMirror supertype) {
+    FrequencyCache<SubtypeQuery, Boolean> cache =
+        subtypeCache != null
+                && (hasComponents(subtype) || hasComponents(supertype))
+                && !hasRawComponent.visit(subtype)
+                && !hasRawComponent.visit(supertype)
+            ? subtypeCache
+            : null;
     for (AnnotationMirror top : qualHierarchy.getTopAnnotations()) {
-      if (!isSubtype(subtype, supertype, top)) {
+      boolean result;
+      if (cache != null) {
+        Boolean cached = cache.get(new SubtypeQuery(subtype, supertype, top));
+        if (cached != null) {
+          result = cached;
+        } else {
+          result = isSubtype(subtype, supertype, top);
+          cache.put(new SubtypeQuery(subtype.deepCopy(), supertype.deepCopy(), top), result);
+        }
+      } else {
+        result = isSubtype(subtype, supertype, top);
+      }
+      if (!result) {
         return false;
       }
     }
@@ -143,6 +248,21 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
     return true;
   }
 
+  /**
+   * Returns true if {@code type} has component types, so that checking it structurally costs
+   * more than looking it up in the {@link #subtypeCache}.
+   *
+   * @param type a type
+   * @return true if {@code type} has component types
+   */
+  private static boolean hasComponents(AnnotatedTypeMirror type) {
+    return switch (type.getKind()) {
+      case DECLARED -> !((AnnotatedDeclaredType) type).getTypeArguments().isEmpty();
+      case ARRAY, TYPEVAR, WILDCARD, INTERSECTION, UNION -> true;
+      default -> false;
+    };
+  }
+
   /** A set of annotations and a {@link TypeMirror}. */
   @AnnotatedFor("nullness")
   private static final class ShallowType {
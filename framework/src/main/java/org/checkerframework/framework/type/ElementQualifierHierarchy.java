@@ -18,7 +18,6 @@ import org.checkerframework.framework.util.QualifierKind;
 import org.checkerframework.framework.util.QualifierKindHierarchy;
 import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationMirrorSet;
-import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.TypeSystemError;
 
@@ -174,12 +173,7 @@ public abstract class ElementQualifierHierarchy extends QualifierHierarchy {
    * @return the qualifier kind for the given annotation
    */
   protected QualifierKind getQualifierKind(AnnotationMirror anno) {
-    String name = AnnotationUtils.annotationName(anno);
-    QualifierKind result = getQualifierKind(name);
-    if (result == null) {
-      throw new BugInCF("No qualifier kind for " + anno);
-    }
-    return result;
+    return qualifierKindHierarchy.getQualifierKind(anno);
   }
 
   /**
@@ -54,6 +54,7 @@ import org.checkerframework.common.wholeprograminference.WholeProgramInferenceSc
 import org.checkerframework.dataflow.analysis.Analysis;
 import org.checkerframework.dataflow.analysis.Analysis.BeforeOrAfter;
 import org.checkerframework.dataflow.analysis.AnalysisResult;
+import org.checkerframework.dataflow.analysis.ForwardAnalysisImpl.ReplayStatistics;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
 import org.checkerframework.dataflow.cfg.ControlFlowGraph;
@@ -357,8 +358,8 @@ public abstract class GenericAnnotatedTypeFactory<
 
     if (shouldCache) {
       int cacheSize = getCacheSize();
-      flowResultAnalysisCaches = MapsP.createLruCache(cacheSize);
-      initializerCache = MapsP.createLruCache(cacheSize);
+      flowResultAnalysisCaches = createCache("flowResultAnalysis", cacheSize, null);
+      initializerCache = createCache("initializer", cacheSize, this::getCacheWeight);
     } else {
       flowResultAnalysisCaches = null;
       initializerCache = null;
@@ -462,6 +463,8 @@ public abstract class GenericAnnotatedTypeFactory<
     this.returnStatementStores.clear();
     this.initializationStore = null;
     this.initializationStaticStore = null;
+    // The snapshots are for blocks of the previous compilation unit.
+    this.analysis.clearCheckpoints();
 
     if (shouldCache) {
       this.flowResultAnalysisCaches.clear();
@@ -1413,6 +1416,11 @@ public abstract class GenericAnnotatedTypeFactory<
         // Now analyze all methods.
         // TODO: at this point, we don't have any information about
         // fields of superclasses.
+        // The methods are analyzed one after another, on the javac thread.  Although their
+        // analyses are mostly independent once the field initializers have been analyzed, they
+        // cannot run concurrently: they share this factory's `analysis` and `transfer` objects
+        // and its visitor tree path, and the transfer functions call into javac (type
+        // operations, symbol completion), which is not thread-safe.
         for (CFGMethod method : methods) {
           performFlowAnalysisForMethod(ct, method, classQueue, fieldValues, capturedStore);
         }
@@ -2415,6 +2423,16 @@ public abstract class GenericAnnotatedTypeFactory<
     return cfgVisualizer;
   }
 
+  /**
+   * Returns counts of the work done to look up stores within basic blocks, for {@code
+   * -AresourceStats}.
+   *
+   * @return counts of the work done to look up stores within basic blocks
+   */
+  public ReplayStatistics getFlowReplayStatistics() {
+    return analysis.getReplayStatistics();
+  }
+
   @Override
   public void postAsMemberOf(AnnotatedTypeMirror type, AnnotatedTypeMirror owner, Element element) {
     super.postAsMemberOf(type, owner, element);
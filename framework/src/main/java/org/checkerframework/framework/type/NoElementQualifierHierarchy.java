@@ -18,8 +18,6 @@ import org.checkerframework.framework.util.QualifierKind;
 import org.checkerframework.framework.util.QualifierKindHierarchy;
 import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationMirrorSet;
-import org.checkerframework.javacutil.AnnotationUtils;
-import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.TypeSystemError;
 
 /**
@@ -152,12 +150,7 @@ public class NoElementQualifierHierarchy extends QualifierHierarchy {
    * @return the {@code QualifierKind} for the given annotation
    */
   protected QualifierKind getQualifierKind(AnnotationMirror anno) {
-    String name = AnnotationUtils.annotationName(anno);
-    QualifierKind kind = qualifierKindHierarchy.getQualifierKind(name);
-    if (kind == null) {
-      throw new BugInCF("Annotation not in hierarchy: %s", anno);
-    }
-    return kind;
+    return qualifierKindHierarchy.getQualifierKind(anno);
   }
 
   @Override
@@ -0,0 +1,704 @@
+package org.checkerframework.framework.type;
+
+import com.sun.tools.javac.code.Symbol;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.stub.AnnotationFileElementTypes;
+import org.checkerframework.framework.stub.AnnotationFileUtil.AnnotationFileType;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.framework.type.visitor.SimpleAnnotatedTypeScanner;
+import org.checkerframework.framework.util.FrequencyCache;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.SystemUtil;
+import org.checkerframework.javacutil.UserError;
+
+/**
+ * An on-disk cache of the results of {@link AnnotatedTypeFactory#fromElement(Element)} for
+ * elements that are read from class files in .jar files or from the JDK. It is enabled by the
+ * {@code -AelementTypeCache=<dir>} command-line option.
+ *
+ * <p>The cache has one file per library (that is, per .jar file or JDK module), named by a hash of
+ * the library's contents. The name of the file of a JDK module is a hash of the platform that the
+ * code is compiled against: the JDK given by {@code --system} or else the running JDK, and the
+ * value of {@code --release}. The files are stored in a subdirectory of {@code <dir>} whose name is
+ * a hash of the checker, of the .jar files that contain the checker and the framework, of the
+ * checker's options, and of the stub files passed via {@code -Astubs}. A change to any of these
+ * selects a different subdirectory. A library's file is read the first time that the type of one
+ * of its elements is requested, and the new entries are written when type processing is over.
+ *
+ * <p>Each entry lists the annotations of each component type of an element's type, in the order in
+ * which {@link SimpleAnnotatedTypeScanner} visits them. An entry is only written if every
+ * annotation in the type has no elements, so that it can be recreated from its name. Types with
+ * annotations such as {@code @KeyFor("m")} are recomputed on every run.
+ */
+final class PersistentElementTypeCache {
+
+  /** The first line of every cache file; change it if the format of the entries changes. */
+  private static final String FILE_HEADER = "# Checker Framework element type cache, format 1";
+
+  /** Separates the key of an entry from its value. */
+  private static final char KEY_SEPARATOR = '\t';
+
+  /** Separates the component types in the value of an entry. */
+  private static final char COMPONENT_SEPARATOR = ';';
+
+  /** Separates the kind of a component type from its annotations. */
+  private static final char KIND_SEPARATOR = '=';
+
+  /** Separates the annotations of a component type. */
+  private static final char ANNOTATION_SEPARATOR = ',';
+
+  /**
+   * The content hashes of the files that have been hashed, keyed by the path, size, and
+   * modification time of the file. Shared by all checkers, so that a library is hashed only once.
+   */
+  private static final Map<String, String> fileHashes = new ConcurrentHashMap<>();
+
+  /** The type factory whose element types are cached. */
+  private final AnnotatedTypeFactory atypeFactory;
+
+  /** The directory that holds the cache files for the configuration of the checker. */
+  private final Path directory;
+
+  /**
+   * A description of the platform that the code is compiled against; see {@link
+   * #platform(ProcessingEnvironment)}.
+   */
+  private final String platform;
+
+  /** The libraries whose elements have been looked up, keyed by their cache file name. */
+  private final Map<String, Library> libraries = new HashMap<>();
+
+  /** The names of the cache files of the JDK modules and .jar files, keyed by their URIs. */
+  private final Map<String, @Nullable String> libraryFileNames = new HashMap<>();
+
+  /** Collects the component types of a type, in the order in which they are serialized. */
+  private final SimpleAnnotatedTypeScanner<Void, List<AnnotatedTypeMirror>> componentCollector =
+      new SimpleAnnotatedTypeScanner<>(
+          (type, components) -> {
+            components.add(type);
+            return null;
+          });
+
+  /** The number of lookups that found an entry. */
+  private long hits = 0;
+
+  /** The number of lookups that found no entry. */
+  private long misses = 0;
+
+  /**
+   * Creates a cache.
+   *
+   * @param atypeFactory the type factory whose element types are cached
+   * @param directory the directory that holds the cache files for the checker's configuration
+   */
+  private PersistentElementTypeCache(AnnotatedTypeFactory atypeFactory, Path directory) {
+    this.atypeFactory = atypeFactory;
+    this.directory = directory;
+    this.platform = platform(atypeFactory.getProcessingEnv());
+  }
+
+  /**
+   * Creates the cache for a type factory, or returns null if the cache cannot be used because the
+   * checker is not loaded from a .jar file.
+   *
+   * @param atypeFactory the type factory whose element types are cached
+   * @param root the value of the {@code -AelementTypeCache} command-line option
+   * @return the cache for {@code atypeFactory}, or null if it cannot be used
+   */
+  static @Nullable PersistentElementTypeCache create(
+      AnnotatedTypeFactory atypeFactory, String root) {
+    BaseTypeChecker checker = atypeFactory.getChecker();
+    Path rootPath;
+    try {
+      rootPath = Paths.get(root);
+    } catch (InvalidPathException e) {
+      throw new UserError("Bad argument -AelementTypeCache=%s: %s", root, e.getMessage());
+    }
+    if (Files.exists(rootPath) && !Files.isDirectory(rootPath)) {
+      throw new UserError("Bad argument -AelementTypeCache=%s: not a directory", root);
+    }
+
+    StringBuilder configuration = new StringBuilder(FILE_HEADER);
+    configuration.append('\n').append(checker.getClass().getName());
+    for (Class<?> cls : new Class<?>[] {checker.getClass(), AnnotatedTypeFactory.class}) {
+      Path jar = getCodeSourceJar(cls);
+      if (jar == null) {
+        checker.message(
+            Diagnostic.Kind.NOTE,
+            "-AelementTypeCache is ignored because %s is not loaded from a .jar file",
+            cls.getName());
+        return null;
+      }
+      configuration.append('\n').append(hashFile(jar));
+    }
+    Map<String, String> options = new TreeMap<>(checker.getOptions());
+    options.remove("elementTypeCache");
+    for (Map.Entry<String, String> option : options.entrySet()) {
+      configuration.append('\n').append(option.getKey()).append('=').append(option.getValue());
+    }
+    String stubsOption = checker.getOption("stubs");
+    if (stubsOption != null) {
+      for (String stub : SystemUtil.pathSeparatorSplitter.splitToList(stubsOption)) {
+        configuration.append('\n').append(stub).append('=');
+        configuration.append(hashStubs(stub, checker.getClass()));
+      }
+    }
+    return new PersistentElementTypeCache(
+        atypeFactory, rootPath.resolve(hash(configuration.toString())));
+  }
+
+  /**
+   * Returns the cached type of {@code elt}, or null if it is not in the cache.
+   *
+   * @param elt an element that is read from a class file
+   * @return a new type for {@code elt} with the cached annotations, or null
+   */
+  @Nullable AnnotatedTypeMirror get(Element elt) {
+    Library library = getLibrary(elt);
+    String key = getKey(elt);
+    String value = library == null || key == null ? null : library.get(key);
+    AnnotatedTypeMirror result = value == null ? null : deserialize(elt, value);
+    if (result == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return result;
+  }
+
+  /**
+   * Records the type of {@code elt}, to be written to the cache by {@link #write}.
+   *
+   * @param elt an element that is read from a class file
+   * @param type the result of {@link AnnotatedTypeFactory#fromElement(Element)} for {@code elt}
+   */
+  void put(Element elt, AnnotatedTypeMirror type) {
+    Library library = getLibrary(elt);
+    String key = getKey(elt);
+    if (library == null || key == null) {
+      return;
+    }
+    String value = serialize(type);
+    if (value != null && !value.equals(library.get(key))) {
+      library.newEntries.put(key, value);
+    }
+  }
+
+  /**
+   * Writes the entries that were added by {@link #put} to the cache files. Entries that another
+   * compilation wrote to the same files in the meantime are preserved.
+   */
+  void write() {
+    for (Library library : libraries.values()) {
+      if (library.newEntries.isEmpty()) {
+        continue;
+      }
+      try {
+        Map<String, String> entries = new TreeMap<>(read(library.file));
+        entries.putAll(library.newEntries);
+        writeEntries(library.file, entries);
+        library.entries = entries;
+        library.newEntries.clear();
+      } catch (IOException e) {
+        atypeFactory
+            .getChecker()
+            .message(
+                Diagnostic.Kind.NOTE,
+                "Could not write element type cache %s: %s",
+                library.file,
+                e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the hit and miss counts of this cache.
+   *
+   * @return the hit and miss counts of this cache
+   */
+  FrequencyCache.Statistics getStatistics() {
+    return new FrequencyCache.Statistics(hits, misses, 0);
+  }
+
+  /**
+   * Returns the library that contains the class file of {@code elt}, or null if the class file is
+   * not in a .jar file or a JDK module.
+   *
+   * @param elt an element that is read from a class file
+   * @return the library that contains {@code elt}, or null
+   */
+  private @Nullable Library getLibrary(Element elt) {
+    TypeElement typeElement = ElementUtils.enclosingTypeElement(elt);
+    if (!(typeElement instanceof Symbol.ClassSymbol classSymbol)
+        || classSymbol.classfile == null
+        || classSymbol.classfile.getKind() != JavaFileObject.Kind.CLASS) {
+      return null;
+    }
+    URI uri = classSymbol.classfile.toUri();
+    String container;
+    String scheme = uri.getScheme();
+    if ("jar".equals(scheme)) {
+      String path = uri.getSchemeSpecificPart();
+      int separator = path.indexOf("!/");
+      if (separator == -1) {
+        return null;
+      }
+      container = path.substring(0, separator);
+    } else if ("jrt".equals(scheme)) {
+      // The module name is the first component of the path.
+      String path = uri.getPath();
+      int separator = path == null ? -1 : path.indexOf('/', 1);
+      if (separator == -1) {
+        return null;
+      }
+      container = "jrt:" + path.substring(0, separator);
+    } else {
+      return null;
+    }
+
+    String fileName;
+    if (libraryFileNames.containsKey(container)) {
+      fileName = libraryFileNames.get(container);
+    } else {
+      fileName = getLibraryFileName(container, platform);
+      libraryFileNames.put(container, fileName);
+    }
+    if (fileName == null) {
+      return null;
+    }
+    return libraries.computeIfAbsent(fileName, name -> new Library(directory.resolve(name)));
+  }
+
+  /**
+   * Returns the name of the cache file of a library.
+   *
+   * @param container the URI of a .jar file, or "jrt:/" followed by the name of a JDK module
+   * @param platform a description of the platform that the code is compiled against; see {@link
+   *     #platform(ProcessingEnvironment)}
+   * @return the name of the cache file of the library, or null if it cannot be hashed
+   */
+  static @Nullable String getLibraryFileName(String container, String platform) {
+    if (container.startsWith("jrt:")) {
+      // The modules of a JDK change only with the JDK.
+      return hash(container + '\n' + platform) + ".txt";
+    }
+    Path jar;
+    try {
+      jar = Paths.get(new URI(container));
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+    Path jarName = jar.getFileName();
+    if (jarName != null && jarName.toString().equals("ct.sym")) {
+      // With --release, the JDK reads the classes of the release from its ct.sym file, which
+      // contains the classes of every release.
+      return hash(container + '\n' + platform) + ".txt";
+    }
+    return hashFile(jar) + ".txt";
+  }
+
+  /**
+   * Returns a description of the platform that the code is compiled against: the JDK given by
+   * {@code --system}, or else the running JDK, and the value of {@code --release}.
+   *
+   * @param env the processing environment
+   * @return a description of the platform that the code is compiled against
+   */
+  private static String platform(ProcessingEnvironment env) {
+    String system = SystemUtil.getSystemValue(env);
+    Path jdk = Paths.get(system != null ? system : System.getProperty("java.home"));
+    StringBuilder result = new StringBuilder(jdk.toAbsolutePath().toString());
+    result.append("\nrelease=").append(SystemUtil.getReleaseValue(env));
+    // The release file names the version of the JDK, and the modules file changes with each build.
+    for (Path file : new Path[] {jdk.resolve("release"), jdk.resolve("lib").resolve("modules")}) {
+      try {
+        long size = Files.size(file);
+        FileTime modified = Files.getLastModifiedTime(file);
+        result.append('\n').append(size).append('|').append(modified);
+      } catch (IOException e) {
+        // The JDK has no such file, as for "--system none".
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Returns the key of {@code elt} in its library's cache file, or null if elements of its kind
+   * are not cached.
+   *
+   * @param elt an element
+   * @return the key of {@code elt}, or null
+   */
+  private static @Nullable String getKey(Element elt) {
+    TypeElement typeElement = ElementUtils.enclosingTypeElement(elt);
+    if (typeElement == null) {
+      return null;
+    }
+    String binaryName = ElementUtils.getBinaryName(typeElement);
+    return switch (elt.getKind()) {
+      case CLASS, INTERFACE, ENUM, ANNOTATION_TYPE, RECORD -> binaryName;
+      case FIELD, ENUM_CONSTANT, METHOD, CONSTRUCTOR -> binaryName + "#" + elt;
+      default -> null;
+    };
+  }
+
+  /**
+   * Returns the value of a cache entry for {@code type}, or null if {@code type} cannot be cached.
+   *
+   * @param type an annotated type
+   * @return the value of a cache entry for {@code type}, or null
+   */
+  private @Nullable String serialize(AnnotatedTypeMirror type) {
+    List<AnnotatedTypeMirror> components = new ArrayList<>();
+    componentCollector.visit(type, components);
+    List<ComponentAnnotations> result = new ArrayList<>(components.size());
+    for (AnnotatedTypeMirror component : components) {
+      List<String> annotations = new ArrayList<>(component.getPrimaryAnnotations().size());
+      for (AnnotationMirror annotation : component.getPrimaryAnnotations()) {
+        if (!annotation.getElementValues().isEmpty()) {
+          return null;
+        }
+        annotations.add(AnnotationUtils.annotationName(annotation));
+      }
+      result.add(new ComponentAnnotations(component.getKind().name(), annotations));
+    }
+    return encode(result);
+  }
+
+  /**
+   * Returns a new type for {@code elt} with the annotations in {@code value}, or null if {@code
+   * value} does not match the structure of the type of {@code elt}.
+   *
+   * @param elt an element
+   * @param value the value of the cache entry for {@code elt}
+   * @return a new type for {@code elt}, or null
+   */
+  private @Nullable AnnotatedTypeMirror deserialize(Element elt, String value) {
+    List<ComponentAnnotations> decoded = decode(value);
+    if (decoded == null) {
+      return null;
+    }
+    AnnotatedTypeMirror result =
+        atypeFactory.toAnnotatedType(elt.asType(), ElementUtils.isTypeDeclaration(elt));
+    if (result instanceof AnnotatedExecutableType executableType) {
+      executableType.setElement((ExecutableElement) elt);
+    }
+    List<AnnotatedTypeMirror> components = new ArrayList<>();
+    componentCollector.visit(result, components);
+    if (decoded.size() != components.size()) {
+      return null;
+    }
+    for (int i = 0; i < decoded.size(); i++) {
+      AnnotatedTypeMirror component = components.get(i);
+      if (!decoded.get(i).kind().equals(component.getKind().name())) {
+        return null;
+      }
+      for (String name : decoded.get(i).annotations()) {
+        AnnotationMirror annotation =
+            AnnotationBuilder.fromName(atypeFactory.getElementUtils(), name);
+        if (annotation == null) {
+          return null;
+        }
+        component.addAnnotation(annotation);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The annotations of one component type, as they are stored in a cache entry.
+   *
+   * @param kind the name of the {@link javax.lang.model.type.TypeKind} of the component type
+   * @param annotations the names of the annotations of the component type
+   */
+  record ComponentAnnotations(String kind, List<String> annotations) {}
+
+  /**
+   * Returns the value of a cache entry with the given annotations of component types.
+   *
+   * @param components the annotations of each component type, in the order in which {@link
+   *     SimpleAnnotatedTypeScanner} visits them
+   * @return the value of a cache entry
+   */
+  static String encode(List<ComponentAnnotations> components) {
+    StringJoiner result = new StringJoiner(String.valueOf(COMPONENT_SEPARATOR));
+    for (ComponentAnnotations component : components) {
+      result.add(
+          component.kind()
+              + KIND_SEPARATOR
+              + String.join(String.valueOf(ANNOTATION_SEPARATOR), component.annotations()));
+    }
+    return result.toString();
+  }
+
+  /**
+   * Returns the annotations of component types in the value of a cache entry, or null if the value
+   * is malformed.
+   *
+   * @param value the value of a cache entry
+   * @return the annotations of each component type in {@code value}, or null
+   */
+  static @Nullable List<ComponentAnnotations> decode(String value) {
+    String[] parts = value.split(String.valueOf(COMPONENT_SEPARATOR), -1);
+    List<ComponentAnnotations> result = new ArrayList<>(parts.length);
+    for (String part : parts) {
+      int separator = part.indexOf(KIND_SEPARATOR);
+      if (separator <= 0) {
+        return null;
+      }
+      String kind = part.substring(0, separator);
+      String names = part.substring(separator + 1);
+      List<String> annotations =
+          names.isEmpty()
+              ? Collections.emptyList()
+              : Arrays.asList(names.split(String.valueOf(ANNOTATION_SEPARATOR), -1));
+      if (annotations.contains("")) {
+        return null;
+      }
+      result.add(new ComponentAnnotations(kind, annotations));
+    }
+    return result;
+  }
+
+  /**
+   * Reads the entries of a cache file.
+   *
+   * @param file a cache file
+   * @return the entries of {@code file}, or an empty map if it does not exist or cannot be read
+   */
+  static Map<String, String> read(Path file) {
+    Map<String, String> result = new HashMap<>();
+    if (!Files.isRegularFile(file)) {
+      return result;
+    }
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      return result;
+    }
+    if (lines.isEmpty() || !lines.get(0).equals(FILE_HEADER)) {
+      return result;
+    }
+    for (String line : lines.subList(1, lines.size())) {
+      int separator = line.indexOf(KEY_SEPARATOR);
+      if (separator != -1) {
+        result.put(line.substring(0, separator), line.substring(separator + 1));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Replaces the contents of a cache file. A compilation that reads the file concurrently sees
+   * either the old or the new contents.
+   *
+   * @param file a cache file
+   * @param entries the entries of {@code file}
+   * @throws IOException if the file cannot be written
+   */
+  static void writeEntries(Path file, Map<String, String> entries) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    List<String> lines = new ArrayList<>(entries.size() + 1);
+    lines.add(FILE_HEADER);
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      lines.add(entry.getKey() + KEY_SEPARATOR + entry.getValue());
+    }
+    Path temp = Files.createTempFile(directory, "entries", ".tmp");
+    Files.write(temp, lines, StandardCharsets.UTF_8);
+    try {
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Returns the .jar file from which {@code cls} was loaded, or null if it was not loaded from a
+   * .jar file.
+   *
+   * @param cls a class
+   * @return the .jar file that contains {@code cls}, or null
+   */
+  private static @Nullable Path getCodeSourceJar(Class<?> cls) {
+    CodeSource codeSource = cls.getProtectionDomain().getCodeSource();
+    URL location = codeSource == null ? null : codeSource.getLocation();
+    if (location == null) {
+      return null;
+    }
+    try {
+      Path path = Paths.get(location.toURI());
+      return Files.isRegularFile(path) ? path : null;
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns a hash of the stub files in {@code stub}, an element of the {@code -Astubs}
+   * command-line option. The stub files are found as {@link AnnotationFileElementTypes} finds them:
+   * {@code stub} may be a file, a directory, or a resource such as a stub file in checker.jar.
+   *
+   * @param stub a stub file, a directory of stub files, or the name of a resource
+   * @param checkerClass the class of the checker whose resources may contain the stub file
+   * @return a hash of the contents of the stub files
+   */
+  static String hashStubs(String stub, Class<?> checkerClass) {
+    MessageDigest digest = newDigest();
+    for (byte[] contents :
+        AnnotationFileElementTypes.readAnnotationFiles(
+            stub, AnnotationFileType.COMMAND_LINE_STUB, checkerClass)) {
+      // The length separates the files, so that moving text from one to another changes the hash.
+      digest.update(Integer.toString(contents.length).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+      digest.update(contents);
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Returns a hash of the contents of a file. The result is memoized, keyed by the path, size, and
+   * modification time of the file.
+   *
+   * @param file a file
+   * @return a hash of the contents of {@code file}
+   */
+  private static String hashFile(Path file) {
+    String fileKey;
+    try {
+      fileKey =
+          file.toAbsolutePath() + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      throw new UserError("Could not read %s: %s", file, e.getMessage());
+    }
+    return fileHashes.computeIfAbsent(
+        fileKey,
+        key -> {
+          MessageDigest digest = newDigest();
+          byte[] buffer = new byte[1 << 16];
+          try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+              digest.update(buffer, 0, read);
+            }
+          } catch (IOException e) {
+            throw new UserError("Could not read %s: %s", file, e.getMessage());
+          }
+          return toHex(digest.digest());
+        });
+  }
+
+  /**
+   * Returns a hash of a string.
+   *
+   * @param s a string
+   * @return a hash of {@code s}
+   */
+  private static String hash(String s) {
+    return toHex(newDigest().digest(s.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Returns a new SHA-256 message digest.
+   *
+   * @return a new SHA-256 message digest
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new BugInCF(e, "SHA-256 is not available");
+    }
+  }
+
+  /**
+   * Returns the hexadecimal representation of some bytes.
+   *
+   * @param bytes some bytes
+   * @return the hexadecimal representation of {@code bytes}
+   */
+  private static String toHex(byte[] bytes) {
+    StringBuilder result = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      result.append(Character.forDigit((b >> 4) & 0xF, 16));
+      result.append(Character.forDigit(b & 0xF, 16));
+    }
+    return result.toString();
+  }
+
+  /** The cache entries of one library. */
+  private static final class Library {
+
+    /** The cache file of the library. */
+    final Path file;
+
+    /** The entries read from {@link #file}, or null if it has not been read yet. */
+    @Nullable Map<String, String> entries = null;
+
+    /** The entries added during this compilation that have not been written yet. */
+    final Map<String, String> newEntries = new HashMap<>();
+
+    /**
+     * Creates the cache entries of a library.
+     *
+     * @param file the cache file of the library
+     */
+    Library(Path file) {
+      this.file = file;
+    }
+
+    /**
+     * Returns the value of the entry for {@code key}, reading the cache file the first time.
+     *
+     * @param key the key of an entry
+     * @return the value of the entry for {@code key}, or null if there is none
+     */
+    @Nullable String get(String key) {
+      String result = newEntries.get(key);
+      if (result != null) {
+        return result;
+      }
+      if (entries == null) {
+        entries = read(file);
+      }
+      return entries.get(key);
+    }
+  }
+}
@@ -139,7 +139,7 @@ public class QualifierUpperBounds {
    * @return the explicit annotations on the element
    */
   protected AnnotationMirrorSet getAnnotationFromElement(Element element) {
-    return atypeFactory.fromElement(element).getPrimaryAnnotations();
+    return atypeFactory.fromElementShared(element).getPrimaryAnnotations();
   }
 
   /**
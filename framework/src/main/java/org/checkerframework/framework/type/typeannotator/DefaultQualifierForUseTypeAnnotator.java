@@ -115,7 +115,7 @@ public class DefaultQualifierForUseTypeAnnotator extends TypeAnnotator {
    * @return the annotations explicitly written on the element
    */
   protected AnnotationMirrorSet getExplicitAnnos(Element element) {
-    AnnotatedTypeMirror explicitAnnoOnDecl = atypeFactory.fromElement(element);
+    AnnotatedTypeMirror explicitAnnoOnDecl = atypeFactory.fromElementShared(element);
     return explicitAnnoOnDecl.getPrimaryAnnotations();
   }
 
@@ -90,7 +90,7 @@ public class PropagationTypeAnnotator extends TypeAnnotator {
       // Copy annotations from the declaration to the wildcards.
       AnnotatedDeclaredType declaration =
           (AnnotatedDeclaredType)
-              atypeFactory.fromElement(declaredType.getUnderlyingType().asElement());
+              atypeFactory.fromElementShared(declaredType.getUnderlyingType().asElement());
       List<AnnotatedTypeMirror> typeArgs = declaredType.getTypeArguments();
       for (int i = 0; i < typeArgs.size(); i++) {
         if (!AnnotatedTypes.isTypeArgOfRawType(typeArgs.get(i))) {
@@ -0,0 +1,471 @@
+package org.checkerframework.framework.util;
+
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.Main;
+import com.sun.tools.javac.util.Context;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jdk.net.ExtendedSocketOptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.stub.AnnotationFileElementTypes;
+
+/**
+ * A long-lived process that runs compilations for {@link CheckerMain}, so that repeated
+ * compilations do not each start a new JVM. The daemon keeps the JIT-compiled code of javac and of
+ * the Checker Framework, the classes of the annotation processors, and the parsed stub files and
+ * annotated JDK files from one compilation to the next.
+ *
+ * <p>Start the daemon with the same JVM options that {@link CheckerMain#getExecArguments} passes
+ * to javac, and with checker.jar on the classpath:
+ *
+ * <pre>{@code
+ * java --add-exports=... --add-opens=... -cp checker.jar \
+ *   org.checkerframework.framework.util.CheckerDaemon SOCKET
+ * }</pre>
+ *
+ * When the environment variable {@value #SOCKET_ENVIRONMENT_VARIABLE} names the socket, {@link
+ * CheckerMain} sends its compilations to the daemon instead of running javac. It runs javac itself
+ * if no daemon listens on the socket, or if the daemon cannot run the compilation as javac would:
+ * because the compilation runs in another directory or with another JDK ({@code java.home}),
+ * because it has JVM options ({@code -J}) other than those that {@link CheckerMain} always passes,
+ * or because checker.jar has changed since the daemon started. In the latter case the daemon also
+ * exits.
+ *
+ * <p>Only the user who started the daemon can connect to its socket, and the daemon rejects
+ * connections from processes of other users: a compilation can run arbitrary annotation processors
+ * with the daemon's permissions.
+ *
+ * <p>The daemon runs one compilation at a time. The class loader of the processor path is reused
+ * while the files on the processor path are unchanged. A stub file is parsed again only if its
+ * contents change.
+ */
+public final class CheckerDaemon {
+
+  /** The environment variable that names the socket of the daemon that {@link CheckerMain} uses. */
+  public static final String SOCKET_ENVIRONMENT_VARIABLE = "CHECKERFRAMEWORK_DAEMON";
+
+  /** The version of the protocol between {@link CheckerMain} and the daemon. */
+  private static final int PROTOCOL_VERSION = 2;
+
+  /** The working directory of the daemon; the daemon only runs compilations in it. */
+  private final String workingDirectory;
+
+  /** The JDK that the daemon runs on; the daemon only runs compilations of clients that use it. */
+  private final String javaHome = System.getProperty("java.home");
+
+  /** The jar file that contains the Checker Framework. */
+  private final File checkerJar;
+
+  /** The size and modification time of {@link #checkerJar} when the daemon started. */
+  private final String checkerJarStamp;
+
+  /** The URLs of the processor path that {@link #processorClassLoader} loads from. */
+  private @Nullable List<URL> processorPath = null;
+
+  /** The sizes and modification times of the files on {@link #processorPath}. */
+  private @Nullable List<String> processorPathStamps = null;
+
+  /** The class loader of {@link #processorPath}, or null if no compilation has used one. */
+  private @Nullable URLClassLoader processorClassLoader = null;
+
+  /**
+   * Creates a daemon.
+   *
+   * @param checkerJar the jar file that contains the Checker Framework
+   * @param workingDirectory the directory of the compilations that the daemon runs; normally the
+   *     working directory of the daemon's JVM
+   */
+  public CheckerDaemon(File checkerJar, String workingDirectory) {
+    this.checkerJar = checkerJar;
+    this.checkerJarStamp = stamp(checkerJar);
+    this.workingDirectory = workingDirectory;
+  }
+
+  /**
+   * Runs a daemon that listens on the given socket until it is killed or checker.jar changes.
+   *
+   * @param args the path of the socket
+   * @throws IOException if the daemon cannot listen on the socket
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: java ... " + CheckerDaemon.class.getName() + " SOCKET");
+      System.exit(1);
+    }
+    Path socket = Paths.get(args[0]).toAbsolutePath();
+    if (Files.exists(socket)) {
+      try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+        System.err.println("A daemon is already listening on " + socket);
+        System.exit(1);
+      } catch (IOException e) {
+        // No daemon is listening on the socket, which is left over from one that was killed.
+        Files.delete(socket);
+      }
+    }
+    File checkerJar = new File(CheckerMain.findPathTo(CheckerDaemon.class, false));
+    AnnotationFileElementTypes.shareParsedStubFilesAcrossInvocations();
+    try (ServerSocketChannel server = bind(socket)) {
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    try {
+                      Files.deleteIfExists(socket);
+                    } catch (IOException e) {
+                      // The next daemon deletes it.
+                    }
+                  }));
+      new CheckerDaemon(checkerJar, System.getProperty("user.dir")).serve(server);
+    }
+  }
+
+  /**
+   * Creates a socket at the given path that only the current user can connect to.
+   *
+   * @param socket the path of the socket
+   * @return the socket, bound to {@code socket}
+   * @throws IOException if the socket cannot be created, or the platform cannot identify the user
+   *     of a process that connects to it
+   */
+  public static ServerSocketChannel bind(Path socket) throws IOException {
+    try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      if (!probe.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+        throw new IOException("This platform cannot identify the user of a client of the daemon");
+      }
+    }
+    ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      // A process of another user that connects before this call is rejected by serve().
+      Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+    } catch (IOException | RuntimeException e) {
+      server.close();
+      throw e;
+    }
+    return server;
+  }
+
+  /**
+   * Runs the compilations that are requested on a socket, one at a time, until checker.jar changes
+   * or the socket is closed. Connections from processes of users other than the owner of the
+   * socket are closed without a response.
+   *
+   * @param server the socket, as created by {@link #bind}
+   */
+  public void serve(ServerSocketChannel server) {
+    UserPrincipal owner;
+    try {
+      owner = Files.getOwner(((UnixDomainSocketAddress) server.getLocalAddress()).getPath());
+    } catch (IOException e) {
+      System.err.println("Failed to determine the owner of the socket: " + e);
+      return;
+    }
+    while (server.isOpen()) {
+      try (SocketChannel channel = server.accept();
+          DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+          DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+        UserPrincipal client = channel.getOption(ExtendedSocketOptions.SO_PEERCRED).user();
+        if (!client.equals(owner)) {
+          System.err.println("Rejected a connection from user " + client.getName());
+          continue;
+        }
+        if (!handle(in, out)) {
+          return;
+        }
+      } catch (IOException e) {
+        if (server.isOpen()) {
+          System.err.println("Failed to communicate with a client: " + e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a request, and runs the compilation if the daemon can run it as javac would.
+   *
+   * @param in the request
+   * @param out the response
+   * @return false if the daemon should exit
+   * @throws IOException if the request cannot be read or the response cannot be written
+   */
+  private boolean handle(DataInputStream in, DataOutputStream out) throws IOException {
+    if (in.readInt() != PROTOCOL_VERSION) {
+      out.writeBoolean(false);
+      return true;
+    }
+    String clientDirectory = readString(in);
+    String clientCheckerJar = readString(in);
+    String clientJavaHome = readString(in);
+    int numArgs = in.readInt();
+    List<String> args = new ArrayList<>(numArgs);
+    for (int i = 0; i < numArgs; i++) {
+      args.add(readString(in));
+    }
+    if (!stamp(checkerJar).equals(checkerJarStamp)) {
+      out.writeBoolean(false);
+      return false;
+    }
+    if (!clientDirectory.equals(workingDirectory)
+        || !clientCheckerJar.equals(checkerJar.getAbsolutePath())
+        || !clientJavaHome.equals(javaHome)
+        || hasOtherJvmOptions(args)) {
+      out.writeBoolean(false);
+      return true;
+    }
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    int exitStatus = compile(args, stdout, stderr);
+    out.writeBoolean(true);
+    out.writeInt(exitStatus);
+    writeBytes(out, stdout.toByteArray());
+    writeBytes(out, stderr.toByteArray());
+    return true;
+  }
+
+  /**
+   * Returns true if a javac command has JVM options that the daemon cannot apply: options other
+   * than {@link CheckerMain#JDK_COMPILER_ACCESS_OPTIONS}, which the daemon's JVM is started with.
+   *
+   * @param args the command that {@link CheckerMain} would run: "javac", followed by its arguments
+   * @return true if {@code args} has a {@code -J} option that the daemon cannot apply
+   */
+  private static boolean hasOtherJvmOptions(List<String> args) {
+    for (String arg : args.subList(1, args.size())) {
+      if (arg.startsWith("-J") && !CheckerMain.JDK_COMPILER_ACCESS_OPTIONS.contains(arg)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs javac in this JVM. The {@code -J} options of the command are not passed to javac; they
+   * are among {@link CheckerMain#JDK_COMPILER_ACCESS_OPTIONS}, which the daemon's JVM is started
+   * with.
+   *
+   * @param args the command that {@link CheckerMain} would run: "javac", followed by its arguments
+   * @param stdout receives the standard output of the compilation
+   * @param stderr receives the standard error of the compilation
+   * @return the exit status of javac
+   */
+  private int compile(List<String> args, OutputStream stdout, OutputStream stderr) {
+    List<String> javacArgs = new ArrayList<>(args.size());
+    for (String arg : args.subList(1, args.size())) {
+      if (!arg.startsWith("-J")) {
+        javacArgs.add(arg);
+      }
+    }
+    PrintStream systemOut = System.out;
+    PrintStream systemErr = System.err;
+    PrintStream out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+    PrintStream err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+    PrintWriter outWriter = new PrintWriter(out, true);
+    PrintWriter errWriter = new PrintWriter(err, true);
+    // Checkers print some output, such as statistics, to System.out.
+    System.setOut(out);
+    System.setErr(err);
+    try {
+      Context context = new Context();
+      new DaemonFileManager(context);
+      return new Main("javac", outWriter, errWriter)
+          .compile(javacArgs.toArray(new String[0]), context)
+          .exitCode;
+    } catch (Throwable t) {
+      t.printStackTrace(errWriter);
+      return Main.Result.ABNORMAL.exitCode;
+    } finally {
+      outWriter.flush();
+      errWriter.flush();
+      System.setOut(systemOut);
+      System.setErr(systemErr);
+    }
+  }
+
+  /**
+   * Returns a class loader for the processor path. The class loader is reused while the processor
+   * path and its files are unchanged. The result is not {@link java.io.Closeable}, so javac cannot
+   * close it at the end of the compilation.
+   *
+   * @param urls the URLs of the processor path
+   * @return a class loader for {@code urls}
+   */
+  private ClassLoader getProcessorClassLoader(URL[] urls) {
+    List<URL> path = Arrays.asList(urls);
+    List<String> stamps = new ArrayList<>(urls.length);
+    for (URL url : urls) {
+      stamps.add(stamp(url));
+    }
+    if (processorClassLoader == null
+        || !path.equals(processorPath)
+        || !stamps.equals(processorPathStamps)) {
+      if (processorClassLoader != null) {
+        try {
+          processorClassLoader.close();
+        } catch (IOException e) {
+          // The classes that it loaded are no longer used.
+        }
+      }
+      processorPath = path;
+      processorPathStamps = stamps;
+      processorClassLoader = new URLClassLoader(urls, CheckerDaemon.class.getClassLoader());
+    }
+    return new ClassLoader(processorClassLoader) {};
+  }
+
+  /** A file manager whose processor class loader is reused across compilations. */
+  private final class DaemonFileManager extends JavacFileManager {
+
+    /**
+     * Creates a file manager and registers it in the context.
+     *
+     * @param context the context of a compilation
+     */
+    DaemonFileManager(Context context) {
+      super(context, true, null);
+    }
+
+    @Override
+    protected ClassLoader getClassLoader(URL[] urls) {
+      return getProcessorClassLoader(urls);
+    }
+  }
+
+  /**
+   * Returns the size and modification time of a file.
+   *
+   * @param file a file
+   * @return the size and modification time of {@code file}
+   */
+  private static String stamp(File file) {
+    return file.length() + "@" + file.lastModified();
+  }
+
+  /**
+   * Returns the size and modification time of the file at a URL, or the URL itself if it is not a
+   * file.
+   *
+   * @param url a URL
+   * @return the size and modification time of the file at {@code url}
+   */
+  private static String stamp(URL url) {
+    if (!url.getProtocol().equals("file")) {
+      return url.toString();
+    }
+    try {
+      return stamp(new File(url.toURI()));
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return url.toString();
+    }
+  }
+
+  /**
+   * Runs a compilation on the daemon that listens on the given socket.
+   *
+   * @param socket the socket of the daemon
+   * @param checkerJar the jar file that contains the Checker Framework
+   * @param args the command that {@link CheckerMain} would run: "javac", followed by its arguments
+   * @param stdout receives the standard output of the compilation
+   * @param stderr receives the standard error of the compilation
+   * @return the exit status of the compilation, or null if no daemon ran it
+   */
+  public static @Nullable Integer forward(
+      Path socket, File checkerJar, List<String> args, OutputStream stdout, OutputStream stderr) {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+      out.writeInt(PROTOCOL_VERSION);
+      writeString(out, System.getProperty("user.dir"));
+      writeString(out, checkerJar.getAbsolutePath());
+      writeString(out, System.getProperty("java.home"));
+      out.writeInt(args.size());
+      for (String arg : args) {
+        writeString(out, arg);
+      }
+      out.flush();
+      if (!in.readBoolean()) {
+        return null;
+      }
+      int exitStatus = in.readInt();
+      stdout.write(readBytes(in));
+      stdout.flush();
+      stderr.write(readBytes(in));
+      stderr.flush();
+      return exitStatus;
+    } catch (IOException | UnsupportedOperationException e) {
+      // No daemon listens on the socket, or the platform has no Unix domain sockets.
+      return null;
+    }
+  }
+
+  /**
+   * Writes a string. Unlike {@link DataOutputStream#writeUTF}, this permits long strings, such as
+   * classpaths.
+   *
+   * @param out the stream to write to
+   * @param s the string
+   * @throws IOException if the string cannot be written
+   */
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads a string that {@link #writeString} wrote.
+   *
+   * @param in the stream to read from
+   * @return the string
+   * @throws IOException if the string cannot be read
+   */
+  private static String readString(DataInputStream in) throws IOException {
+    return new String(readBytes(in), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes an array of bytes, preceded by its length.
+   *
+   * @param out the stream to write to
+   * @param bytes the bytes
+   * @throws IOException if the bytes cannot be written
+   */
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads an array of bytes that {@link #writeBytes} wrote.
+   *
+   * @param in the stream to read from
+   * @return the bytes
+   * @throws IOException if the bytes cannot be read
+   */
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] result = new byte[in.readInt()];
+    in.readFully(result);
+    return result;
+  }
+}
@@ -295,6 +295,32 @@ public class CheckerMain {
     return path;
   }
 
+  /**
+   * The JVM options, with their {@code -J} prefix, that give the Checker Framework access to the
+   * internals of javac. {@link #getExecArguments} passes them to every javac command.
+   */
+  static final List<String> JDK_COMPILER_ACCESS_OPTIONS =
+      // Keep this list in sync with the lists in checker-framework/build.gradle in
+      // compilerArgsForRunningCFs, the sections with labels
+      // "javac-jdk11-non-modularized", "maven", and "sbt" in the manual, and in the
+      // checker-framework-gradle-plugin, CheckerFrameworkPlugin#applyToProject
+      Arrays.asList(
+          // These are required in Java 17+ because the --illegal-access option is
+          // set to deny by default.  None of these packages is accessed via
+          // reflection, so the module only needs to be exported, but not opened.
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+          // Required because the Checker Framework reflectively accesses private
+          // members in com.sun.tools.javac.comp.
+          "-J--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED");
+
   /**
    * Returns a list of arguments to pass to javac.
    *
@@ -307,27 +333,7 @@ public class CheckerMain {
     String java = "javac";
     args.add(java);
 
-    args.addAll(
-        // Keep this list in sync with the lists in checker-framework/build.gradle in
-        // compilerArgsForRunningCFs, the sections with labels
-        // "javac-jdk11-non-modularized", "maven", and "sbt" in the manual, and in the
-        // checker-framework-gradle-plugin, CheckerFrameworkPlugin#applyToProject
-        Arrays.asList(
-            // These are required in Java 17+ because the --illegal-access option is
-            // set to deny by default.  None of these packages is accessed via
-            // reflection, so the module only needs to be exported, but not opened.
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
-            "-J--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
-            // Required because the Checker Framework reflectively accesses private
-            // members in com.sun.tools.javac.comp.
-            "-J--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED"));
+    args.addAll(JDK_COMPILER_ACCESS_OPTIONS);
 
     args.addAll(jvmOpts);
 
@@ -374,6 +380,15 @@ public class CheckerMain {
       }
     }
 
+    String daemonSocket = System.getenv(CheckerDaemon.SOCKET_ENVIRONMENT_VARIABLE);
+    if (daemonSocket != null && !daemonSocket.isEmpty()) {
+      Integer exitStatus =
+          CheckerDaemon.forward(Paths.get(daemonSocket), checkerJar, args, System.out, System.err);
+      if (exitStatus != null) {
+        return exitStatus;
+      }
+    }
+
     // Actually invoke the compiler
     return ExecUtil.execute(args.toArray(new String[0]), System.out, System.err);
   }
@@ -13,6 +13,9 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
 import org.checkerframework.checker.initialization.qual.UnderInitialization;
 import org.checkerframework.checker.initialization.qual.UnknownInitialization;
 import org.checkerframework.checker.interning.qual.Interned;
@@ -25,6 +28,7 @@ import org.checkerframework.dataflow.qual.Pure;
 import org.checkerframework.framework.qual.AnnotatedFor;
 import org.checkerframework.framework.qual.PolymorphicQualifier;
 import org.checkerframework.framework.qual.SubtypeOf;
+import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.TypeSystemError;
 import org.plumelib.util.StringsP;
@@ -71,16 +75,25 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
   private final Set<DefaultQualifierKind> bottoms;
 
   /**
-   * Holds the lub of qualifier kinds. {@code lubs.get(kind1).get(kind2)} returns the lub of kind1
-   * and kind2.
+   * Holds the lub of qualifier kinds, indexed by their ordinals. {@code lubs[kind1.ordinal * n +
+   * kind2.ordinal]}, where n is the number of qualifier kinds, is the lub of kind1 and kind2, or
+   * null if they are in different hierarchies.
    */
-  private final Map<QualifierKind, Map<QualifierKind, QualifierKind>> lubs;
+  private final @Nullable QualifierKind[] lubs;
 
   /**
-   * Holds the glb of qualifier kinds. {@code glbs.get(kind1).get(kind2)} returns the glb of kind1
-   * and kind2.
+   * Holds the glb of qualifier kinds, indexed by their ordinals. {@code glbs[kind1.ordinal * n +
+   * kind2.ordinal]}, where n is the number of qualifier kinds, is the glb of kind1 and kind2, or
+   * null if they are in different hierarchies.
+   */
+  private final @Nullable QualifierKind[] glbs;
+
+  /**
+   * A mapping from the element of an annotation class to its QualifierKind. It is filled lazily by
+   * {@link #getQualifierKind(AnnotationMirror)}, so that looking up the kind of an annotation
+   * needn't compute its name.
    */
-  private final Map<QualifierKind, Map<QualifierKind, QualifierKind>> glbs;
+  private final Map<Element, QualifierKind> elementToQualifierKind = new ConcurrentHashMap<>();
 
   @Override
   public Set<? extends QualifierKind> getTops() {
@@ -94,16 +107,30 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
 
   @Override
   public @Nullable QualifierKind leastUpperBound(QualifierKind q1, QualifierKind q2) {
-    @SuppressWarnings("nullness:dereference.of.nullable") // All QualifierKinds are keys in lubs.
-    QualifierKind result = lubs.get(q1).get(q2);
-    return result;
+    return lubs[ordinal(q1) * qualifierKinds.size() + ordinal(q2)];
   }
 
   @Override
   public @Nullable QualifierKind greatestLowerBound(QualifierKind q1, QualifierKind q2) {
-    @SuppressWarnings("nullness:dereference.of.nullable") // All QualifierKinds are keys in glbs.
-    QualifierKind result = glbs.get(q1).get(q2);
-    return result;
+    return glbs[ordinal(q1) * qualifierKinds.size() + ordinal(q2)];
+  }
+
+  /**
+   * Returns the ordinal of the given qualifier kind, which is its index in {@link
+   * #qualifierKinds}.
+   *
+   * @param kind a qualifier kind of this hierarchy
+   * @return the ordinal of {@code kind}
+   */
+  @RequiresNonNull("this.qualifierKinds")
+  private int ordinal(
+      @UnknownInitialization(DefaultQualifierKindHierarchy.class) DefaultQualifierKindHierarchy this,
+      QualifierKind kind) {
+    if (kind instanceof DefaultQualifierKind defaultKind
+        && defaultKind.hierarchyKinds == qualifierKinds) {
+      return defaultKind.ordinal;
+    }
+    throw new BugInCF("%s is not a qualifier kind of this hierarchy", kind);
   }
 
   @Override
@@ -122,6 +149,17 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     return result;
   }
 
+  @Override
+  public QualifierKind getQualifierKind(AnnotationMirror anno) {
+    Element annoElt = anno.getAnnotationType().asElement();
+    QualifierKind result = elementToQualifierKind.get(annoElt);
+    if (result == null) {
+      result = getQualifierKind(AnnotationUtils.annotationName(anno));
+      elementToQualifierKind.put(annoElt, result);
+    }
+    return result;
+  }
+
   /**
    * Creates a {@link DefaultQualifierKindHierarchy}. Also, creates and initializes all its
    * qualifier kinds.
@@ -169,6 +207,11 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     this.nameToQualifierKind = createQualifierKinds(qualifierClasses);
     this.qualifierKinds = new ArrayList<>(nameToQualifierKind.values());
     Collections.sort(qualifierKinds);
+    for (int i = 0; i < qualifierKinds.size(); i++) {
+      DefaultQualifierKind qualifierKind = qualifierKinds.get(i);
+      qualifierKind.ordinal = i;
+      qualifierKind.hierarchyKinds = qualifierKinds;
+    }
 
     Map<DefaultQualifierKind, Set<DefaultQualifierKind>> directSuperMap = createDirectSuperMap();
     if (bottom != null) {
@@ -178,12 +221,53 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     this.bottoms = createBottomsSet(directSuperMap);
     initializePolymorphicQualifiers();
     initializeQualifierKindFields(directSuperMap);
-    this.lubs = createLubsMap();
-    this.glbs = createGlbsMap();
+    initializeSuperTypeBits();
+    this.lubs = createTable(createLubsMap());
+    this.glbs = createTable(createGlbsMap());
 
     verifyHierarchy(directSuperMap);
   }
 
+  /**
+   * Sets {@link DefaultQualifierKind#superTypeBits} of every qualifier kind, so that {@link
+   * DefaultQualifierKind#isSubtypeOf(QualifierKind)} tests a bit rather than searching a set. Called
+   * once the strict super types of all qualifier kinds are known.
+   */
+  @RequiresNonNull("this.qualifierKinds")
+  private void initializeSuperTypeBits(@UnderInitialization DefaultQualifierKindHierarchy this) {
+    int words = (qualifierKinds.size() + 63) / 64;
+    for (DefaultQualifierKind qualifierKind : qualifierKinds) {
+      long[] bits = new long[words];
+      bits[qualifierKind.ordinal >>> 6] |= 1L << qualifierKind.ordinal;
+      for (QualifierKind superKind : qualifierKind.getStrictSuperTypes()) {
+        int superOrdinal = ordinal(superKind);
+        bits[superOrdinal >>> 6] |= 1L << superOrdinal;
+      }
+      qualifierKind.superTypeBits = bits;
+    }
+  }
+
+  /**
+   * Converts a lub or glb map, as returned by {@link #createLubsMap()} or {@link #createGlbsMap()},
+   * to a table indexed by the ordinals of the qualifier kinds.
+   *
+   * @param map a mapping from two qualifier kinds to their lub or glb
+   * @return a table whose element {@code kind1.ordinal * n + kind2.ordinal} is {@code
+   *     map.get(kind1).get(kind2)}, where n is the number of qualifier kinds
+   */
+  @RequiresNonNull("this.qualifierKinds")
+  private @Nullable QualifierKind[] createTable(
+      @UnderInitialization DefaultQualifierKindHierarchy this,
+      Map<QualifierKind, Map<QualifierKind, QualifierKind>> map) {
+    int n = qualifierKinds.size();
+    @Nullable QualifierKind[] table = new QualifierKind[n * n];
+    map.forEach(
+        (qual1, qual1Map) ->
+            qual1Map.forEach(
+                (qual2, value) -> table[ordinal(qual1) * n + ordinal(qual2)] = value));
+    return table;
+  }
+
   /**
    * Verifies that the {@link DefaultQualifierKindHierarchy} is a valid hierarchy.
    *
@@ -732,6 +816,21 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     // Set while creating the QualifierKindHierarchy.
     protected @MonotonicNonNull Set<QualifierKind> strictSuperTypes;
 
+    /** The index of this in the sorted list of qualifier kinds of its hierarchy. */
+    // Set while creating the QualifierKindHierarchy.
+    private int ordinal = -1;
+
+    /** The sorted list of qualifier kinds of the hierarchy to which this belongs. */
+    // Set while creating the QualifierKindHierarchy.
+    private @MonotonicNonNull List<DefaultQualifierKind> hierarchyKinds;
+
+    /**
+     * Bit {@code i} of this array is set if this is a subtype of the qualifier kind whose ordinal
+     * is {@code i}.
+     */
+    // Set while creating the QualifierKindHierarchy, once strictSuperTypes is final.
+    private long @MonotonicNonNull [] superTypeBits;
+
     /**
      * Creates a {@link DefaultQualifierKind} for the given annotation class.
      *
@@ -824,6 +923,12 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
             "DefaultQualifierKind#isSubtypeOf: strictSuperTypes was null. Don't call this method"
                 + " during initialization of DefaultQualifierKindHierarchy.");
       }
+      if (superTypeBits != null
+          && superQualKind instanceof DefaultQualifierKind superKind
+          && superKind.hierarchyKinds == hierarchyKinds) {
+        int superOrdinal = superKind.ordinal;
+        return (superTypeBits[superOrdinal >>> 6] & (1L << superOrdinal)) != 0;
+      }
       return this == superQualKind || strictSuperTypes.contains(superQualKind);
     }
 
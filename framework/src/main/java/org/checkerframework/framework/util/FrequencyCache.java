@@ -0,0 +1,610 @@
+package org.checkerframework.framework.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A bounded cache whose eviction policy takes into account how often each key is used, not just how
+ * recently. It is used for the caches of {@link
+ * org.checkerframework.framework.type.AnnotatedTypeFactory}.
+ *
+ * <p>The policy is an approximation of W-TinyLFU:
+ *
+ * <ul>
+ *   <li>New entries enter a small <em>window</em> that holds about 1% of the capacity.
+ *   <li>An entry that leaves the window becomes a candidate for the <em>main</em> space. It is
+ *       admitted only if its key has been used more often than the key that would be evicted to
+ *       make room for it; otherwise the candidate itself is evicted. This keeps a burst of keys
+ *       that are used once, such as the trees of one large method, from flushing out the types of
+ *       frequently used declarations.
+ *   <li>The main space is segmented: an entry that is used again while on <em>probation</em> is
+ *       promoted to the <em>protected</em> segment, which holds up to 80% of the main space.
+ *   <li>Use counts are kept in a small count-min sketch, which also counts keys that are not in the
+ *       cache, and which is periodically halved so that old uses are forgotten.
+ * </ul>
+ *
+ * <p>Unlike an access-ordered {@link java.util.LinkedHashMap}, a read does not reorder any list: it
+ * only sets a flag on the entry and increments the sketch. The recency lists are CLOCK-like: the
+ * flags are consulted when entries are moved or evicted, which happens only during writes. Reads
+ * therefore take no lock, and writes synchronize on the cache.
+ *
+ * <p>An optional weigher assigns each value a weight, and the capacity bounds the total weight of
+ * the entries rather than their number. Null values are permitted; null keys are not.
+ *
+ * <p>The cache counts hits, misses, and evictions; see {@link #getStatistics}. Only {@link #get}
+ * counts as a use of the cache: {@link #containsKey} does not.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class FrequencyCache<K, V> extends AbstractMap<K, V> {
+
+  /** The name of this cache, used in diagnostic output. */
+  private final String name;
+
+  /** The maximum total weight of the entries in this cache. */
+  private final long capacity;
+
+  /** The maximum total weight of the entries in the window. */
+  private final long windowCapacity;
+
+  /** The maximum total weight of the entries in the protected segment. */
+  private final long protectedCapacity;
+
+  /** The weigher for values, or null if every entry weighs 1. */
+  private final @Nullable ToIntFunction<? super V> weigher;
+
+  /** The entries of this cache. */
+  private final ConcurrentHashMap<K, CacheEntry<K, V>> data = new ConcurrentHashMap<>();
+
+  /** Estimates how often each key has been used. */
+  private final FrequencySketch sketch;
+
+  /** The entries in the window, least recently added first. Guarded by {@code this}. */
+  private final EntryList<K, V> window = new EntryList<>(Segment.WINDOW);
+
+  /** The entries on probation in the main space, eviction candidates first. Guarded by this. */
+  private final EntryList<K, V> probation = new EntryList<>(Segment.PROBATION);
+
+  /** The entries in the protected segment of the main space. Guarded by {@code this}. */
+  private final EntryList<K, V> protectedEntries = new EntryList<>(Segment.PROTECTED);
+
+  /** The number of lookups that found an entry. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The number of lookups that found no entry. */
+  private final LongAdder misses = new LongAdder();
+
+  /** The number of entries that have been evicted. */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a cache in which every entry weighs 1, so that {@code capacity} bounds the number of
+   * entries.
+   *
+   * @param name the name of the cache, used in diagnostic output
+   * @param capacity the maximum number of entries
+   */
+  public FrequencyCache(String name, long capacity) {
+    this(name, capacity, null);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param name the name of the cache, used in diagnostic output
+   * @param capacity the maximum total weight of the entries
+   * @param weigher the weigher for values, or null if every entry weighs 1. It must return a
+   *     non-negative weight that does not change while the value is in the cache.
+   */
+  public FrequencyCache(String name, long capacity, @Nullable ToIntFunction<? super V> weigher) {
+    if (capacity <= 0) {
+      throw new BugInCF("FrequencyCache %s: non-positive capacity %d", name, capacity);
+    }
+    this.name = name;
+    this.capacity = capacity;
+    this.windowCapacity = Math.max(1, capacity / 100);
+    this.protectedCapacity = (capacity - windowCapacity) * 4 / 5;
+    this.weigher = weigher;
+    this.sketch = new FrequencySketch(capacity);
+  }
+
+  /**
+   * Returns the name of this cache.
+   *
+   * @return the name of this cache
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the maximum total weight of the entries in this cache.
+   *
+   * @return the maximum total weight of the entries in this cache
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public @Nullable V get(Object key) {
+    sketch.increment(key.hashCode());
+    CacheEntry<K, V> entry = data.get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    entry.referenced = true;
+    hits.increment();
+    return entry.value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return data.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return data.size();
+  }
+
+  @Override
+  public synchronized @Nullable V put(K key, V value) {
+    int weight = weigh(value);
+    CacheEntry<K, V> entry = data.get(key);
+    if (entry != null) {
+      V old = entry.value;
+      entry.value = value;
+      listOf(entry).weight += weight - entry.weight;
+      entry.weight = weight;
+      entry.referenced = true;
+      evict();
+      return old;
+    }
+    entry = new CacheEntry<>(key, value, weight);
+    data.put(key, entry);
+    window.addLast(entry);
+    evict();
+    return null;
+  }
+
+  @Override
+  public synchronized @Nullable V remove(Object key) {
+    CacheEntry<K, V> entry = data.remove(key);
+    if (entry == null) {
+      return null;
+    }
+    listOf(entry).remove(entry);
+    return entry.value;
+  }
+
+  @Override
+  public synchronized void clear() {
+    data.clear();
+    window.clear();
+    probation.clear();
+    protectedEntries.clear();
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        Iterator<CacheEntry<K, V>> entries = data.values().iterator();
+        return new Iterator<Map.Entry<K, V>>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public Map.Entry<K, V> next() {
+            CacheEntry<K, V> entry = entries.next();
+            return new AbstractMap.SimpleImmutableEntry<>(entry.key, entry.value);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return data.size();
+      }
+    };
+  }
+
+  /**
+   * Returns the number of hits, misses, and evictions of this cache so far.
+   *
+   * @return the statistics of this cache
+   */
+  public Statistics getStatistics() {
+    return new Statistics(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  /**
+   * Returns the weight of {@code value}.
+   *
+   * @param value a value
+   * @return the weight of {@code value}
+   */
+  private int weigh(V value) {
+    if (weigher == null) {
+      return 1;
+    }
+    int weight = weigher.applyAsInt(value);
+    if (weight < 0) {
+      throw new BugInCF("FrequencyCache %s: negative weight %d for %s", name, weight, value);
+    }
+    return weight;
+  }
+
+  /**
+   * Returns the list that contains {@code entry}.
+   *
+   * @param entry an entry of this cache
+   * @return the list that contains {@code entry}
+   */
+  private EntryList<K, V> listOf(CacheEntry<K, V> entry) {
+    return switch (entry.segment) {
+      case WINDOW -> window;
+      case PROBATION -> probation;
+      case PROTECTED -> protectedEntries;
+    };
+  }
+
+  /** Moves and evicts entries until the window and the whole cache are within their capacities. */
+  private void evict() {
+    // Entries that overflow the window become candidates for the main space.  A candidate that
+    // has been used since it was added gets a second chance in the window.
+    while (window.weight > windowCapacity && window.head != null) {
+      CacheEntry<K, V> entry = window.head;
+      window.remove(entry);
+      if (entry.referenced) {
+        entry.referenced = false;
+        window.addLast(entry);
+      } else {
+        probation.addLast(entry);
+      }
+    }
+
+    while (window.weight + probation.weight + protectedEntries.weight > capacity) {
+      if (probation.head == null) {
+        if (protectedEntries.head != null) {
+          probation.addLast(demote(protectedEntries.head));
+          continue;
+        }
+        // Only the window holds entries; evict its oldest one.
+        evictEntry(window.head);
+        continue;
+      }
+      CacheEntry<K, V> victim = probation.head;
+      if (victim.referenced) {
+        // Used again while on probation: promote to the protected segment.
+        probation.remove(victim);
+        victim.referenced = false;
+        protectedEntries.addLast(victim);
+        while (protectedEntries.weight > protectedCapacity && protectedEntries.head != victim) {
+          probation.addLast(demote(protectedEntries.head));
+        }
+        continue;
+      }
+      // The most recent arrival on probation competes with the oldest one for admission.
+      CacheEntry<K, V> candidate = probation.tail;
+      if (candidate == victim) {
+        evictEntry(victim);
+      } else if (sketch.frequency(candidate.key.hashCode())
+          > sketch.frequency(victim.key.hashCode())) {
+        evictEntry(victim);
+      } else {
+        evictEntry(candidate);
+      }
+    }
+  }
+
+  /**
+   * Removes the least recently promoted entry from the protected segment, giving it a second chance
+   * if it has been used since it was promoted.
+   *
+   * @param entry the head of the protected segment
+   * @return the entry, if it should move to probation, or the result of demoting the new head
+   */
+  private CacheEntry<K, V> demote(CacheEntry<K, V> entry) {
+    while (entry.referenced && entry.next != null) {
+      entry.referenced = false;
+      protectedEntries.remove(entry);
+      protectedEntries.addLast(entry);
+      entry = protectedEntries.head;
+    }
+    protectedEntries.remove(entry);
+    return entry;
+  }
+
+  /**
+   * Evicts an entry.
+   *
+   * @param entry the entry to evict
+   */
+  private void evictEntry(CacheEntry<K, V> entry) {
+    listOf(entry).remove(entry);
+    data.remove(entry.key, entry);
+    evictions.increment();
+  }
+
+  @Override
+  public String toString() {
+    return "FrequencyCache(" + name + ", capacity=" + capacity + ", size=" + size() + ")";
+  }
+
+  /**
+   * The number of hits, misses, and evictions of a cache.
+   *
+   * @param hits the number of lookups that found an entry
+   * @param misses the number of lookups that found no entry
+   * @param evictions the number of entries that were evicted
+   */
+  public record Statistics(long hits, long misses, long evictions) {
+
+    @Override
+    public String toString() {
+      long lookups = hits + misses;
+      return String.format(
+          "%d lookups, %d hits (%.1f%%), %d misses, %d evictions",
+          lookups, hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups, misses, evictions);
+    }
+  }
+
+  /**
+   * A count-min sketch that estimates how often each key has been used, in 4-bit saturating
+   * counters. When the number of increments reaches ten times the capacity of the cache, all
+   * counters are halved, so that the estimates favor recent uses.
+   *
+   * <p>The sketch is updated without synchronization. Concurrent increments may be lost, which
+   * only makes the estimates slightly less accurate.
+   */
+  private static final class FrequencySketch {
+
+    /** The number of counters that each key increments. */
+    private static final int DEPTH = 4;
+
+    /** The counters, two per byte. */
+    private final byte[] table;
+
+    /** The number of counters minus one; the number of counters is a power of two. */
+    private final int mask;
+
+    /** The number of increments after which the counters are halved. */
+    private final int sampleSize;
+
+    /** The number of increments since the counters were last halved. */
+    private int additions;
+
+    /**
+     * Creates a sketch for a cache.
+     *
+     * @param capacity the capacity of the cache
+     */
+    FrequencySketch(long capacity) {
+      int counters =
+          Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64, capacity * DEPTH)) - 1) << 1;
+      this.table = new byte[counters / 2];
+      this.mask = counters - 1;
+      this.sampleSize = (int) Math.min(Integer.MAX_VALUE / 2, 10 * capacity);
+    }
+
+    /**
+     * Increments the estimated frequency of a key.
+     *
+     * @param hashCode the hash code of the key
+     */
+    void increment(int hashCode) {
+      boolean added = false;
+      for (int i = 0; i < DEPTH; i++) {
+        int index = indexOf(hashCode, i);
+        if (counter(index) < 15) {
+          setCounter(index, counter(index) + 1);
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize) {
+        halve();
+      }
+    }
+
+    /**
+     * Returns the estimated frequency of a key.
+     *
+     * @param hashCode the hash code of the key
+     * @return the estimated frequency of the key, between 0 and 15
+     */
+    int frequency(int hashCode) {
+      int result = 15;
+      for (int i = 0; i < DEPTH; i++) {
+        result = Math.min(result, counter(indexOf(hashCode, i)));
+      }
+      return result;
+    }
+
+    /** Halves every counter. */
+    private void halve() {
+      additions /= 2;
+      for (int i = 0; i < table.length; i++) {
+        // Shift each 4-bit half right by one, and clear the bit that moved between halves.
+        table[i] = (byte) ((table[i] & 0xFF) >>> 1 & 0x77);
+      }
+    }
+
+    /**
+     * Returns the index of the counter for a key in one row of the sketch.
+     *
+     * @param hashCode the hash code of the key
+     * @param row the row, between 0 and {@link #DEPTH} - 1
+     * @return the index of the counter
+     */
+    private int indexOf(int hashCode, int row) {
+      long h = (hashCode + (row + 1) * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+      h ^= h >>> 31;
+      return (int) h & mask;
+    }
+
+    /**
+     * Returns the value of a counter.
+     *
+     * @param index the index of the counter
+     * @return the value of the counter
+     */
+    private int counter(int index) {
+      return (table[index >>> 1] >>> ((index & 1) << 2)) & 0xF;
+    }
+
+    /**
+     * Sets the value of a counter.
+     *
+     * @param index the index of the counter
+     * @param value the new value, between 0 and 15
+     */
+    private void setCounter(int index, int value) {
+      int shift = (index & 1) << 2;
+      table[index >>> 1] = (byte) ((table[index >>> 1] & ~(0xF << shift)) | (value << shift));
+    }
+  }
+
+  /** The segment of the cache that an entry is in. */
+  private enum Segment {
+    /** The window, which all new entries enter. */
+    WINDOW,
+    /** The probation segment of the main space. */
+    PROBATION,
+    /** The protected segment of the main space. */
+    PROTECTED
+  }
+
+  /**
+   * An entry of the cache, which is also a node of one of the doubly-linked segment lists.
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   */
+  private static final class CacheEntry<K, V> {
+
+    /** The key. */
+    final K key;
+
+    /** The value. Written under the cache's lock, and read without it. */
+    volatile V value;
+
+    /** The weight of {@link #value}. Guarded by the cache. */
+    int weight;
+
+    /** True if the entry has been used since its list position was last decided. */
+    volatile boolean referenced;
+
+    /** The segment that contains this entry. Guarded by the cache. */
+    Segment segment = Segment.WINDOW;
+
+    /** The previous entry in the segment list. Guarded by the cache. */
+    @Nullable CacheEntry<K, V> prev;
+
+    /** The next entry in the segment list. Guarded by the cache. */
+    @Nullable CacheEntry<K, V> next;
+
+    /**
+     * Creates an entry.
+     *
+     * @param key the key
+     * @param value the value
+     * @param weight the weight of the value
+     */
+    CacheEntry(K key, V value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * A doubly-linked list of the entries of one segment, with their total weight.
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   */
+  private static final class EntryList<K, V> {
+
+    /** The segment whose entries this list holds. */
+    final Segment segment;
+
+    /** The first entry, or null if the list is empty. */
+    @Nullable CacheEntry<K, V> head;
+
+    /** The last entry, or null if the list is empty. */
+    @Nullable CacheEntry<K, V> tail;
+
+    /** The total weight of the entries. */
+    long weight;
+
+    /**
+     * Creates an empty list.
+     *
+     * @param segment the segment whose entries the list holds
+     */
+    EntryList(Segment segment) {
+      this.segment = segment;
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @param entry an entry that is in no list
+     */
+    void addLast(CacheEntry<K, V> entry) {
+      entry.segment = segment;
+      entry.prev = tail;
+      entry.next = null;
+      if (tail == null) {
+        head = entry;
+      } else {
+        tail.next = entry;
+      }
+      tail = entry;
+      weight += entry.weight;
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param entry an entry of this list
+     */
+    void remove(CacheEntry<K, V> entry) {
+      if (entry.prev == null) {
+        head = entry.next;
+      } else {
+        entry.prev.next = entry.next;
+      }
+      if (entry.next == null) {
+        tail = entry.prev;
+      } else {
+        entry.next.prev = entry.prev;
+      }
+      entry.prev = null;
+      entry.next = null;
+      weight -= entry.weight;
+    }
+
+    /** Removes all entries. */
+    void clear() {
+      head = null;
+      tail = null;
+      weight = 0;
+    }
+  }
+}
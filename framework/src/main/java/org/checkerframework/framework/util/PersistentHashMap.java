@@ -0,0 +1,1034 @@
+package org.checkerframework.framework.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A hash map whose copies share structure. The map is a hash array mapped trie (HAMT): {@link
+ * #copy} takes constant time, and a modification after a copy only copies the path from the root
+ * to the modified entry. Two maps that were copied from one another therefore share every subtree
+ * that neither of them has modified since, and {@link #allUnsharedEntriesSatisfy} visits only the
+ * entries outside such shared subtrees.
+ *
+ * <p>Between copies, modifications are performed in place on the nodes that this map created, so
+ * a map that is never copied behaves much like a {@link java.util.HashMap}.
+ *
+ * <p>Iterating over a view of this map iterates over a snapshot: it is permitted to modify the map
+ * (through the map, its views, or the iterator) during the iteration, and the iteration is
+ * unaffected by such modifications.
+ *
+ * <p>This map does not permit null keys. It permits null values.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  /** The number of hash bits consumed by each level of the trie. */
+  private static final int BITS_PER_LEVEL = 5;
+
+  /** A mask for one level's worth of hash bits. */
+  private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+  /** Returned by {@link Node#find} when the key is not present. */
+  private static final Object NOT_FOUND = new Object();
+
+  /** The root of the trie. */
+  private Node root;
+
+  /** The number of entries in this map. */
+  private int size;
+
+  /**
+   * The owner token of this map. A node whose owner is this token was created by this map since its
+   * last copy or iteration, is reachable from no other map or iterator, and may be modified in
+   * place.
+   */
+  private Object owner = new Object();
+
+  /** Creates an empty map. */
+  public PersistentHashMap() {
+    this.root = BitmapNode.EMPTY;
+    this.size = 0;
+  }
+
+  /**
+   * Creates a map with the same entries as the given map. If {@code m} is a {@code
+   * PersistentHashMap}, this takes constant time.
+   *
+   * @param m the map whose entries to copy
+   */
+  public PersistentHashMap(Map<? extends K, ? extends V> m) {
+    this();
+    putAll(m);
+  }
+
+  /**
+   * Creates a map whose trie is the given root.
+   *
+   * @param root the root of the trie
+   * @param size the number of entries in the trie
+   */
+  private PersistentHashMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Returns a copy of this map, in constant time. Modifications to either map do not affect the
+   * other.
+   *
+   * @return a copy of this map
+   */
+  public PersistentHashMap<K, V> copy() {
+    freeze();
+    return new PersistentHashMap<>(root, size);
+  }
+
+  /**
+   * Returns a {@code PersistentHashMap} with the same entries as the given map: a constant-time copy
+   * if {@code m} is a {@code PersistentHashMap}, and a new map otherwise.
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   * @param m a map
+   * @return a {@code PersistentHashMap} with the same entries as {@code m}
+   */
+  public static <K, V> PersistentHashMap<K, V> copyOf(Map<K, V> m) {
+    if (m instanceof PersistentHashMap) {
+      return ((PersistentHashMap<K, V>) m).copy();
+    }
+    return new PersistentHashMap<>(m);
+  }
+
+  /**
+   * Makes every node currently reachable from this map immutable, so that subsequent modifications
+   * of this map copy them instead of modifying them in place.
+   */
+  private void freeze() {
+    owner = new Object();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // the trie only contains values of type V
+  public @Nullable V get(@Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    Object result = root.find(key, hash(key), 0);
+    return result == NOT_FOUND ? null : (V) result;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return key != null && root.find(key, hash(key), 0) != NOT_FOUND;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // the trie only contains values of type V
+  public @Nullable V put(K key, V value) {
+    Objects.requireNonNull(key, "PersistentHashMap does not permit null keys");
+    Change change = new Change();
+    root = root.put(owner, key, hash(key), value, 0, change);
+    if (change.sizeDelta != 0) {
+      size++;
+    }
+    return (V) change.oldValue;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // the trie only contains values of type V
+  public @Nullable V remove(@Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    Change change = new Change();
+    root = root.remove(owner, key, hash(key), 0, change);
+    if (change.sizeDelta != 0) {
+      size--;
+    }
+    return (V) change.oldValue;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>If this map is empty and {@code m} is a {@code PersistentHashMap}, this takes constant time.
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    if (isEmpty() && m instanceof PersistentHashMap) {
+      PersistentHashMap<?, ?> other = (PersistentHashMap<?, ?>) m;
+      other.freeze();
+      freeze();
+      root = other.root;
+      size = other.size;
+      return;
+    }
+    super.putAll(m);
+  }
+
+  @Override
+  public void clear() {
+    root = BitmapNode.EMPTY;
+    size = 0;
+  }
+
+  /**
+   * Returns true if {@code predicate} holds for every entry of this map that {@code other} might
+   * not also contain. Entries in subtrees that this map shares with {@code other} are not visited,
+   * nor are entries whose key and value are the identical objects in {@code other}. Some entries
+   * that {@code other} also contains may be visited.
+   *
+   * <p>Stops at the first entry for which {@code predicate} returns false. The predicate may modify
+   * this map and {@code other}; it is always applied to the entries as of the start of the call.
+   *
+   * @param other another map, typically one that shares structure with this map
+   * @param predicate the predicate to test on each visited entry
+   * @return true if {@code predicate} holds for every visited entry
+   */
+  public boolean allUnsharedEntriesSatisfy(
+      PersistentHashMap<K, V> other, BiPredicate<? super K, ? super V> predicate) {
+    freeze();
+    other.freeze();
+    @SuppressWarnings("unchecked") // the trie only contains keys of type K and values of type V
+    BiPredicate<Object, @Nullable Object> p = (BiPredicate<Object, @Nullable Object>) predicate;
+    return root.allUnsharedSatisfy(other.root, 0, p);
+  }
+
+  /** The entry set of this map. */
+  private @Nullable Set<Map.Entry<K, V>> entrySet;
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  /** The entry set of a {@code PersistentHashMap}. */
+  private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+    /** Creates the entry set. */
+    private EntrySet() {}
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+      Object key = e.getKey();
+      if (key == null) {
+        return false;
+      }
+      Object value = root.find(key, hash(key), 0);
+      return value != NOT_FOUND && Objects.equals(value, e.getValue());
+    }
+
+    @Override
+    public boolean remove(@Nullable Object o) {
+      if (contains(o)) {
+        PersistentHashMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void clear() {
+      PersistentHashMap.this.clear();
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+      freeze();
+      return new EntryIterator(root);
+    }
+  }
+
+  /** An iterator over a snapshot of the entries of this map. */
+  private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+    /** The nodes on the path to the next entry; the top of the stack is at {@code depth - 1}. */
+    private final Node[] nodeStack = new Node[10];
+
+    /** For each node in {@link #nodeStack}, the index of the next entry or child to visit. */
+    private final int[] indexStack = new int[10];
+
+    /** The number of nodes on the stack. */
+    private int depth;
+
+    /** The key of the next entry, if {@link #hasNext} is true. */
+    private @Nullable Object nextKey;
+
+    /** The value of the next entry, if {@link #hasNext} is true. */
+    private @Nullable Object nextValue;
+
+    /** True if there is a next entry. */
+    private boolean hasNext;
+
+    /** The key of the entry most recently returned by {@link #next}, or null. */
+    private @Nullable Object lastKey;
+
+    /**
+     * Creates an iterator over the trie rooted at the given node.
+     *
+     * @param root the root of the trie; must not be modified in place during the iteration
+     */
+    EntryIterator(Node root) {
+      nodeStack[0] = root;
+      indexStack[0] = 0;
+      depth = 1;
+      advance();
+    }
+
+    /** Sets {@link #nextKey} and {@link #nextValue} to the next entry, if any. */
+    private void advance() {
+      while (depth > 0) {
+        Node node = nodeStack[depth - 1];
+        int index = indexStack[depth - 1];
+        if (index < node.entryCount()) {
+          indexStack[depth - 1] = index + 1;
+          nextKey = node.keyAt(index);
+          nextValue = node.valueAt(index);
+          hasNext = true;
+          return;
+        }
+        int childIndex = index - node.entryCount();
+        if (childIndex < node.childCount()) {
+          indexStack[depth - 1] = index + 1;
+          nodeStack[depth] = node.childAt(childIndex);
+          indexStack[depth] = 0;
+          depth++;
+        } else {
+          depth--;
+        }
+      }
+      hasNext = false;
+      nextKey = null;
+      nextValue = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // the trie only contains keys of type K and values of type V
+    public Map.Entry<K, V> next() {
+      if (!hasNext) {
+        throw new NoSuchElementException();
+      }
+      K key = (K) nextKey;
+      V value = (V) nextValue;
+      lastKey = key;
+      advance();
+      return new MapEntry(key, value);
+    }
+
+    @Override
+    public void remove() {
+      if (lastKey == null) {
+        throw new IllegalStateException();
+      }
+      PersistentHashMap.this.remove(lastKey);
+      lastKey = null;
+    }
+  }
+
+  /** A map entry whose {@link #setValue} writes through to the map. */
+  private final class MapEntry implements Map.Entry<K, V> {
+
+    /** The key. */
+    private final K key;
+
+    /** The value. */
+    private V value;
+
+    /**
+     * Creates an entry.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    MapEntry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      PersistentHashMap.this.put(key, value);
+      V oldValue = this.value;
+      this.value = value;
+      return oldValue;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+      return key.equals(e.getKey()) && Objects.equals(value, e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() ^ Objects.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + value;
+    }
+  }
+
+  /**
+   * Returns the hash of the given key, with the high bits spread into the low bits that the first
+   * levels of the trie use.
+   *
+   * @param key a key
+   * @return the hash of {@code key}
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the index, within a node at the given shift, of the given hash.
+   *
+   * @param hash a hash
+   * @param shift the number of hash bits consumed by the levels above the node
+   * @return the index of {@code hash} in a node at {@code shift}
+   */
+  private static int fragment(int hash, int shift) {
+    return (hash >>> shift) & LEVEL_MASK;
+  }
+
+  /** The size change and previous value resulting from a modification of the trie. */
+  private static final class Change {
+    /** The number of entries added (positive) or removed (negative). */
+    int sizeDelta;
+
+    /** The value previously associated with the key, or null. */
+    @Nullable Object oldValue;
+
+    /** Creates a Change that records no change. */
+    Change() {}
+  }
+
+  /** A node of the trie. Nodes are immutable unless their owner is the modifying map's token. */
+  private abstract static class Node {
+
+    /** The token of the map that may modify this node in place, or null if it is immutable. */
+    final @Nullable Object owner;
+
+    /**
+     * Creates a node.
+     *
+     * @param owner the token of the map that may modify this node in place
+     */
+    Node(@Nullable Object owner) {
+      this.owner = owner;
+    }
+
+    /**
+     * Returns the value associated with the key, or {@link #NOT_FOUND}.
+     *
+     * @param key the key
+     * @param hash the hash of the key
+     * @param shift the number of hash bits consumed by the levels above this node
+     * @return the value associated with the key, or {@link #NOT_FOUND}
+     */
+    abstract @Nullable Object find(Object key, int hash, int shift);
+
+    /**
+     * Associates the value with the key in the subtrie rooted at this node.
+     *
+     * @param owner the token of the modifying map
+     * @param key the key
+     * @param hash the hash of the key
+     * @param value the value
+     * @param shift the number of hash bits consumed by the levels above this node
+     * @param change records the effect of the modification
+     * @return the new root of the subtrie
+     */
+    abstract Node put(
+        Object owner, Object key, int hash, @Nullable Object value, int shift, Change change);
+
+    /**
+     * Removes the key from the subtrie rooted at this node.
+     *
+     * @param owner the token of the modifying map
+     * @param key the key
+     * @param hash the hash of the key
+     * @param shift the number of hash bits consumed by the levels above this node
+     * @param change records the effect of the modification
+     * @return the new root of the subtrie
+     */
+    abstract Node remove(Object owner, Object key, int hash, int shift, Change change);
+
+    /**
+     * Returns the number of entries stored directly in this node.
+     *
+     * @return the number of entries stored directly in this node
+     */
+    abstract int entryCount();
+
+    /**
+     * Returns the number of child nodes of this node.
+     *
+     * @return the number of child nodes of this node
+     */
+    abstract int childCount();
+
+    /**
+     * Returns the key of the given entry stored directly in this node.
+     *
+     * @param index the index of the entry
+     * @return the key of the entry
+     */
+    abstract Object keyAt(int index);
+
+    /**
+     * Returns the value of the given entry stored directly in this node.
+     *
+     * @param index the index of the entry
+     * @return the value of the entry
+     */
+    abstract @Nullable Object valueAt(int index);
+
+    /**
+     * Returns the given child of this node.
+     *
+     * @param index the index of the child
+     * @return the child
+     */
+    abstract Node childAt(int index);
+
+    /**
+     * Returns true if the predicate holds for every entry in the subtrie rooted at this node.
+     *
+     * @param predicate the predicate
+     * @return true if the predicate holds for every entry in this subtrie
+     */
+    final boolean allSatisfy(BiPredicate<Object, @Nullable Object> predicate) {
+      for (int i = 0; i < entryCount(); i++) {
+        if (!predicate.test(keyAt(i), valueAt(i))) {
+          return false;
+        }
+      }
+      for (int i = 0; i < childCount(); i++) {
+        if (!childAt(i).allSatisfy(predicate)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns true if the predicate holds for every entry in the subtrie rooted at this node that
+     * is not shared with the subtrie {@code other} at the same position of another trie.
+     *
+     * @param other the node at the same position in the other trie, or null
+     * @param shift the number of hash bits consumed by the levels above this node
+     * @param predicate the predicate
+     * @return true if the predicate holds for every visited entry
+     */
+    abstract boolean allUnsharedSatisfy(
+        @Nullable Node other, int shift, BiPredicate<Object, @Nullable Object> predicate);
+  }
+
+  /**
+   * An inner node of the trie. Entries and children are indexed by a fragment of their hash; {@link
+   * #entryMap} and {@link #childMap} record which fragments are present. The array holds the keys
+   * and values of the entries, alternately, followed by the children.
+   */
+  private static final class BitmapNode extends Node {
+
+    /** The empty node. */
+    static final BitmapNode EMPTY = new BitmapNode(null, 0, 0, new Object[0]);
+
+    /** The hash fragments of the entries stored directly in this node. */
+    int entryMap;
+
+    /** The hash fragments of the children of this node. */
+    int childMap;
+
+    /** The keys and values of the entries, followed by the children. */
+    @Nullable Object[] array;
+
+    /**
+     * Creates a node.
+     *
+     * @param owner the token of the map that may modify this node in place
+     * @param entryMap the hash fragments of the entries
+     * @param childMap the hash fragments of the children
+     * @param array the keys and values of the entries, followed by the children
+     */
+    BitmapNode(@Nullable Object owner, int entryMap, int childMap, @Nullable Object[] array) {
+      super(owner);
+      this.entryMap = entryMap;
+      this.childMap = childMap;
+      this.array = array;
+    }
+
+    /**
+     * Returns the position, among the entries, of the entry with the given bit.
+     *
+     * @param bit a bit of {@link #entryMap}
+     * @return the index of the entry
+     */
+    int entryIndex(int bit) {
+      return Integer.bitCount(entryMap & (bit - 1));
+    }
+
+    /**
+     * Returns the position, in {@link #array}, of the child with the given bit.
+     *
+     * @param bit a bit of {@link #childMap}
+     * @return the position of the child in the array
+     */
+    int childPosition(int bit) {
+      return 2 * Integer.bitCount(entryMap) + Integer.bitCount(childMap & (bit - 1));
+    }
+
+    /**
+     * Returns this node if the given map may modify it in place, and otherwise a copy of this node
+     * that the given map may modify in place.
+     *
+     * @param owner the token of the modifying map
+     * @return a node with the same content as this that {@code owner} may modify
+     */
+    BitmapNode editable(Object owner) {
+      if (this.owner == owner) {
+        return this;
+      }
+      return new BitmapNode(owner, entryMap, childMap, array.clone());
+    }
+
+    @Override
+    @Nullable Object find(Object key, int hash, int shift) {
+      int bit = 1 << fragment(hash, shift);
+      if ((entryMap & bit) != 0) {
+        int index = entryIndex(bit);
+        return key.equals(array[2 * index]) ? array[2 * index + 1] : NOT_FOUND;
+      }
+      if ((childMap & bit) != 0) {
+        return ((Node) array[childPosition(bit)]).find(key, hash, shift + BITS_PER_LEVEL);
+      }
+      return NOT_FOUND;
+    }
+
+    @Override
+    Node put(
+        Object owner, Object key, int hash, @Nullable Object value, int shift, Change change) {
+      int bit = 1 << fragment(hash, shift);
+      if ((entryMap & bit) != 0) {
+        int index = entryIndex(bit);
+        Object existingKey = array[2 * index];
+        @Nullable Object existingValue = array[2 * index + 1];
+        if (key.equals(existingKey)) {
+          change.oldValue = existingValue;
+          if (existingValue == value) {
+            return this;
+          }
+          BitmapNode result = editable(owner);
+          result.array[2 * index + 1] = value;
+          return result;
+        }
+        // Replace the entry by a child that holds both entries.
+        Node child =
+            makeNode(
+                owner,
+                existingKey,
+                hash(existingKey),
+                existingValue,
+                key,
+                hash,
+                value,
+                shift + BITS_PER_LEVEL);
+        change.sizeDelta = 1;
+        return replaceEntryByChild(owner, bit, index, child);
+      }
+      if ((childMap & bit) != 0) {
+        int position = childPosition(bit);
+        Node child = (Node) array[position];
+        Node newChild = child.put(owner, key, hash, value, shift + BITS_PER_LEVEL, change);
+        if (newChild == child) {
+          return this;
+        }
+        BitmapNode result = editable(owner);
+        result.array[position] = newChild;
+        return result;
+      }
+      change.sizeDelta = 1;
+      int index = entryIndex(bit);
+      @Nullable Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, 2 * index);
+      newArray[2 * index] = key;
+      newArray[2 * index + 1] = value;
+      System.arraycopy(array, 2 * index, newArray, 2 * index + 2, array.length - 2 * index);
+      return new BitmapNode(owner, entryMap | bit, childMap, newArray);
+    }
+
+    /**
+     * Returns a node like this one, but with the given entry replaced by the given child.
+     *
+     * @param owner the token of the modifying map
+     * @param bit the hash fragment bit of the entry and of the child
+     * @param index the index of the entry
+     * @param child the child
+     * @return a node like this one, but with the entry replaced by the child
+     */
+    private BitmapNode replaceEntryByChild(Object owner, int bit, int index, Node child) {
+      int newEntryMap = entryMap ^ bit;
+      int newChildMap = childMap | bit;
+      @Nullable Object[] newArray = new Object[array.length - 1];
+      // Entries before the removed one.
+      System.arraycopy(array, 0, newArray, 0, 2 * index);
+      // Entries after the removed one, and children before the new one.
+      int newChildPosition =
+          2 * Integer.bitCount(newEntryMap) + Integer.bitCount(childMap & (bit - 1));
+      System.arraycopy(array, 2 * index + 2, newArray, 2 * index, newChildPosition - 2 * index);
+      newArray[newChildPosition] = child;
+      // Children after the new one.
+      System.arraycopy(
+          array,
+          newChildPosition + 2,
+          newArray,
+          newChildPosition + 1,
+          newArray.length - newChildPosition - 1);
+      return new BitmapNode(owner, newEntryMap, newChildMap, newArray);
+    }
+
+    @Override
+    Node remove(Object owner, Object key, int hash, int shift, Change change) {
+      int bit = 1 << fragment(hash, shift);
+      if ((entryMap & bit) != 0) {
+        int index = entryIndex(bit);
+        if (!key.equals(array[2 * index])) {
+          return this;
+        }
+        change.oldValue = array[2 * index + 1];
+        change.sizeDelta = -1;
+        @Nullable Object[] newArray = new Object[array.length - 2];
+        System.arraycopy(array, 0, newArray, 0, 2 * index);
+        System.arraycopy(array, 2 * index + 2, newArray, 2 * index, newArray.length - 2 * index);
+        return new BitmapNode(owner, entryMap ^ bit, childMap, newArray);
+      }
+      if ((childMap & bit) != 0) {
+        int position = childPosition(bit);
+        Node child = (Node) array[position];
+        Node newChild = child.remove(owner, key, hash, shift + BITS_PER_LEVEL, change);
+        if (newChild == child) {
+          return this;
+        }
+        if (newChild.childCount() == 0 && newChild.entryCount() <= 1) {
+          if (newChild.entryCount() == 0) {
+            return removeChild(owner, bit, position);
+          }
+          return replaceChildByEntry(owner, bit, position, newChild.keyAt(0), newChild.valueAt(0));
+        }
+        BitmapNode result = editable(owner);
+        result.array[position] = newChild;
+        return result;
+      }
+      return this;
+    }
+
+    /**
+     * Returns a node like this one, but without the given child.
+     *
+     * @param owner the token of the modifying map
+     * @param bit the hash fragment bit of the child
+     * @param position the position of the child in the array
+     * @return a node like this one, but without the child
+     */
+    private BitmapNode removeChild(Object owner, int bit, int position) {
+      @Nullable Object[] newArray = new Object[array.length - 1];
+      System.arraycopy(array, 0, newArray, 0, position);
+      System.arraycopy(array, position + 1, newArray, position, newArray.length - position);
+      return new BitmapNode(owner, entryMap, childMap ^ bit, newArray);
+    }
+
+    /**
+     * Returns a node like this one, but with the given child replaced by the given entry.
+     *
+     * @param owner the token of the modifying map
+     * @param bit the hash fragment bit of the child and of the entry
+     * @param position the position of the child in the array
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @return a node like this one, but with the child replaced by the entry
+     */
+    private BitmapNode replaceChildByEntry(
+        Object owner, int bit, int position, Object key, @Nullable Object value) {
+      int index = entryIndex(bit);
+      @Nullable Object[] newArray = new Object[array.length + 1];
+      // Entries before the new one.
+      System.arraycopy(array, 0, newArray, 0, 2 * index);
+      newArray[2 * index] = key;
+      newArray[2 * index + 1] = value;
+      // Entries after the new one, and children before the removed one.
+      System.arraycopy(array, 2 * index, newArray, 2 * index + 2, position - 2 * index);
+      // Children after the removed one.
+      System.arraycopy(array, position + 1, newArray, position + 2, array.length - position - 1);
+      return new BitmapNode(owner, entryMap | bit, childMap ^ bit, newArray);
+    }
+
+    @Override
+    int entryCount() {
+      return Integer.bitCount(entryMap);
+    }
+
+    @Override
+    int childCount() {
+      return Integer.bitCount(childMap);
+    }
+
+    @Override
+    Object keyAt(int index) {
+      return array[2 * index];
+    }
+
+    @Override
+    @Nullable Object valueAt(int index) {
+      return array[2 * index + 1];
+    }
+
+    @Override
+    Node childAt(int index) {
+      return (Node) array[2 * entryCount() + index];
+    }
+
+    @Override
+    boolean allUnsharedSatisfy(
+        @Nullable Node other, int shift, BiPredicate<Object, @Nullable Object> predicate) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof BitmapNode)) {
+        return allSatisfy(predicate);
+      }
+      BitmapNode otherNode = (BitmapNode) other;
+      for (int bits = entryMap; bits != 0; bits &= bits - 1) {
+        int bit = Integer.lowestOneBit(bits);
+        int index = entryIndex(bit);
+        Object key = array[2 * index];
+        @Nullable Object value = array[2 * index + 1];
+        if ((otherNode.entryMap & bit) != 0) {
+          int otherIndex = otherNode.entryIndex(bit);
+          if (otherNode.array[2 * otherIndex] == key
+              && otherNode.array[2 * otherIndex + 1] == value) {
+            continue;
+          }
+        }
+        if (!predicate.test(key, value)) {
+          return false;
+        }
+      }
+      for (int bits = childMap; bits != 0; bits &= bits - 1) {
+        int bit = Integer.lowestOneBit(bits);
+        Node child = (Node) array[childPosition(bit)];
+        Node otherChild =
+            (otherNode.childMap & bit) != 0
+                ? (Node) otherNode.array[otherNode.childPosition(bit)]
+                : null;
+        if (!child.allUnsharedSatisfy(otherChild, shift + BITS_PER_LEVEL, predicate)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Returns a node that holds the two given entries, whose keys are distinct.
+   *
+   * @param owner the token of the modifying map
+   * @param key1 the first key
+   * @param hash1 the hash of the first key
+   * @param value1 the first value
+   * @param key2 the second key
+   * @param hash2 the hash of the second key
+   * @param value2 the second value
+   * @param shift the number of hash bits consumed by the levels above the new node
+   * @return a node that holds the two entries
+   */
+  private static Node makeNode(
+      Object owner,
+      Object key1,
+      int hash1,
+      @Nullable Object value1,
+      Object key2,
+      int hash2,
+      @Nullable Object value2,
+      int shift) {
+    if (shift >= Integer.SIZE) {
+      // All hash bits are consumed, so the hashes are equal.
+      return new CollisionNode(owner, hash1, new Object[] {key1, value1, key2, value2});
+    }
+    int fragment1 = fragment(hash1, shift);
+    int fragment2 = fragment(hash2, shift);
+    if (fragment1 == fragment2) {
+      Node child =
+          makeNode(owner, key1, hash1, value1, key2, hash2, value2, shift + BITS_PER_LEVEL);
+      return new BitmapNode(owner, 0, 1 << fragment1, new Object[] {child});
+    }
+    int entryMap = (1 << fragment1) | (1 << fragment2);
+    if (fragment1 < fragment2) {
+      return new BitmapNode(owner, entryMap, 0, new Object[] {key1, value1, key2, value2});
+    } else {
+      return new BitmapNode(owner, entryMap, 0, new Object[] {key2, value2, key1, value1});
+    }
+  }
+
+  /** A leaf of the trie that holds entries whose keys have identical hashes. */
+  private static final class CollisionNode extends Node {
+
+    /** The hash of every key in this node. */
+    final int hash;
+
+    /** The keys and values of the entries, alternately. */
+    @Nullable Object[] array;
+
+    /**
+     * Creates a collision node.
+     *
+     * @param owner the token of the map that may modify this node in place
+     * @param hash the hash of every key in this node
+     * @param array the keys and values of the entries, alternately
+     */
+    CollisionNode(@Nullable Object owner, int hash, @Nullable Object[] array) {
+      super(owner);
+      this.hash = hash;
+      this.array = array;
+    }
+
+    /**
+     * Returns the index of the entry with the given key, or -1.
+     *
+     * @param key a key
+     * @return the index of the entry with the given key, or -1
+     */
+    int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i / 2;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    @Nullable Object find(Object key, int hash, int shift) {
+      int index = indexOf(key);
+      return index < 0 ? NOT_FOUND : array[2 * index + 1];
+    }
+
+    @Override
+    Node put(
+        Object owner, Object key, int hash, @Nullable Object value, int shift, Change change) {
+      int index = indexOf(key);
+      if (index >= 0) {
+        change.oldValue = array[2 * index + 1];
+        if (array[2 * index + 1] == value) {
+          return this;
+        }
+        CollisionNode result =
+            this.owner == owner ? this : new CollisionNode(owner, hash, array.clone());
+        result.array[2 * index + 1] = value;
+        return result;
+      }
+      change.sizeDelta = 1;
+      @Nullable Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      return new CollisionNode(owner, hash, newArray);
+    }
+
+    @Override
+    Node remove(Object owner, Object key, int hash, int shift, Change change) {
+      int index = indexOf(key);
+      if (index < 0) {
+        return this;
+      }
+      change.oldValue = array[2 * index + 1];
+      change.sizeDelta = -1;
+      @Nullable Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, 2 * index);
+      System.arraycopy(array, 2 * index + 2, newArray, 2 * index, newArray.length - 2 * index);
+      return new CollisionNode(owner, hash, newArray);
+    }
+
+    @Override
+    int entryCount() {
+      return array.length / 2;
+    }
+
+    @Override
+    int childCount() {
+      return 0;
+    }
+
+    @Override
+    Object keyAt(int index) {
+      return array[2 * index];
+    }
+
+    @Override
+    @Nullable Object valueAt(int index) {
+      return array[2 * index + 1];
+    }
+
+    @Override
+    Node childAt(int index) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    boolean allUnsharedSatisfy(
+        @Nullable Node other, int shift, BiPredicate<Object, @Nullable Object> predicate) {
+      return this == other || allSatisfy(predicate);
+    }
+  }
+}
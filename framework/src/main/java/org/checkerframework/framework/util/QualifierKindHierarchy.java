@@ -10,6 +10,7 @@ import org.checkerframework.framework.qual.AnnotatedFor;
 import org.checkerframework.framework.type.ElementQualifierHierarchy;
 import org.checkerframework.framework.type.MostlyNoElementQualifierHierarchy;
 import org.checkerframework.framework.type.NoElementQualifierHierarchy;
+import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.TypeSystemError;
 
 /**
@@ -88,6 +89,17 @@ public interface QualifierKindHierarchy {
    */
   QualifierKind getQualifierKind(@CanonicalName String name);
 
+  /**
+   * Returns the {@link QualifierKind} for the given annotation. Throws an exception if one does
+   * not exist.
+   *
+   * @param anno an annotation that is a qualifier in this hierarchy
+   * @return the {@link QualifierKind} for the given annotation
+   */
+  default QualifierKind getQualifierKind(AnnotationMirror anno) {
+    return getQualifierKind(AnnotationUtils.annotationName(anno));
+  }
+
   /**
    * Returns the canonical name of {@code clazz}. Throws a {@link TypeSystemError} if {@code clazz}
    * is anonymous or otherwise does not have a name.
@@ -11,6 +11,8 @@ import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
@@ -28,6 +30,7 @@ import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.TreePathUtil;
 import org.checkerframework.javacutil.TreeUtils;
+import org.plumelib.util.IPair;
 
 /**
  * This interface is both a functional interface, see {@link #toJavaExpression(String)}, and also a
@@ -39,6 +42,11 @@ import org.checkerframework.javacutil.TreeUtils;
  *
  * <p>To parse a string "at a location" means to parse it as if it were written in an annotation
  * that is written on that location.
+ *
+ * <p>Parsing at a declaration ({@link #atTypeDecl}, {@link #atFieldDecl}, and {@link
+ * #atMethodDecl}) is cached for the current compilation unit, because the same annotation on a
+ * method or field is parsed at every use of that method or field. The other methods parse at the
+ * declaration and then viewpoint-adapt the cached result, so they do not re-parse either.
  */
 @FunctionalInterface
 public interface StringToJavaExpression {
@@ -72,16 +80,25 @@ public interface StringToJavaExpression {
   static JavaExpression atTypeDecl(
       String expression, TypeElement typeElement, SourceChecker checker)
       throws JavaExpressionParseException {
+    Map<IPair<String, Element>, JavaExpression> cache = checker.getDeclarationExpressionCache();
+    IPair<String, Element> key = IPair.of(expression, typeElement);
+    JavaExpression cached = cache.get(key);
+    if (cached != null) {
+      return cached;
+    }
     ThisReference thisReference = new ThisReference(typeElement.asType());
     List<FormalParameter> parameters = null;
-    return JavaExpressionParseUtil.parse(
-        expression,
-        typeElement.asType(),
-        thisReference,
-        parameters,
-        null,
-        checker.getPathToCompilationUnit(),
-        checker.getProcessingEnvironment());
+    JavaExpression result =
+        JavaExpressionParseUtil.parse(
+            expression,
+            typeElement.asType(),
+            thisReference,
+            parameters,
+            null,
+            checker.getPathToCompilationUnit(),
+            checker.getProcessingEnvironment());
+    cache.put(key, result);
+    return result;
   }
 
   /**
@@ -98,6 +115,12 @@ public interface StringToJavaExpression {
   static JavaExpression atFieldDecl(
       String expression, VariableElement fieldElement, SourceChecker checker)
       throws JavaExpressionParseException {
+    Map<IPair<String, Element>, JavaExpression> cache = checker.getDeclarationExpressionCache();
+    IPair<String, Element> key = IPair.of(expression, fieldElement);
+    JavaExpression cached = cache.get(key);
+    if (cached != null) {
+      return cached;
+    }
     TypeMirror enclosingType = ElementUtils.enclosingTypeElement(fieldElement).asType();
     ThisReference thisReference;
     if (ElementUtils.isStatic(fieldElement)) {
@@ -107,14 +130,17 @@ public interface StringToJavaExpression {
       thisReference = new ThisReference(enclosingType);
     }
     List<FormalParameter> parameters = null;
-    return JavaExpressionParseUtil.parse(
-        expression,
-        enclosingType,
-        thisReference,
-        parameters,
-        null,
-        checker.getPathToCompilationUnit(),
-        checker.getProcessingEnvironment());
+    JavaExpression result =
+        JavaExpressionParseUtil.parse(
+            expression,
+            enclosingType,
+            thisReference,
+            parameters,
+            null,
+            checker.getPathToCompilationUnit(),
+            checker.getProcessingEnvironment());
+    cache.put(key, result);
+    return result;
   }
 
   /**
@@ -134,6 +160,12 @@ public interface StringToJavaExpression {
   static JavaExpression atMethodDecl(
       String expression, ExecutableElement method, SourceChecker checker)
       throws JavaExpressionParseException {
+    Map<IPair<String, Element>, JavaExpression> cache = checker.getDeclarationExpressionCache();
+    IPair<String, Element> key = IPair.of(expression, method);
+    JavaExpression cached = cache.get(key);
+    if (cached != null) {
+      return cached;
+    }
     TypeMirror enclosingType = ElementUtils.enclosingTypeElement(method).asType();
     ThisReference thisReference;
     if (ElementUtils.isStatic(method)) {
@@ -143,14 +175,17 @@ public interface StringToJavaExpression {
       thisReference = new ThisReference(enclosingType);
     }
     List<FormalParameter> parameters = JavaExpression.getFormalParameters(method);
-    return JavaExpressionParseUtil.parse(
-        expression,
-        enclosingType,
-        thisReference,
-        parameters,
-        null,
-        checker.getPathToCompilationUnit(),
-        checker.getProcessingEnvironment());
+    JavaExpression result =
+        JavaExpressionParseUtil.parse(
+            expression,
+            enclosingType,
+            thisReference,
+            parameters,
+            null,
+            checker.getPathToCompilationUnit(),
+            checker.getProcessingEnvironment());
+    cache.put(key, result);
+    return result;
   }
 
   /**
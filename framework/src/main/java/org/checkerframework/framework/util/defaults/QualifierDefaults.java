@@ -11,6 +11,8 @@ import com.sun.source.tree.Tree;
 import com.sun.source.tree.TypeParameterTree;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
@@ -116,6 +118,27 @@ public class QualifierDefaults {
   /** A mapping of Element &rarr; Whether or not that element is AnnotatedFor this type system. */
   private final IdentityHashMap<Element, Boolean> elementAnnotatedFors = new IdentityHashMap<>();
 
+  /**
+   * The defaults plan of each scope: the defaults that {@link #applyDefaultsElement} applies to a
+   * type in the scope, in order. See {@link #getDefaultsPlan}.
+   */
+  private final IdentityHashMap<@Nullable Element, List<Default>> defaultsPlans =
+      new IdentityHashMap<>();
+
+  /**
+   * The defaults plans of scopes whose conservative defaults do not apply, keyed by the result of
+   * {@link #defaultsAt} for the scope. Scopes with the same defaults share a plan.
+   */
+  private final IdentityHashMap<DefaultSet, List<Default>> checkedDefaultsPlans =
+      new IdentityHashMap<>();
+
+  /**
+   * The defaults plans of scopes whose conservative defaults apply, keyed by the result of {@link
+   * #defaultsAt} for the scope. Scopes with the same defaults share a plan.
+   */
+  private final IdentityHashMap<DefaultSet, List<Default>> uncheckedDefaultsPlans =
+      new IdentityHashMap<>();
+
   /** CLIMB locations whose standard default is top for a given type system. */
   public static final List<TypeUseLocation> STANDARD_CLIMB_DEFAULTS_TOP =
       List.of(
@@ -274,6 +297,7 @@ public class QualifierDefaults {
       AnnotationMirror absoluteDefaultAnno, TypeUseLocation location) {
     checkDuplicates(checkedCodeDefaults, absoluteDefaultAnno, location);
     checkedCodeDefaults.add(new Default(absoluteDefaultAnno, location));
+    clearDefaultsPlans();
   }
 
   /**
@@ -288,6 +312,7 @@ public class QualifierDefaults {
     checkIsValidUncheckedCodeLocation(uncheckedDefaultAnno, location);
 
     uncheckedCodeDefaults.add(new Default(uncheckedDefaultAnno, location));
+    clearDefaultsPlans();
   }
 
   /** Sets the default annotation for unchecked elements, with specific locations. */
@@ -322,6 +347,14 @@ public class QualifierDefaults {
     }
     prevset.add(new Default(elementDefaultAnno, location));
     elementDefaults.put(elem, prevset);
+    clearDefaultsPlans();
+  }
+
+  /** Discards the defaults plans, because the defaults that they were computed from changed. */
+  private void clearDefaultsPlans() {
+    defaultsPlans.clear();
+    checkedDefaultsPlans.clear();
+    uncheckedDefaultsPlans.clear();
   }
 
   /**
@@ -747,23 +780,60 @@ public class QualifierDefaults {
    * @checker_framework.manual #annotating-libraries Annotating libraries
    */
   private void applyDefaultsElement(Element annotationScope, AnnotatedTypeMirror type) {
-    DefaultSet defaults = defaultsAt(annotationScope);
+    List<Default> plan = getDefaultsPlan(annotationScope);
     DefaultApplierElement applier =
         createDefaultApplierElement(atypeFactory, annotationScope, type, applyToTypeVar);
 
-    for (Default def : defaults) {
+    for (Default def : plan) {
       applier.applyDefault(def);
     }
+  }
+
+  /**
+   * Returns the defaults plan of a scope: the defaults that apply to a type in the scope, in the
+   * order in which they are applied. These are the defaults of the scope and its enclosing
+   * elements, followed by the conservative defaults if they apply to the scope, followed by the
+   * defaults for checked code.
+   *
+   * <p>The plan is computed when the scope is first seen, so applying defaults does not walk the
+   * enclosing elements of the scope or read their annotations again.
+   *
+   * @param annotationScope the element representing the nearest enclosing default annotation scope
+   * @return the defaults plan of {@code annotationScope}
+   */
+  private List<Default> getDefaultsPlan(@Nullable Element annotationScope) {
+    List<Default> plan = defaultsPlans.get(annotationScope);
+    if (plan != null) {
+      return plan;
+    }
 
-    if (applyConservativeDefaults(annotationScope)) {
-      for (Default def : uncheckedCodeDefaults) {
-        applier.applyDefault(def);
+    DefaultSet defaults = defaultsAt(annotationScope);
+    boolean applyConservativeDefaults = applyConservativeDefaults(annotationScope);
+    IdentityHashMap<DefaultSet, List<Default>> plans =
+        applyConservativeDefaults ? uncheckedDefaultsPlans : checkedDefaultsPlans;
+    plan = plans.get(defaults);
+    if (plan == null) {
+      List<Default> newPlan =
+          new ArrayList<>(
+              defaults.size()
+                  + (applyConservativeDefaults ? uncheckedCodeDefaults.size() : 0)
+                  + checkedCodeDefaults.size());
+      newPlan.addAll(defaults);
+      if (applyConservativeDefaults) {
+        newPlan.addAll(uncheckedCodeDefaults);
       }
+      newPlan.addAll(checkedCodeDefaults);
+      plan = Collections.unmodifiableList(newPlan);
     }
 
-    for (Default def : checkedCodeDefaults) {
-      applier.applyDefault(def);
+    // While annotation files are being parsed, the annotations of a scope might not be complete.
+    if (atypeFactory.shouldCache
+        && !atypeFactory.stubTypes.isParsing()
+        && !atypeFactory.ajavaTypes.isParsing()) {
+      plans.put(defaults, plan);
+      defaultsPlans.put(annotationScope, plan);
     }
+    return plan;
   }
 
   protected DefaultApplierElement createDefaultApplierElement(
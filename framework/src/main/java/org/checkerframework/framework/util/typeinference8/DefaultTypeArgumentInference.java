@@ -23,6 +23,7 @@ import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
 import org.checkerframework.framework.util.typeinference8.types.ContainsInferenceVariable;
 import org.checkerframework.framework.util.typeinference8.types.Variable;
+import org.checkerframework.framework.util.typeinference8.util.Java8InferenceContext;
 import org.checkerframework.framework.util.typeinference8.util.Theta;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.TreePathUtil;
@@ -34,6 +35,24 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
   /** Stack of all inference problems currently being solved. */
   private final ArrayDeque<InvocationTypeInference> java8InferenceStack = new ArrayDeque<>();
 
+  /** The number of inference problems solved so far. */
+  private long inferences = 0;
+
+  /** The number of calls to {@code BoundSet.incorporateToFixedPoint} so far. */
+  private long incorporations = 0;
+
+  /** The number of incorporation rounds so far. */
+  private long incorporationRounds = 0;
+
+  /** The largest number of rounds of one call to {@code BoundSet.incorporateToFixedPoint}. */
+  private int maxIncorporationRounds = 0;
+
+  /** The number of times that an incorporation round incorporated a variable. */
+  private long variablesIncorporated = 0;
+
+  /** The number of times that an incorporation round skipped a variable that had not changed. */
+  private long variablesSkipped = 0;
+
   /** Creates a DefaultTypeArgumentInference. */
   public DefaultTypeArgumentInference() {}
 
@@ -147,11 +166,74 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
       throw BugInCF.addLocation(outerTree, ex);
     } finally {
       if (pushedToInferenceStack) {
-        java8InferenceStack.pop();
+        recordStatistics(java8InferenceStack.pop().context);
       }
     }
   }
 
+  /**
+   * Adds the incorporation work done by an inference problem to the totals.
+   *
+   * @param context the context of an inference problem that has been solved
+   */
+  private void recordStatistics(Java8InferenceContext context) {
+    inferences++;
+    incorporations += context.getIncorporations();
+    incorporationRounds += context.getIncorporationRounds();
+    maxIncorporationRounds = Math.max(maxIncorporationRounds, context.getMaxIncorporationRounds());
+    variablesIncorporated += context.getVariablesIncorporated();
+    variablesSkipped += context.getVariablesSkipped();
+  }
+
+  /**
+   * Returns counts of the incorporation work done so far, for {@code -AresourceStats}.
+   *
+   * @return counts of the incorporation work done so far
+   */
+  public IncorporationStatistics getIncorporationStatistics() {
+    return new IncorporationStatistics(
+        inferences,
+        incorporations,
+        incorporationRounds,
+        maxIncorporationRounds,
+        variablesIncorporated,
+        variablesSkipped);
+  }
+
+  /**
+   * Counts of the incorporation work done by type argument inference.
+   *
+   * @param inferences the number of inference problems
+   * @param incorporations the number of calls to {@code BoundSet.incorporateToFixedPoint}
+   * @param rounds the number of incorporation rounds
+   * @param maxRounds the largest number of rounds of one call to {@code
+   *     BoundSet.incorporateToFixedPoint}
+   * @param variablesIncorporated the number of times that a round incorporated a variable
+   * @param variablesSkipped the number of times that a round skipped a variable that had not
+   *     changed
+   */
+  public record IncorporationStatistics(
+      long inferences,
+      long incorporations,
+      long rounds,
+      int maxRounds,
+      long variablesIncorporated,
+      long variablesSkipped) {
+
+    /**
+     * Returns a one-line summary of the counts.
+     *
+     * @return a one-line summary of the counts
+     */
+    @Override
+    public String toString() {
+      return String.format(
+          "%d inferences, %d incorporations, %d rounds (at most %d), %d variables incorporated,"
+              + " %d skipped",
+          inferences, incorporations, rounds, maxRounds, variablesIncorporated, variablesSkipped);
+    }
+  }
+
   @Override
   public boolean isAnyInferenceInProgress() {
     return !java8InferenceStack.isEmpty();
@@ -2,13 +2,16 @@ package org.checkerframework.framework.util.typeinference8.bound;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.checkerframework.framework.util.typeinference8.constraint.ReductionResult;
 import org.checkerframework.framework.util.typeinference8.types.CaptureVariable;
 import org.checkerframework.framework.util.typeinference8.types.Dependencies;
 import org.checkerframework.framework.util.typeinference8.types.Variable;
+import org.checkerframework.framework.util.typeinference8.types.VariableBounds;
 import org.checkerframework.framework.util.typeinference8.util.Java8InferenceContext;
 import org.checkerframework.framework.util.typeinference8.util.Resolution;
 import org.checkerframework.framework.util.typeinference8.util.Theta;
@@ -335,6 +338,11 @@ public class BoundSet implements ReductionResult {
    * href="https://docs.oracle.com/javase/specs/jls/se25/html/jls-18.html#jls-18.3">JLS 18.3</a>
    * defines this fixed point and further explains incorporation.
    *
+   * <p>Each round incorporates only the variables that might have changed since the previous round:
+   * a variable is skipped if it was already incorporated by this call, its bounds have not changed
+   * since, it has no pending constraints, and no variable mentioned in its bounds has been
+   * instantiated since. Incorporating such a variable would do nothing.
+   *
    * @param newBounds bounds to incorporate
    * @throws BugInCF if incorporation does not reach a fixed point within {@link
    *     #MAX_INCORPORATION_STEPS} steps
@@ -345,41 +353,98 @@ public class BoundSet implements ReductionResult {
       return;
     }
     merge(newBounds);
+    // The modification count of the bounds of each variable when it was last incorporated.
+    Map<Variable, Integer> incorporatedCounts = new HashMap<>();
+    // The uninstantiated variables that the bounds of each variable mentioned when it was last
+    // incorporated.
+    Map<Variable, List<Variable>> mentionedVariables = new HashMap<>();
     int count = 0;
-    do {
-      count++;
-      boolean boundsChangeInst = captures.addAll(newBounds.captures);
-      // Iterate over a copy of `variables`, because the call to `merge` below may add to
-      // `variables`.  Any variable added this way is processed by the next iteration of the
-      // enclosing do-while loop, which runs because `boundsChangeInst` is set to true whenever
-      // `merge` is called.
-      for (Variable alpha : new ArrayList<>(variables)) {
-        boundsChangeInst |= alpha.getBounds().applyInstantiationsToBounds();
-
-        while (!alpha.getBounds().constraints.isEmpty()) {
-          boundsChangeInst = true;
-          merge(alpha.getBounds().constraints.reduceOneStep(context));
-          alpha.getBounds().applyInstantiationsToBounds();
+    int incorporated = 0;
+    int skipped = 0;
+    try {
+      do {
+        count++;
+        boolean boundsChangeInst = captures.addAll(newBounds.captures);
+        // Iterate over a copy of `variables`, because the call to `merge` below may add to
+        // `variables`.  Any variable added this way is processed by the next iteration of the
+        // enclosing do-while loop, which runs because `boundsChangeInst` is set to true whenever
+        // `merge` is called.
+        for (Variable alpha : new ArrayList<>(variables)) {
+          VariableBounds alphaBounds = alpha.getBounds();
+          if (isIncorporated(alpha, incorporatedCounts, mentionedVariables)) {
+            skipped++;
+            continue;
+          }
+          incorporated++;
+          boundsChangeInst |= alphaBounds.applyInstantiationsToBounds();
+
+          while (!alphaBounds.constraints.isEmpty()) {
+            boundsChangeInst = true;
+            merge(alphaBounds.constraints.reduceOneStep(context));
+            alphaBounds.applyInstantiationsToBounds();
+          }
+
+          incorporatedCounts.put(alpha, alphaBounds.getModificationCount());
+          List<Variable> mentioned = new ArrayList<>();
+          for (Variable beta : alphaBounds.getVariablesMentionedInBounds()) {
+            if (!beta.getBounds().hasInstantiation()) {
+              mentioned.add(beta);
+            }
+          }
+          mentionedVariables.put(alpha, mentioned);
+        }
+        if (newBounds.isUncheckedConversion()) {
+          this.setUncheckedConversion(true);
         }
-      }
-      if (newBounds.isUncheckedConversion()) {
-        this.setUncheckedConversion(true);
-      }
 
-      if (!boundsChangeInst) {
-        return;
-      }
+        if (!boundsChangeInst) {
+          return;
+        }
+
+        containsFalse |= newBounds.containsFalse;
+        if (!containsFalse && count >= MAX_INCORPORATION_STEPS) {
+          // Throw rather than assert, so that this is reported as a
+          // "type.argument.inference.crashed" error for this one expression, rather than as an
+          // AssertionError that aborts the entire compilation.
+          throw new BugInCF(
+              "Max incorporation steps (%d) reached without reaching a fixed point: %s",
+              MAX_INCORPORATION_STEPS, context.getPathToExpression().getLeaf());
+        }
+      } while (!containsFalse);
+    } finally {
+      context.recordIncorporation(count, incorporated, skipped);
+    }
+  }
 
-      containsFalse |= newBounds.containsFalse;
-      if (!containsFalse && count >= MAX_INCORPORATION_STEPS) {
-        // Throw rather than assert, so that this is reported as a
-        // "type.argument.inference.crashed" error for this one expression, rather than as an
-        // AssertionError that aborts the entire compilation.
-        throw new BugInCF(
-            "Max incorporation steps (%d) reached without reaching a fixed point: %s",
-            MAX_INCORPORATION_STEPS, context.getPathToExpression().getLeaf());
+  /**
+   * Returns true if incorporating {@code alpha} again would do nothing: {@code alpha} has already
+   * been incorporated, and since then its bounds have not changed, it has not gained constraints,
+   * and no variable mentioned in its bounds has been instantiated.
+   *
+   * @param alpha a variable
+   * @param incorporatedCounts the modification count of the bounds of each variable when it was
+   *     last incorporated
+   * @param mentionedVariables the uninstantiated variables that the bounds of each variable
+   *     mentioned when it was last incorporated
+   * @return true if incorporating {@code alpha} again would do nothing
+   */
+  private static boolean isIncorporated(
+      Variable alpha,
+      Map<Variable, Integer> incorporatedCounts,
+      Map<Variable, List<Variable>> mentionedVariables) {
+    Integer incorporatedCount = incorporatedCounts.get(alpha);
+    VariableBounds alphaBounds = alpha.getBounds();
+    if (incorporatedCount == null
+        || incorporatedCount.intValue() != alphaBounds.getModificationCount()
+        || !alphaBounds.constraints.isEmpty()) {
+      return false;
+    }
+    for (Variable beta : mentionedVariables.get(alpha)) {
+      if (beta.getBounds().hasInstantiation()) {
+        return false;
       }
-    } while (!containsFalse);
+    }
+    return true;
   }
 
   /**
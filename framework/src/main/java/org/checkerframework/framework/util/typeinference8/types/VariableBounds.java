@@ -64,6 +64,12 @@ public class VariableBounds {
   /** True if this variable has a throws bound. */
   private boolean hasThrowsBound = false;
 
+  /**
+   * The number of times that {@link #bounds} or {@link #qualifierBounds} has changed. Incorporation
+   * uses it to skip variables whose bounds have not changed since they were last incorporated.
+   */
+  private int modificationCount = 0;
+
   /**
    * Bounds saved by {@link #save}, for use in the event that the first attempt at resolution fails;
    * null if {@link #save} has not been called.
@@ -120,6 +126,7 @@ public class VariableBounds {
     EnumMap<BoundKind, LinkedHashSet<AbstractQualifier>> savedQualifierBounds =
         this.savedQualifierBounds;
     assert savedBounds != null && savedQualifierBounds != null : "restore() called before save()";
+    modificationCount++;
     instantiation = null;
     bounds.clear();
     bounds.put(BoundKind.EQUAL, new LinkedHashSet<>(savedBounds.get(BoundKind.EQUAL)));
@@ -202,6 +209,7 @@ public class VariableBounds {
       setInstantiation(boxedType);
     }
     if (bounds.get(kind).add(boundType)) {
+      modificationCount++;
       addConstraintsFromComplementaryBounds(parent, kind, boundType);
       if (!boundType.ignoreAnnotations) {
         Set<AbstractQualifier> aQuals = boundType.getQualifiers();
@@ -221,7 +229,20 @@ public class VariableBounds {
   public void addQualifierBound(BoundKind kind, Set<? extends AbstractQualifier> qualifiers) {
     addConstraintsFromComplementaryQualifierBounds(kind, qualifiers);
     addConstraintsFromComplementaryBounds(kind, qualifiers);
-    qualifierBounds.get(kind).addAll(qualifiers);
+    addToQualifierBounds(kind, qualifiers);
+  }
+
+  /**
+   * Adds {@code qualifiers} to the qualifier bounds of the given kind, without adding the
+   * constraints that they imply.
+   *
+   * @param kind the kind of bound
+   * @param qualifiers the qualifiers
+   */
+  private void addToQualifierBounds(BoundKind kind, Set<? extends AbstractQualifier> qualifiers) {
+    if (qualifierBounds.get(kind).addAll(qualifiers)) {
+      modificationCount++;
+    }
   }
 
   /**
@@ -417,7 +438,7 @@ public class VariableBounds {
     for (AbstractType t : bounds.get(BoundKind.EQUAL)) {
       if (t.isUseOfVariable()) {
         VariableBounds otherBounds = ((UseOfVariable) t).getVariable().getBounds();
-        otherBounds.qualifierBounds.get(kind).addAll(s);
+        otherBounds.addToQualifierBounds(kind, s);
       }
     }
 
@@ -425,7 +446,7 @@ public class VariableBounds {
       for (AbstractType t : bounds.get(BoundKind.LOWER)) {
         if (t.isUseOfVariable()) {
           VariableBounds otherBounds = ((UseOfVariable) t).getVariable().getBounds();
-          otherBounds.qualifierBounds.get(BoundKind.UPPER).addAll(s);
+          otherBounds.addToQualifierBounds(BoundKind.UPPER, s);
         }
       }
     }
@@ -434,7 +455,7 @@ public class VariableBounds {
       for (AbstractType t : bounds.get(BoundKind.UPPER)) {
         if (t.isUseOfVariable()) {
           VariableBounds otherBounds = ((UseOfVariable) t).getVariable().getBounds();
-          otherBounds.qualifierBounds.get(BoundKind.LOWER).addAll(s);
+          otherBounds.addToQualifierBounds(BoundKind.LOWER, s);
         }
       }
     }
@@ -562,12 +583,26 @@ public class VariableBounds {
     }
     constraints.applyInstantiations();
 
-    if (changed && instantiation == null) {
-      setInstantiationFromEqualBounds();
+    if (changed) {
+      modificationCount++;
+      if (instantiation == null) {
+        setInstantiationFromEqualBounds();
+      }
     }
     return changed;
   }
 
+  /**
+   * Returns the number of times that the bounds or qualifier bounds of this variable have changed.
+   * The number only grows, so two calls that return the same number bracket a period in which
+   * neither kind of bound changed.
+   *
+   * @return the number of times that the bounds or qualifier bounds of this variable have changed
+   */
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
   /**
    * Returns all variables mentioned in a bound against this variable.
    *
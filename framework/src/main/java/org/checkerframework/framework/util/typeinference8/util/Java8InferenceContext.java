@@ -19,6 +19,7 @@ import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.util.typeinference8.InvocationTypeInference;
+import org.checkerframework.framework.util.typeinference8.bound.BoundSet;
 import org.checkerframework.framework.util.typeinference8.types.InferenceFactory;
 import org.checkerframework.framework.util.typeinference8.types.ProperType;
 import org.checkerframework.javacutil.TreePathUtil;
@@ -70,6 +71,21 @@ public class Java8InferenceContext {
   /** Number of qualifier variables in this inference problem. */
   private int qualifierVarCount = 1;
 
+  /** Number of calls to {@link BoundSet#incorporateToFixedPoint} in this inference problem. */
+  private int incorporations = 0;
+
+  /** Number of incorporation rounds in this inference problem. */
+  private int incorporationRounds = 0;
+
+  /** The largest number of rounds of one call to {@link BoundSet#incorporateToFixedPoint}. */
+  private int maxIncorporationRounds = 0;
+
+  /** Number of times that an incorporation round incorporated a variable. */
+  private long variablesIncorporated = 0;
+
+  /** Number of times that an incorporation round skipped a variable that had not changed. */
+  private long variablesSkipped = 0;
+
   /** TypeMirror for java.lang.Error. */
   public final TypeMirror error;
 
@@ -171,6 +187,69 @@ public class Java8InferenceContext {
     return qualifierVarCount++;
   }
 
+  /**
+   * Records the work done by one call to {@link BoundSet#incorporateToFixedPoint}.
+   *
+   * @param rounds the number of incorporation rounds
+   * @param incorporated the number of times that a round incorporated a variable
+   * @param skipped the number of times that a round skipped a variable that had not changed
+   */
+  public void recordIncorporation(int rounds, int incorporated, int skipped) {
+    incorporations++;
+    incorporationRounds += rounds;
+    maxIncorporationRounds = Math.max(maxIncorporationRounds, rounds);
+    variablesIncorporated += incorporated;
+    variablesSkipped += skipped;
+  }
+
+  /**
+   * Returns the number of calls to {@link BoundSet#incorporateToFixedPoint} in this inference
+   * problem.
+   *
+   * @return the number of calls to {@link BoundSet#incorporateToFixedPoint}
+   */
+  public int getIncorporations() {
+    return incorporations;
+  }
+
+  /**
+   * Returns the number of incorporation rounds in this inference problem.
+   *
+   * @return the number of incorporation rounds
+   */
+  public int getIncorporationRounds() {
+    return incorporationRounds;
+  }
+
+  /**
+   * Returns the largest number of rounds of one call to {@link BoundSet#incorporateToFixedPoint} in
+   * this inference problem.
+   *
+   * @return the largest number of rounds of one call to {@link BoundSet#incorporateToFixedPoint}
+   */
+  public int getMaxIncorporationRounds() {
+    return maxIncorporationRounds;
+  }
+
+  /**
+   * Returns the number of times that an incorporation round incorporated a variable.
+   *
+   * @return the number of times that an incorporation round incorporated a variable
+   */
+  public long getVariablesIncorporated() {
+    return variablesIncorporated;
+  }
+
+  /**
+   * Returns the number of times that an incorporation round skipped a variable that had not
+   * changed.
+   *
+   * @return the number of times that an incorporation round skipped a variable
+   */
+  public long getVariablesSkipped() {
+    return variablesSkipped;
+  }
+
   /**
    * Adds the parameters to the list of trees that are lambda parameters.
    *
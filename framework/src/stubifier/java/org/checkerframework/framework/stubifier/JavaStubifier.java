@@ -6,13 +6,21 @@ import com.github.javaparser.ast.AccessSpecifier;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.PackageDeclaration;
 import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
 import com.github.javaparser.ast.body.EnumDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.InitializerDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.expr.NormalAnnotationExpr;
 import com.github.javaparser.ast.nodeTypes.modifiers.NodeWithAccessModifiers;
 import com.github.javaparser.ast.stmt.BlockStmt;
@@ -23,9 +31,17 @@ import com.github.javaparser.utils.ProjectRoot;
 import com.github.javaparser.utils.SourceRoot;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Rewrites Java source files into minimal stub files.
@@ -40,10 +56,35 @@ import java.util.Optional;
  *   <li>all initializer blocks,
  *   <li>attributes to the {@code Deprecated} annotation (to be Java 8 compatible).
  * </ol>
+ *
+ * <p>It also writes an index, {@code index.txt}, to each directory that it processes. The index
+ * lists the remaining files, relative to the directory and in sorted order, except for {@code
+ * module-info.java} files and {@code package-info.java} files without annotations. After the name
+ * of each file and a tab, the index lists the declarations in the file that contain annotations,
+ * separated by spaces:
+ *
+ * <ul>
+ *   <li>{@code Outer.Inner} for a type declaration whose annotations, type parameters, or
+ *       supertypes contain annotations,
+ *   <li>{@code Outer.Inner#name} for a field, enum constant, or method, and {@code
+ *       Outer.Inner#<init>} for a constructor, that contains annotations, and
+ *   <li>{@code Outer.Inner#*} for a record that contains annotations anywhere, because annotations
+ *       on its components apply to several members.
+ * </ul>
+ *
+ * <p>The Checker Framework reads the index of the annotated JDK instead of listing the files at
+ * startup, and it only parses a file when it looks up a declaration that the index lists. The
+ * other declarations have the same types with or without the file.
  */
 public class JavaStubifier {
   public static final LanguageLevel DEFAULT_LANGUAGE_LEVEL = LanguageLevel.JAVA_21;
 
+  /** The name of the index file. Must match {@code AnnotationFileElementTypes}. */
+  private static final String INDEX_NAME = "index.txt";
+
+  /** The first line of the index file. Must match {@code AnnotationFileElementTypes}. */
+  private static final String INDEX_HEADER = "# Checker Framework annotated JDK index, format 2";
+
   /**
    * Processes each provided command-line argument; see class documentation for details.
    *
@@ -66,7 +107,7 @@ public class JavaStubifier {
    */
   private static void process(String dir) {
     Path root = dirnameToPath(dir);
-    MinimizerCallback mc = new MinimizerCallback();
+    MinimizerCallback mc = new MinimizerCallback(root);
     CollectionStrategy strategy = new ParserCollectionStrategy();
     // Required to include directories that contain a module-info.java, which don't parse by
     // default.
@@ -80,9 +121,23 @@ public class JavaStubifier {
               try {
                 sourceRoot.parse("", mc);
               } catch (IOException e) {
-                System.err.println("IOException: " + e);
+                System.err.printf("Cannot process %s: %s%n", sourceRoot.getRoot(), e);
+                System.exit(1);
               }
             });
+
+    List<String> lines = new ArrayList<>(mc.indexEntries.size() + 1);
+    lines.add(INDEX_HEADER);
+    mc.indexEntries.forEach(
+        (file, declarations) ->
+            lines.add(
+                declarations.isEmpty() ? file : file + "\t" + String.join(" ", declarations)));
+    try {
+      Files.write(root.resolve(INDEX_NAME), lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      System.err.printf("Cannot write %s: %s%n", root.resolve(INDEX_NAME), e);
+      System.exit(1);
+    }
   }
 
   /**
@@ -116,9 +171,23 @@ public class JavaStubifier {
     /** The visitor instance. */
     private final MinimizerVisitor mv;
 
-    /** Create a MinimizerCallback instance. */
-    public MinimizerCallback() {
+    /** The directory being processed. */
+    private final Path root;
+
+    /**
+     * Maps the files to list in the index, relative to {@link #root} and with '/' as the separator,
+     * to the declarations in them that contain annotations.
+     */
+    final SortedMap<String, SortedSet<String>> indexEntries = new TreeMap<>();
+
+    /**
+     * Create a MinimizerCallback instance.
+     *
+     * @param root the directory being processed
+     */
+    public MinimizerCallback(Path root) {
       this.mv = new MinimizerVisitor();
+      this.root = root;
     }
 
     @Override
@@ -141,8 +210,116 @@ public class JavaStubifier {
           res = Result.DONT_SAVE;
         }
       }
+      if (res == Result.SAVE && shouldIndex(absolutePath, opt)) {
+        indexEntries.put(
+            root.relativize(absolutePath).toString().replace(File.separatorChar, '/'),
+            opt.isPresent() ? annotatedDeclarations(opt.get()) : new TreeSet<>());
+      }
       return res;
     }
+
+    /**
+     * Returns the declarations in the given compilation unit that contain annotations, in the
+     * format of the index; see the class documentation.
+     *
+     * @param cu a minimized compilation unit
+     * @return the declarations in {@code cu} that contain annotations
+     */
+    private static SortedSet<String> annotatedDeclarations(CompilationUnit cu) {
+      SortedSet<String> result = new TreeSet<>();
+      for (TypeDeclaration<?> td : cu.findAll(TypeDeclaration.class)) {
+        String typeName = indexName(td);
+        if (typeName == null) {
+          // A local or anonymous class; the Checker Framework parses the file for those.
+          continue;
+        }
+        if (td instanceof RecordDeclaration) {
+          if (td.findFirst(AnnotationExpr.class).isPresent()) {
+            result.add(typeName);
+            result.add(typeName + "#*");
+          }
+          continue;
+        }
+        for (Node child : td.getChildNodes()) {
+          if (!(child instanceof BodyDeclaration) && hasAnnotation(child)) {
+            result.add(typeName);
+            break;
+          }
+        }
+        if (td instanceof EnumDeclaration) {
+          for (EnumConstantDeclaration ecd : ((EnumDeclaration) td).getEntries()) {
+            if (hasAnnotation(ecd)) {
+              result.add(typeName + "#" + ecd.getNameAsString());
+            }
+          }
+        }
+        for (BodyDeclaration<?> member : td.getMembers()) {
+          if (member instanceof TypeDeclaration || !hasAnnotation(member)) {
+            continue;
+          }
+          if (member instanceof FieldDeclaration) {
+            for (VariableDeclarator v : ((FieldDeclaration) member).getVariables()) {
+              result.add(typeName + "#" + v.getNameAsString());
+            }
+          } else if (member instanceof MethodDeclaration) {
+            result.add(typeName + "#" + ((MethodDeclaration) member).getNameAsString());
+          } else if (member instanceof ConstructorDeclaration) {
+            result.add(typeName + "#<init>");
+          } else if (member instanceof AnnotationMemberDeclaration) {
+            result.add(typeName + "#" + ((AnnotationMemberDeclaration) member).getNameAsString());
+          }
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the name of a type declaration in the index: the simple names of the type and of its
+     * enclosing types, separated by dots.
+     *
+     * @param td a type declaration
+     * @return the name of {@code td} in the index, or null if it is a local or anonymous class
+     */
+    private static String indexName(TypeDeclaration<?> td) {
+      Node parent = td.getParentNode().orElse(null);
+      if (parent instanceof CompilationUnit) {
+        return td.getNameAsString();
+      } else if (parent instanceof TypeDeclaration) {
+        String enclosing = indexName((TypeDeclaration<?>) parent);
+        return enclosing == null ? null : enclosing + "." + td.getNameAsString();
+      } else {
+        return null;
+      }
+    }
+
+    /**
+     * Returns true if the given node is or contains an annotation.
+     *
+     * @param node a node
+     * @return true if {@code node} is or contains an annotation
+     */
+    private static boolean hasAnnotation(Node node) {
+      return node instanceof AnnotationExpr || node.findFirst(AnnotationExpr.class).isPresent();
+    }
+
+    /**
+     * Returns true if the given file should be listed in the index. A {@code package-info.java}
+     * file is only listed if its package declaration has annotations.
+     *
+     * @param absolutePath the file
+     * @param cu the parsed file, or empty if it could not be parsed
+     * @return true if the file should be listed in the index
+     */
+    private boolean shouldIndex(Path absolutePath, Optional<CompilationUnit> cu) {
+      if (absolutePath.endsWith("module-info.java")) {
+        return false;
+      }
+      if (absolutePath.endsWith("package-info.java") && cu.isPresent()) {
+        Optional<PackageDeclaration> pd = cu.get().getPackageDeclaration();
+        return pd.isPresent() && !pd.get().getAnnotations().isEmpty();
+      }
+      return true;
+    }
   }
 
   /** Visitor to process one compilation unit; see class documentation for details. */
@@ -0,0 +1,53 @@
+package org.checkerframework.framework.test.junit;
+
+import java.util.Arrays;
+import org.checkerframework.framework.stub.AnnotationFileUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link AnnotationFileUtil#getTopLevelClassNames}. */
+public class AnnotationFileUtilTest {
+
+  /** Creates a new AnnotationFileUtilTest. */
+  public AnnotationFileUtilTest() {}
+
+  /** Finds every kind of top-level class, but not nested classes. */
+  @Test
+  public void findsTopLevelClasses() {
+    String stub =
+        String.join(
+            "\n",
+            "package a.b;",
+            "import x.Y;",
+            "@AnnotatedFor(\"nullness\")",
+            "public class C<T extends D<T>> { void m(@X(\"}\") int x); class Inner {} }",
+            "interface I {}",
+            "@interface A {}",
+            "record R(int x) {}",
+            "enum E { A, B }");
+    Assert.assertEquals(
+        Arrays.asList("a.b.C", "a.b.I", "a.b.A", "a.b.R", "a.b.E"),
+        AnnotationFileUtil.getTopLevelClassNames(stub));
+  }
+
+  /** Ignores comments and literals, and handles several package declarations. */
+  @Test
+  public void ignoresCommentsAndLiterals() {
+    String stub =
+        String.join(
+            "\n",
+            "/* class Z {} */ // class Y {}",
+            "class C { String s = \"{\"; char c = '}'; Class<?> k = Foo.class; }",
+            "package q;",
+            "import a.record.B;",
+            "class D {}");
+    Assert.assertEquals(Arrays.asList("C", "q.D"), AnnotationFileUtil.getTopLevelClassNames(stub));
+  }
+
+  /** Returns null for annotated packages and for unbalanced braces. */
+  @Test
+  public void returnsNullIfNotScannable() {
+    Assert.assertNull(AnnotationFileUtil.getTopLevelClassNames("@A package p;\nclass C {}"));
+    Assert.assertNull(AnnotationFileUtil.getTopLevelClassNames("package p;\nclass C {"));
+  }
+}
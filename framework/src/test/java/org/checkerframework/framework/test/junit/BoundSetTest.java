@@ -1,15 +1,23 @@
 package org.checkerframework.framework.test.junit;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Set;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVariable;
 import org.checkerframework.framework.util.typeinference8.bound.BoundSet;
 import org.checkerframework.framework.util.typeinference8.constraint.Constraint;
 import org.checkerframework.framework.util.typeinference8.constraint.ReductionResult;
+import org.checkerframework.framework.util.typeinference8.types.AbstractQualifier;
+import org.checkerframework.framework.util.typeinference8.types.QualifierVar;
+import org.checkerframework.framework.util.typeinference8.types.UseOfVariable;
 import org.checkerframework.framework.util.typeinference8.types.Variable;
+import org.checkerframework.framework.util.typeinference8.types.VariableBounds;
+import org.checkerframework.framework.util.typeinference8.types.VariableBounds.BoundKind;
 import org.checkerframework.framework.util.typeinference8.util.Java8InferenceContext;
 import org.checkerframework.framework.util.typeinference8.util.Theta;
 import org.junit.Assert;
@@ -85,6 +93,41 @@ public class BoundSetTest {
     Assert.assertTrue(gamma.getBounds().constraints.isEmpty());
   }
 
+  /**
+   * Tests that adding a qualifier bound changes the modification count of the variable, and of
+   * every variable that the qualifier bound is copied to.
+   *
+   * <p>{@link BoundSet#incorporateToFixedPoint} skips a variable whose modification count has not
+   * changed since it was last incorporated. A qualifier bound that did not change the count could
+   * leave a variable's new qualifier bounds unincorporated.
+   */
+  @Test
+  public void qualifierBoundChangesModificationCount() throws ReflectiveOperationException {
+    Java8InferenceContext context = uninitializedContext();
+    Variable alpha = new TestVariable(context, 1);
+    Variable beta = new TestVariable(context, 2);
+    VariableBounds alphaBounds = alpha.getBounds();
+    VariableBounds betaBounds = beta.getBounds();
+    // alpha = beta, so a qualifier bound on alpha is copied to beta.
+    alphaBounds.bounds.get(BoundKind.EQUAL).add(useOf(beta));
+    Set<AbstractQualifier> qualifiers = Collections.singleton(uninitialized(QualifierVar.class));
+
+    int alphaCount = alphaBounds.getModificationCount();
+    int betaCount = betaBounds.getModificationCount();
+    alphaBounds.addQualifierBound(BoundKind.LOWER, qualifiers);
+    Assert.assertEquals(qualifiers, alphaBounds.qualifierBounds.get(BoundKind.LOWER));
+    Assert.assertEquals(qualifiers, betaBounds.qualifierBounds.get(BoundKind.LOWER));
+    Assert.assertNotEquals(alphaCount, alphaBounds.getModificationCount());
+    Assert.assertNotEquals(betaCount, betaBounds.getModificationCount());
+
+    // Adding a qualifier bound that is already present changes nothing.
+    alphaCount = alphaBounds.getModificationCount();
+    betaCount = betaBounds.getModificationCount();
+    alphaBounds.addQualifierBound(BoundKind.LOWER, qualifiers);
+    Assert.assertEquals(alphaCount, alphaBounds.getModificationCount());
+    Assert.assertEquals(betaCount, betaBounds.getModificationCount());
+  }
+
   /** A variable that can be created without a running compilation. */
   private static class TestVariable extends Variable {
 
@@ -161,6 +204,22 @@ public class BoundSetTest {
     };
   }
 
+  /**
+   * Returns a use of {@code variable} on which no constructor has run, except that its variable is
+   * set. Creating a real use requires a running compilation.
+   *
+   * @param variable the variable that the result is a use of
+   * @return a use of {@code variable} whose other fields are all null or false
+   * @throws ReflectiveOperationException if the variable cannot be set
+   */
+  private static UseOfVariable useOf(Variable variable) throws ReflectiveOperationException {
+    UseOfVariable use = uninitialized(UseOfVariable.class);
+    Field field = UseOfVariable.class.getDeclaredField("variable");
+    field.setAccessible(true);
+    field.set(use, variable);
+    return use;
+  }
+
   /**
    * Returns a {@link Java8InferenceContext} on which no constructor has run, so all its fields are
    * null. Creating a real context requires a running compilation, which is far more than this test
@@ -0,0 +1,199 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.util.CheckerDaemon;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests that {@link CheckerDaemon} runs the compilations that clients forward to it. */
+public class CheckerDaemonTest {
+
+  /** A temporary directory for the socket, the sources, and the class files. */
+  private Path dir;
+
+  /** The file that plays the role of checker.jar. */
+  private File checkerJar;
+
+  /** The socket of the daemon, or null if no daemon was started. */
+  private @Nullable ServerSocketChannel server = null;
+
+  /** The thread that runs the daemon, or null if no daemon was started. */
+  private @Nullable Thread daemon = null;
+
+  /** The standard output of the forwarded compilation. */
+  private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+  /** The standard error of the forwarded compilation. */
+  private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+  /**
+   * Creates the temporary directory and the stand-in for checker.jar.
+   *
+   * @throws IOException if they cannot be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("CheckerDaemonTest");
+    checkerJar = Files.writeString(dir.resolve("checker.jar"), "checker").toFile();
+  }
+
+  /**
+   * Stops the daemon and deletes the temporary directory.
+   *
+   * @throws Exception if the daemon cannot be stopped or the directory cannot be deleted
+   */
+  @After
+  public void tearDown() throws Exception {
+    if (server != null) {
+      server.close();
+      daemon.join();
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /**
+   * Starts a daemon on a socket in the temporary directory.
+   *
+   * @param workingDirectory the directory of the compilations that the daemon runs
+   * @return the socket of the daemon
+   * @throws IOException if the daemon cannot listen on the socket
+   */
+  private Path startDaemon(String workingDirectory) throws IOException {
+    Path socket = dir.resolve("daemon.sock");
+    server = CheckerDaemon.bind(socket);
+    CheckerDaemon checkerDaemon = new CheckerDaemon(checkerJar, workingDirectory);
+    daemon = new Thread(() -> checkerDaemon.serve(server));
+    daemon.start();
+    return socket;
+  }
+
+  /**
+   * Writes a source file to the temporary directory and returns the javac command that compiles
+   * it.
+   *
+   * @param className the name of the class
+   * @param source the contents of the source file
+   * @param jvmOption a JVM option of the command, with its {@code -J} prefix
+   * @return the command that {@code CheckerMain} would run to compile the source file
+   * @throws IOException if the source file cannot be written
+   */
+  private List<String> javacCommand(String className, String source, String jvmOption)
+      throws IOException {
+    Path file = Files.writeString(dir.resolve(className + ".java"), source);
+    return Arrays.asList("javac", jvmOption, "-proc:none", "-d", dir.toString(), file.toString());
+  }
+
+  /**
+   * Writes a source file to the temporary directory and returns the javac command that compiles
+   * it, with one of the JVM options that {@code CheckerMain} always passes.
+   *
+   * @param className the name of the class
+   * @param source the contents of the source file
+   * @return the command that {@code CheckerMain} would run to compile the source file
+   * @throws IOException if the source file cannot be written
+   */
+  private List<String> javacCommand(String className, String source) throws IOException {
+    return javacCommand(
+        className, source, "-J--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED");
+  }
+
+  /**
+   * Returns the given output as a string.
+   *
+   * @param output the output of a compilation
+   * @return {@code output} as a string
+   */
+  private static String asString(ByteArrayOutputStream output) {
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /** The daemon compiles a correct class, and reports the exit status and output of javac. */
+  @Test
+  public void forwardsCompilation() throws IOException {
+    Path socket = startDaemon(System.getProperty("user.dir"));
+    List<String> command = javacCommand("Hello", "class Hello {}\n");
+    Integer exitStatus = CheckerDaemon.forward(socket, checkerJar, command, stdout, stderr);
+    Assert.assertEquals(Integer.valueOf(0), exitStatus);
+    Assert.assertEquals("", asString(stdout));
+    Assert.assertEquals("", asString(stderr));
+    Assert.assertTrue(Files.exists(dir.resolve("Hello.class")));
+  }
+
+  /** The daemon reports the errors of a failed compilation, and javac's exit status. */
+  @Test
+  public void forwardsFailedCompilation() throws IOException {
+    Path socket = startDaemon(System.getProperty("user.dir"));
+    List<String> command = javacCommand("Bad", "class Bad { int i = \"\"; }\n");
+    Integer exitStatus = CheckerDaemon.forward(socket, checkerJar, command, stdout, stderr);
+    Assert.assertEquals(Integer.valueOf(1), exitStatus);
+    Assert.assertTrue(asString(stderr), asString(stderr).contains("Bad.java"));
+    Assert.assertTrue(asString(stderr), asString(stderr).contains("incompatible types"));
+  }
+
+  /** A client in another directory runs javac itself. */
+  @Test
+  public void fallsBackInOtherDirectory() throws IOException {
+    Path socket = startDaemon(dir.toString());
+    List<String> command = javacCommand("Hello", "class Hello {}\n");
+    Assert.assertNull(CheckerDaemon.forward(socket, checkerJar, command, stdout, stderr));
+    Assert.assertFalse(Files.exists(dir.resolve("Hello.class")));
+  }
+
+  /** A client that runs on another JDK runs javac itself. */
+  @Test
+  public void fallsBackOnOtherJdk() throws IOException {
+    Path socket = startDaemon(System.getProperty("user.dir"));
+    List<String> command = javacCommand("Hello", "class Hello {}\n");
+    String javaHome = System.getProperty("java.home");
+    System.setProperty("java.home", dir.toString());
+    try {
+      Assert.assertNull(CheckerDaemon.forward(socket, checkerJar, command, stdout, stderr));
+    } finally {
+      System.setProperty("java.home", javaHome);
+    }
+    Assert.assertFalse(Files.exists(dir.resolve("Hello.class")));
+  }
+
+  /** A command with a JVM option that the daemon cannot apply runs javac itself. */
+  @Test
+  public void fallsBackWithJvmOptions() throws IOException {
+    Path socket = startDaemon(System.getProperty("user.dir"));
+    List<String> command = javacCommand("Hello", "class Hello {}\n", "-J-Xmx512m");
+    Assert.assertNull(CheckerDaemon.forward(socket, checkerJar, command, stdout, stderr));
+    Assert.assertFalse(Files.exists(dir.resolve("Hello.class")));
+  }
+
+  /** Only the owner of the socket may connect to it. */
+  @Test
+  public void socketIsPrivate() throws IOException {
+    Path socket = startDaemon(System.getProperty("user.dir"));
+    Assert.assertEquals(
+        PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket));
+  }
+
+  /** No daemon listens on a socket that does not exist. */
+  @Test
+  public void noDaemon() throws IOException {
+    List<String> command = javacCommand("Hello", "class Hello {}\n");
+    Path socket = dir.resolve("no-daemon.sock");
+    Assert.assertNull(CheckerDaemon.forward(socket, checkerJar, command, stdout, stderr));
+  }
+}
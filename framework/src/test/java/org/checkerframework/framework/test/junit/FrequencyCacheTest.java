@@ -0,0 +1,100 @@
+package org.checkerframework.framework.test.junit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.checkerframework.framework.util.FrequencyCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link FrequencyCache}. */
+public class FrequencyCacheTest {
+
+  /** Creates a new FrequencyCacheTest. */
+  public FrequencyCacheTest() {}
+
+  /**
+   * Returns the total weight of the entries of a cache whose values are weighed by their length.
+   *
+   * @param cache a cache
+   * @return the total weight of the entries of {@code cache}
+   */
+  private static long totalWeight(FrequencyCache<Integer, String> cache) {
+    long result = 0;
+    for (String value : cache.values()) {
+      result += value.length();
+    }
+    return result;
+  }
+
+  /** Random operations never exceed the capacity or return a stale value. */
+  @Test
+  public void randomOperations() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 50; trial++) {
+      int capacity = 1 + random.nextInt(100);
+      FrequencyCache<Integer, String> cache =
+          new FrequencyCache<>("test", capacity, String::length);
+      Map<Integer, String> expected = new HashMap<>();
+      for (int op = 0; op < 2000; op++) {
+        int key = (int) Math.abs(random.nextGaussian() * capacity);
+        switch (random.nextInt(3)) {
+          case 0 -> {
+            String value = cache.get(key);
+            if (value != null) {
+              Assert.assertEquals(expected.get(key), value);
+            }
+          }
+          case 1 -> {
+            String value = "x".repeat(random.nextInt(4));
+            cache.put(key, value);
+            expected.put(key, value);
+          }
+          default -> cache.remove(key);
+        }
+        Assert.assertTrue(totalWeight(cache) <= capacity);
+      }
+    }
+  }
+
+  /** Keys that are used often survive a scan of many keys that are used once. */
+  @Test
+  public void frequentKeysSurviveScan() {
+    FrequencyCache<Integer, Integer> cache = new FrequencyCache<>("test", 100);
+    for (int round = 0; round < 10; round++) {
+      for (int key = 0; key < 50; key++) {
+        if (cache.get(key) == null) {
+          cache.put(key, key);
+        }
+      }
+    }
+    for (int key = 1000; key < 20000; key++) {
+      if (cache.get(key) == null) {
+        cache.put(key, key);
+      }
+    }
+    int kept = 0;
+    for (int key = 0; key < 50; key++) {
+      if (cache.containsKey(key)) {
+        kept++;
+      }
+    }
+    Assert.assertTrue("kept " + kept, kept >= 45);
+  }
+
+  /** Null values are cached, and lookups and evictions are counted. */
+  @Test
+  public void nullValuesAndStatistics() {
+    FrequencyCache<String, String> cache = new FrequencyCache<>("test", 1);
+    Assert.assertNull(cache.get("a"));
+    cache.put("a", null);
+    Assert.assertTrue(cache.containsKey("a"));
+    Assert.assertNull(cache.get("a"));
+    cache.put("b", "b");
+    Assert.assertEquals(1, cache.size());
+    FrequencyCache.Statistics statistics = cache.getStatistics();
+    Assert.assertEquals(1, statistics.hits());
+    Assert.assertEquals(1, statistics.misses());
+    Assert.assertEquals(1, statistics.evictions());
+  }
+}
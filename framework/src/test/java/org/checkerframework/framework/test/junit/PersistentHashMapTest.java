@@ -0,0 +1,275 @@
+package org.checkerframework.framework.test.junit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.util.PersistentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link PersistentHashMap}. */
+public class PersistentHashMapTest {
+
+  /** Creates a new PersistentHashMapTest. */
+  public PersistentHashMapTest() {}
+
+  /** A key whose hash code is given, so that tests can choose which keys collide. */
+  private static final class Key {
+    /** The identity of this key. */
+    private final int id;
+
+    /** The hash code of this key. */
+    private final int hash;
+
+    /**
+     * Creates a key.
+     *
+     * @param id the identity of the key
+     * @param hash the hash code of the key
+     */
+    Key(int id, int hash) {
+      this.id = id;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      return o instanceof Key && ((Key) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return id + "#" + Integer.toHexString(hash);
+    }
+  }
+
+  /**
+   * Asserts that a map has exactly the entries of the expected map, through every view.
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   * @param expected the expected entries
+   * @param actual the map to check
+   */
+  private static <K, V> void assertSameEntries(
+      Map<K, V> expected, PersistentHashMap<K, V> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(actual, expected);
+    Assert.assertEquals(expected.hashCode(), actual.hashCode());
+    Assert.assertEquals(expected.entrySet(), actual.entrySet());
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    int iterated = 0;
+    for (Map.Entry<K, V> entry : actual.entrySet()) {
+      Assert.assertTrue(expected.containsKey(entry.getKey()));
+      Assert.assertEquals(expected.get(entry.getKey()), entry.getValue());
+      iterated++;
+    }
+    Assert.assertEquals(expected.size(), iterated);
+    for (Map.Entry<K, V> entry : expected.entrySet()) {
+      Assert.assertTrue(actual.containsKey(entry.getKey()));
+      Assert.assertEquals(entry.getValue(), actual.get(entry.getKey()));
+    }
+  }
+
+  /** Keys with identical hash codes are kept apart, and can be removed one by one. */
+  @Test
+  public void hashCollisions() {
+    PersistentHashMap<Key, String> map = new PersistentHashMap<>();
+    Map<Key, String> expected = new HashMap<>();
+    for (int i = 0; i < 10; i++) {
+      map.put(new Key(i, 42), "v" + i);
+      expected.put(new Key(i, 42), "v" + i);
+    }
+    assertSameEntries(expected, map);
+    Assert.assertNull(map.get(new Key(10, 42)));
+    Assert.assertFalse(map.containsKey(new Key(10, 42)));
+
+    // A key with another hash code that shares the first levels with the colliding keys.
+    Key neighbour = new Key(100, 42 | (1 << 20));
+    map.put(neighbour, "neighbour");
+    expected.put(neighbour, "neighbour");
+    assertSameEntries(expected, map);
+
+    Assert.assertEquals("v3", map.put(new Key(3, 42), "w3"));
+    expected.put(new Key(3, 42), "w3");
+    assertSameEntries(expected, map);
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(expected.remove(new Key(i, 42)), map.remove(new Key(i, 42)));
+      Assert.assertNull(map.remove(new Key(i, 42)));
+      assertSameEntries(expected, map);
+    }
+    Assert.assertEquals("neighbour", map.remove(neighbour));
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  /** Removing colliding keys from a copy leaves the original intact. */
+  @Test
+  public void hashCollisionsAfterCopy() {
+    PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+    for (int i = 0; i < 5; i++) {
+      map.put(new Key(i, -1), i);
+    }
+    PersistentHashMap<Key, Integer> copy = map.copy();
+    for (int i = 0; i < 4; i++) {
+      copy.remove(new Key(i, -1));
+    }
+    copy.put(new Key(10, -1), 10);
+    Assert.assertEquals(5, map.size());
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(Integer.valueOf(i), map.get(new Key(i, -1)));
+    }
+    Assert.assertEquals(2, copy.size());
+    Assert.assertEquals(Integer.valueOf(4), copy.get(new Key(4, -1)));
+    Assert.assertEquals(Integer.valueOf(10), copy.get(new Key(10, -1)));
+  }
+
+  /**
+   * Keys whose hash codes agree on more and more levels split nodes deeper and deeper, and removing
+   * them shrinks the trie back to an empty map.
+   */
+  @Test
+  public void splitAndShrink() {
+    PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+    Map<Key, Integer> expected = new HashMap<>();
+    List<Key> keys = new ArrayList<>();
+    // Hash codes that differ in exactly one bit each, so each pair diverges at a different level.
+    for (int bit = 0; bit < 32; bit++) {
+      keys.add(new Key(bit, 1 << bit));
+    }
+    keys.add(new Key(32, 0));
+    for (int i = 0; i < 2000; i++) {
+      keys.add(new Key(1000 + i, i * 0x9E3779B9));
+    }
+    for (Key key : keys) {
+      Assert.assertNull(map.put(key, key.id));
+      expected.put(key, key.id);
+    }
+    assertSameEntries(expected, map);
+
+    PersistentHashMap<Key, Integer> full = map.copy();
+    for (int i = keys.size() - 1; i >= 0; i--) {
+      Key key = keys.get(i);
+      Assert.assertEquals(Integer.valueOf(key.id), map.remove(key));
+      expected.remove(key);
+      if (i % 100 == 0 || i < 40) {
+        assertSameEntries(expected, map);
+      }
+    }
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertEquals(new HashMap<>(), map);
+    Assert.assertEquals(keys.size(), full.size());
+
+    // The emptied map is still usable.
+    map.put(keys.get(5), 5);
+    Assert.assertEquals(1, map.size());
+    Assert.assertEquals(Integer.valueOf(5), map.get(keys.get(5)));
+  }
+
+  /** Equal maps have equal hash codes, whichever implementation they are. */
+  @Test
+  public void equalsAndHashCode() {
+    PersistentHashMap<String, @Nullable Integer> map = new PersistentHashMap<>();
+    Map<String, @Nullable Integer> expected = new HashMap<>();
+    Assert.assertEquals(expected, map);
+    Assert.assertEquals(expected.hashCode(), map.hashCode());
+    for (int i = 0; i < 100; i++) {
+      map.put("k" + i, i % 7 == 0 ? null : i);
+      expected.put("k" + i, i % 7 == 0 ? null : i);
+    }
+    Assert.assertEquals(expected, map);
+    Assert.assertEquals(map, expected);
+    Assert.assertEquals(expected.hashCode(), map.hashCode());
+    Assert.assertEquals(map, new PersistentHashMap<>(expected));
+    Assert.assertEquals(map.hashCode(), new PersistentHashMap<>(expected).hashCode());
+
+    // A null value is not the same as an absent key.
+    PersistentHashMap<String, @Nullable Integer> copy = map.copy();
+    copy.remove("k0");
+    Assert.assertNotEquals(map, copy);
+    Assert.assertNotEquals(copy, map);
+    Assert.assertTrue(map.containsKey("k0"));
+    Assert.assertNull(map.get("k0"));
+
+    copy.put("k0", 0);
+    Assert.assertNotEquals(map, copy);
+    copy.put("k0", null);
+    Assert.assertEquals(map, copy);
+    Assert.assertEquals(map.hashCode(), copy.hashCode());
+  }
+
+  /** Random operations on maps and their copies agree with the same operations on HashMaps. */
+  @Test
+  public void randomOperations() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 20; trial++) {
+      List<PersistentHashMap<Key, Integer>> maps = new ArrayList<>();
+      List<Map<Key, Integer>> expecteds = new ArrayList<>();
+      maps.add(new PersistentHashMap<>());
+      expecteds.add(new HashMap<>());
+      // Few distinct hash codes, so that collisions and deep splits are common.
+      int hashBits = 1 + random.nextInt(16);
+      for (int op = 0; op < 3000; op++) {
+        int index = random.nextInt(maps.size());
+        PersistentHashMap<Key, Integer> map = maps.get(index);
+        Map<Key, Integer> expected = expecteds.get(index);
+        int id = random.nextInt(300);
+        Key key = new Key(id, Integer.reverse(id & ((1 << hashBits) - 1)) ^ (id >> hashBits));
+        int value = random.nextInt();
+        switch (random.nextInt(10)) {
+          case 0:
+          case 1:
+          case 2:
+          case 3:
+            Assert.assertEquals(expected.put(key, value), map.put(key, value));
+            break;
+          case 4:
+          case 5:
+            Assert.assertEquals(expected.remove(key), map.remove(key));
+            break;
+          case 6:
+            Assert.assertEquals(expected.get(key), map.get(key));
+            Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+            break;
+          case 7:
+            if (maps.size() < 8) {
+              maps.add(map.copy());
+              expecteds.add(new HashMap<>(expected));
+            }
+            break;
+          case 8:
+            // Update a value, or remove an entry, through the entry set.
+            Iterator<Map.Entry<Key, Integer>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+              Map.Entry<Key, Integer> entry = iterator.next();
+              if (entry.getKey().id % 3 == value % 3) {
+                expected.put(entry.getKey(), value);
+                entry.setValue(value);
+              } else if (entry.getKey().id % 5 == 0) {
+                expected.remove(entry.getKey());
+                iterator.remove();
+              }
+            }
+            break;
+          default:
+            assertSameEntries(expected, map);
+            break;
+        }
+      }
+      for (int i = 0; i < maps.size(); i++) {
+        assertSameEntries(expecteds.get(i), maps.get(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package org.checkerframework.framework.test.junit;
+
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.framework.testchecker.util.FlowTestAnnotatedTypeFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that a checker reuses the control-flow graphs that another checker in the same javac
+ * invocation built, when it would build the same graphs.
+ */
+public class SharedCFGsTest {
+
+  /** A checker that records the control-flow graphs that its type factory analyzes. */
+  private abstract static class RecordingChecker extends BaseTypeChecker {
+    /** The analyzed control-flow graphs, keyed by the code they represent. */
+    final Map<Tree, ControlFlowGraph> cfgs = new IdentityHashMap<>();
+
+    @Override
+    protected BaseTypeVisitor<?> createSourceVisitor() {
+      FlowTestAnnotatedTypeFactory factory =
+          new FlowTestAnnotatedTypeFactory(this) {
+            @Override
+            protected void postAnalyze(ControlFlowGraph cfg) {
+              cfgs.put(cfg.getUnderlyingAST().getCode(), cfg);
+              super.postAnalyze(cfg);
+            }
+          };
+      return new BaseTypeVisitor<FlowTestAnnotatedTypeFactory>(this, factory) {};
+    }
+  }
+
+  /** The first checker; its {@code @SuppressWarnings} prefix is "first". */
+  private static class FirstChecker extends RecordingChecker {
+    /** Creates a FirstChecker. */
+    FirstChecker() {}
+  }
+
+  /** The second checker; its {@code @SuppressWarnings} prefix is "second". */
+  private static class SecondChecker extends RecordingChecker {
+    /** Creates a SecondChecker. */
+    SecondChecker() {}
+  }
+
+  /**
+   * Compiles a class with the given method body, running {@code first} and then {@code second}.
+   *
+   * @param methodBody the body of a method with an int parameter {@code x}
+   * @param first the checker that runs first
+   * @param second the checker that runs second
+   * @throws IOException if the source file cannot be written
+   */
+  private static void compile(String methodBody, FirstChecker first, SecondChecker second)
+      throws IOException {
+    Path dir = Files.createTempDirectory("SharedCFGsTest");
+    Path source = dir.resolve("Shared.java");
+    Files.writeString(source, "class Shared {\n  int m(int x) {\n" + methodBody + "\n  }\n}\n");
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(source.toFile());
+      List<String> options =
+          Arrays.asList("-d", dir.toString(), "-classpath", System.getProperty("java.class.path"));
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(null, fileManager, null, options, null, units);
+      task.setProcessors(Arrays.asList(first, second));
+      Assert.assertTrue("The compilation failed", task.call());
+    } finally {
+      for (File file : dir.toFile().listFiles()) {
+        file.delete();
+      }
+      Files.delete(dir);
+    }
+  }
+
+  /** The second checker reuses every graph, even one with an unrelated {@code @AssumeAssertion}. */
+  @Test
+  public void secondCheckerReusesGraphs() throws IOException {
+    FirstChecker first = new FirstChecker();
+    SecondChecker second = new SecondChecker();
+    compile(
+        "    assert x > 0 : \"@AssumeAssertion(nullness)\";\n"
+            + "    int y = x;\n"
+            + "    for (int i = 0; i < x; i++) {\n"
+            + "      y += i;\n"
+            + "    }\n"
+            + "    return y;",
+        first,
+        second);
+    Assert.assertFalse(second.cfgs.isEmpty());
+    Assert.assertEquals(first.cfgs.keySet(), second.cfgs.keySet());
+    for (Map.Entry<Tree, ControlFlowGraph> entry : second.cfgs.entrySet()) {
+      Assert.assertSame(first.cfgs.get(entry.getKey()), entry.getValue());
+    }
+  }
+
+  /** An {@code @AssumeAssertion} that only the first checker recognizes prevents reuse. */
+  @Test
+  public void assumeAssertionOfOneCheckerPreventsReuse() throws IOException {
+    FirstChecker first = new FirstChecker();
+    SecondChecker second = new SecondChecker();
+    compile("    assert x > 0 : \"@AssumeAssertion(first)\";\n    return x;", first, second);
+    ControlFlowGraph firstCFG = cfgOfMethodM(first);
+    ControlFlowGraph secondCFG = cfgOfMethodM(second);
+    Assert.assertNotNull(firstCFG);
+    Assert.assertNotNull(secondCFG);
+    Assert.assertNotSame(firstCFG, secondCFG);
+  }
+
+  /**
+   * Returns the control-flow graph of method {@code m} that {@code checker} analyzed.
+   *
+   * @param checker a checker that has run
+   * @return the control-flow graph of method {@code m}, or null if there is none
+   */
+  private static @Nullable ControlFlowGraph cfgOfMethodM(RecordingChecker checker) {
+    for (Map.Entry<Tree, ControlFlowGraph> entry : checker.cfgs.entrySet()) {
+      if (entry.getKey() instanceof MethodTree method && method.getName().contentEquals("m")) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+}
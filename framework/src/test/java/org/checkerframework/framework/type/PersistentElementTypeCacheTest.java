@@ -0,0 +1,191 @@
+package org.checkerframework.framework.type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import org.checkerframework.framework.stub.AnnotationFileElementTypes;
+import org.checkerframework.framework.type.PersistentElementTypeCache.ComponentAnnotations;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests the file format and the invalidation of {@link PersistentElementTypeCache}. */
+public class PersistentElementTypeCacheTest {
+
+  /** A temporary directory for cache files, stub files, and .jar files. */
+  private Path dir;
+
+  /**
+   * Creates the temporary directory.
+   *
+   * @throws IOException if the directory cannot be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("PersistentElementTypeCacheTest");
+  }
+
+  /**
+   * Deletes the temporary directory.
+   *
+   * @throws IOException if the directory cannot be deleted
+   */
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /** Decoding an encoded value yields the original annotations. */
+  @Test
+  public void encodeDecodeRoundTrip() {
+    List<ComponentAnnotations> components =
+        Arrays.asList(
+            new ComponentAnnotations(
+                "DECLARED",
+                Arrays.asList(
+                    "org.checkerframework.checker.nullness.qual.NonNull",
+                    "org.checkerframework.checker.interning.qual.Interned")),
+            new ComponentAnnotations("TYPEVAR", Collections.emptyList()),
+            new ComponentAnnotations(
+                "ARRAY",
+                Collections.singletonList("org.checkerframework.checker.nullness.qual.Nullable")),
+            new ComponentAnnotations("NULL", Collections.emptyList()));
+    String value = PersistentElementTypeCache.encode(components);
+    Assert.assertEquals(components, PersistentElementTypeCache.decode(value));
+  }
+
+  /** Malformed values decode to null rather than to wrong annotations. */
+  @Test
+  public void decodeRejectsMalformedValues() {
+    Assert.assertNull(PersistentElementTypeCache.decode("garbage"));
+    Assert.assertNull(PersistentElementTypeCache.decode("=a.B"));
+    Assert.assertNull(PersistentElementTypeCache.decode("DECLARED=a.B,,c.D"));
+    Assert.assertNull(PersistentElementTypeCache.decode("DECLARED=a.B;"));
+  }
+
+  /** Reading a written cache file yields the written entries. */
+  @Test
+  public void fileRoundTrip() throws IOException {
+    Map<String, String> entries = new TreeMap<>();
+    entries.put("java.lang.String", "DECLARED=a.B");
+    entries.put("java.lang.String#length()", "EXECUTABLE=;INT=a.B;DECLARED=");
+    Path file = dir.resolve("configuration").resolve("library.txt");
+    PersistentElementTypeCache.writeEntries(file, entries);
+    Assert.assertEquals(entries, PersistentElementTypeCache.read(file));
+  }
+
+  /** A corrupt cache file is treated as empty or its corrupt lines are skipped. */
+  @Test
+  public void corruptFile() throws IOException {
+    Path file = dir.resolve("library.txt");
+    Map<String, String> entries = Collections.singletonMap("java.lang.String", "DECLARED=a.B");
+    PersistentElementTypeCache.writeEntries(file, entries);
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+    // A file with a different header, such as one in an older format.
+    Files.write(file, Arrays.asList("# Some other file", lines.get(1)), StandardCharsets.UTF_8);
+    Assert.assertEquals(Collections.emptyMap(), PersistentElementTypeCache.read(file));
+
+    // A file that is not UTF-8.
+    Files.write(file, new byte[] {(byte) 0xff, (byte) 0xfe, 0, (byte) 0xc3});
+    Assert.assertEquals(Collections.emptyMap(), PersistentElementTypeCache.read(file));
+
+    // An empty file.
+    Files.write(file, new byte[0]);
+    Assert.assertEquals(Collections.emptyMap(), PersistentElementTypeCache.read(file));
+
+    // A file with a line that lacks a separator, such as a truncated one.
+    Files.write(
+        file, Arrays.asList(lines.get(0), lines.get(1), "java.lang.Obj"), StandardCharsets.UTF_8);
+    Assert.assertEquals(entries, PersistentElementTypeCache.read(file));
+  }
+
+  /** The cache file of a .jar file changes when the .jar file changes. */
+  @Test
+  public void jarChangeInvalidates() throws IOException {
+    Path jar = dir.resolve("library.jar");
+    String container = jar.toUri().toString();
+    writeJar(jar, "class A {}");
+    String name = PersistentElementTypeCache.getLibraryFileName(container, "platform");
+    Assert.assertNotNull(name);
+    Assert.assertEquals(name, PersistentElementTypeCache.getLibraryFileName(container, "platform"));
+
+    writeJar(jar, "class A { int f; }");
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    Assert.assertNotEquals(
+        name, PersistentElementTypeCache.getLibraryFileName(container, "platform"));
+  }
+
+  /** The cache files of the JDK modules depend on the platform, not on the running JDK. */
+  @Test
+  public void platformChangeInvalidates() {
+    String container = "jrt:/java.base";
+    Assert.assertNotEquals(
+        PersistentElementTypeCache.getLibraryFileName(container, "jdk17\nrelease=null"),
+        PersistentElementTypeCache.getLibraryFileName(container, "jdk21\nrelease=17"));
+  }
+
+  /** The hash of a directory of stub files changes when a stub file changes. */
+  @Test
+  public void stubChangeInvalidates() throws IOException {
+    Path stubs = Files.createDirectory(dir.resolve("stubs"));
+    Path stub = stubs.resolve("a.astub");
+    Files.writeString(stub, "class A {}");
+    String hash = PersistentElementTypeCache.hashStubs(stubs.toString(), getClass());
+    Assert.assertEquals(hash, PersistentElementTypeCache.hashStubs(stubs.toString(), getClass()));
+
+    Files.writeString(stub, "class A { @Nullable Object f; }");
+    Files.setLastModifiedTime(stub, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    Assert.assertNotEquals(
+        hash, PersistentElementTypeCache.hashStubs(stubs.toString(), getClass()));
+  }
+
+  /** A stub file that is a resource of the checker, rather than a file, is hashed too. */
+  @Test
+  public void resourceStubIsHashed() throws IOException {
+    Class<?> checkerClass = AnnotationFileElementTypes.class;
+    Path copy = dir.resolve("copy.astub");
+    try (InputStream in = checkerClass.getResourceAsStream("jdk11.astub")) {
+      Assert.assertNotNull(in);
+      Files.write(copy, in.readAllBytes());
+    }
+    String hash = PersistentElementTypeCache.hashStubs("jdk11.astub", checkerClass);
+    Assert.assertEquals(PersistentElementTypeCache.hashStubs(copy.toString(), checkerClass), hash);
+    Assert.assertNotEquals(
+        PersistentElementTypeCache.hashStubs("no-such-file.astub", checkerClass), hash);
+  }
+
+  /**
+   * Writes a .jar file with one entry.
+   *
+   * @param jar the .jar file
+   * @param contents the contents of its entry
+   * @throws IOException if the .jar file cannot be written
+   */
+  private static void writeJar(Path jar, String contents) throws IOException {
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out)) {
+      jarOut.putNextEntry(new JarEntry("A.java"));
+      jarOut.write(contents.getBytes(StandardCharsets.UTF_8));
+      jarOut.closeEntry();
+    }
+  }
+}
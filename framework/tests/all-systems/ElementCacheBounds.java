@@ -0,0 +1,46 @@
+// The declared types of these elements are cached, frozen, on their first use. The later uses
+// read the bounds of their type variables and wildcards, which are initialized lazily and must
+// be initialized before the cached type is frozen.
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@SuppressWarnings("allcheckers") // Only check for crashes
+class ElementCacheBounds<T extends Comparable<? super T>, L extends List<? extends T>> {
+
+  Map<?, ? super T> wildcards;
+
+  L list;
+
+  static <E extends Object & Comparable<? super E>> E max(Collection<? extends E> coll) {
+    return Collections.max(coll);
+  }
+
+  static <K, V extends Collection<? super K>> V add(V collection, K key) {
+    collection.add(key);
+    return collection;
+  }
+
+  T first() {
+    return list.get(0);
+  }
+
+  void use(List<String> strings, Collection<Object> objects, ElementCacheBounds<T, L> other) {
+    String s1 = max(strings);
+    String s2 = max(strings);
+    String s3 = Collections.max(strings);
+    String s4 = Collections.max(strings);
+    Collection<Object> c1 = add(objects, s1);
+    Collection<Object> c2 = add(objects, s2);
+    Map<?, ? super T> m1 = wildcards;
+    Map<?, ? super T> m2 = other.wildcards;
+    T t1 = first();
+    T t2 = other.first();
+    L l1 = list;
+    L l2 = other.list;
+    Class<?> k1 = s3.getClass();
+    Class<?> k2 = s4.getClass();
+  }
+}
@@ -54,6 +54,9 @@ import org.plumelib.util.StringsP;
  * <p>All setter methods throw {@link BugInCF} if the specified element is not found, or if the
  * given value is not a subtype of the expected type.
  *
+ * <p>Built annotations are interned (see {@link AnnotationUtils#areSame}): building an annotation
+ * that is the same as, and prints the same as, an earlier one returns the earlier annotation.
+ *
  * <p>TODO: Doesn't type-check arrays yet
  */
 public class AnnotationBuilder {
@@ -93,6 +96,7 @@ public class AnnotationBuilder {
    * @param name the canonical name of the annotation to build
    */
   public AnnotationBuilder(ProcessingEnvironment env, @FullyQualifiedName CharSequence name) {
+    AnnotationUtils.useAnnotationTypeInfosOf(env);
     this.elements = env.getElementUtils();
     this.types = env.getTypeUtils();
     this.annotationElt = elements.getTypeElement(name);
@@ -111,6 +115,7 @@ public class AnnotationBuilder {
    * @param annotation the annotation to copy
    */
   public AnnotationBuilder(ProcessingEnvironment env, AnnotationMirror annotation) {
+    AnnotationUtils.useAnnotationTypeInfosOf(env);
     this.elements = env.getElementUtils();
     this.types = env.getTypeUtils();
 
@@ -255,8 +260,7 @@ public class AnnotationBuilder {
       elementValues.put(annoElement, elementValue);
     }
 
-    AnnotationMirror result = new CheckerFrameworkAnnotationMirror(annoType, elementValues);
-    return result;
+    return AnnotationUtils.intern(new CheckerFrameworkAnnotationMirror(annoType, elementValues));
   }
 
   /** True if {@link #build()} has been called. */
@@ -271,7 +275,8 @@ public class AnnotationBuilder {
   public AnnotationMirror build() {
     assertNotBuilt();
     wasBuilt = true;
-    return new CheckerFrameworkAnnotationMirror(annotationType, elementValues);
+    return AnnotationUtils.intern(
+        new CheckerFrameworkAnnotationMirror(annotationType, elementValues));
   }
 
   /**
@@ -1,10 +1,12 @@
 package org.checkerframework.javacutil;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.TreeSet;
 import javax.lang.model.element.AnnotationMirror;
 import org.checkerframework.checker.initialization.qual.UnknownInitialization;
@@ -30,15 +32,40 @@ import org.plumelib.util.DeepCopyable;
  *
  * <p>AnnotationMirror is an interface and not all implementing classes provide a correct equals
  * method; therefore, the existing implementations of Set cannot be used.
+ *
+ * <p>Most sets hold one annotation per type hierarchy, so this class stores a set of up to {@link
+ * #ARRAY_THRESHOLD} elements in a sorted array, which {@link #contains} scans with {@link
+ * AnnotationUtils#areSame}. A larger set is stored in a {@link TreeSet}.
  */
 // TODO: Could extend AbstractSet to eliminate the need to implement a few methods.
 public class AnnotationMirrorSet
     implements NavigableSet<@KeyFor("this") AnnotationMirror>, DeepCopyable<AnnotationMirrorSet> {
 
-  /** Backing set. */
+  /** The order of the elements of every AnnotationMirrorSet. */
+  private static final Comparator<AnnotationMirror> ORDER =
+      AnnotationUtils::compareAnnotationMirrors;
+
+  /** The largest set that is stored in {@link #elements} rather than in {@link #shadowSet}. */
+  private static final int ARRAY_THRESHOLD = 8;
+
+  /** The elements array of a set to which nothing has been added. */
+  private static final AnnotationMirror[] NO_ELEMENTS = new AnnotationMirror[0];
+
+  /**
+   * The elements of this set, sorted by {@link #ORDER}, if {@link #shadowSet} is null. Only the
+   * first {@link #size} entries are used.
+   */
+  private @KeyFor("this") AnnotationMirror[] elements = NO_ELEMENTS;
+
+  /** The number of elements in {@link #elements}. */
+  private int size = 0;
+
+  /** Backing set for a set with more than {@link #ARRAY_THRESHOLD} elements; otherwise null. */
   // Not final because makeUnmodifiable() can reassign it.
-  private NavigableSet<@KeyFor("this") AnnotationMirror> shadowSet =
-      new TreeSet<>(AnnotationUtils::compareAnnotationMirrors);
+  private @Nullable NavigableSet<@KeyFor("this") AnnotationMirror> shadowSet = null;
+
+  /** True if {@link #makeUnmodifiable} has been called. */
+  private boolean unmodifiable = false;
 
   /** The canonical unmodifiable empty set. */
   private static AnnotationMirrorSet emptySet = unmodifiableSet(Collections.emptySet());
@@ -73,7 +100,13 @@ public class AnnotationMirrorSet
   @Override
   public AnnotationMirrorSet deepCopy() {
     AnnotationMirrorSet result = new AnnotationMirrorSet();
-    result.shadowSet.addAll(shadowSet);
+    if (shadowSet != null) {
+      result.shadowSet = new TreeSet<>(ORDER);
+      result.shadowSet.addAll(shadowSet);
+    } else if (size != 0) {
+      result.elements = Arrays.copyOf(elements, size);
+      result.size = size;
+    }
     return result;
   }
 
@@ -83,7 +116,10 @@ public class AnnotationMirrorSet
    * @return this set
    */
   public @This AnnotationMirrorSet makeUnmodifiable() {
-    shadowSet = Collections.unmodifiableNavigableSet(shadowSet);
+    if (shadowSet != null) {
+      shadowSet = Collections.unmodifiableNavigableSet(shadowSet);
+    }
+    unmodifiable = true;
     return this;
   }
 
@@ -94,8 +130,6 @@ public class AnnotationMirrorSet
    * @return a new unmodifiable {@link AnnotationMirrorSet} that contains only {@code value}
    */
   public static AnnotationMirrorSet singleton(AnnotationMirror value) {
-    // The implementation could be more efficient if Collections.singleton returned a
-    // NavigableSet.
     AnnotationMirrorSet result = new AnnotationMirrorSet();
     result.add(value);
     result.makeUnmodifiable();
@@ -123,39 +157,141 @@ public class AnnotationMirrorSet
     return emptySet;
   }
 
+  /**
+   * Throws an exception if this set is unmodifiable.
+   *
+   * @throws UnsupportedOperationException if this set is unmodifiable
+   */
+  private void checkModifiable(
+      @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this) {
+    if (unmodifiable) {
+      throw new UnsupportedOperationException("unmodifiable AnnotationMirrorSet");
+    }
+  }
+
+  /**
+   * Returns the index in {@link #elements} of an element that is the same as {@code am}, or -1.
+   *
+   * @param am an annotation
+   * @return the index of the element that is the same as {@code am}, or -1
+   */
+  private int indexOfSame(
+      @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this,
+      AnnotationMirror am) {
+    for (int i = 0; i < size; i++) {
+      if (elements[i] == am) {
+        return i;
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      if (AnnotationUtils.areSame(elements[i], am)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Removes the element at {@code index} of {@link #elements}.
+   *
+   * @param index the index of the element to remove
+   */
+  @SuppressWarnings("nullness:assignment") // clear the slot that is no longer used
+  private void removeAt(int index) {
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    size--;
+    elements[size] = null;
+  }
+
   // Set methods
 
   @Override
   public int size() {
-    return shadowSet.size();
+    return shadowSet != null ? shadowSet.size() : size;
   }
 
   @Override
   public boolean isEmpty() {
-    return shadowSet.isEmpty();
+    return size() == 0;
   }
 
   @Override
   public boolean contains(
       @UnknownInitialization(AnnotationMirrorSet.class) AnnotationMirrorSet this,
       @Nullable Object o) {
-    return o instanceof AnnotationMirror am && AnnotationUtils.containsSame(shadowSet, am);
+    if (!(o instanceof AnnotationMirror am)) {
+      return false;
+    }
+    if (shadowSet != null) {
+      return AnnotationUtils.containsSame(shadowSet, am);
+    }
+    return indexOfSame(am) != -1;
   }
 
   @Override
   public Iterator<@KeyFor("this") AnnotationMirror> iterator() {
-    return shadowSet.iterator();
+    if (shadowSet != null) {
+      return shadowSet.iterator();
+    }
+    return new Iterator<@KeyFor("this") AnnotationMirror>() {
+      /** The index of the next element to return. */
+      private int next = 0;
+
+      /** The index of the element most recently returned, or -1. */
+      private int last = -1;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public @KeyFor("this") AnnotationMirror next() {
+        if (next >= size) {
+          throw new NoSuchElementException();
+        }
+        last = next++;
+        return elements[last];
+      }
+
+      @Override
+      public void remove() {
+        if (last == -1) {
+          throw new IllegalStateException();
+        }
+        checkModifiable();
+        removeAt(last);
+        next = last;
+        last = -1;
+      }
+    };
   }
 
   @Override
   public Object[] toArray() {
-    return shadowSet.toArray();
+    if (shadowSet != null) {
+      return shadowSet.toArray();
+    }
+    return Arrays.copyOf(elements, size, Object[].class);
   }
 
-  @SuppressWarnings("nullness:toarray.nullable.elements.not.newarray") // delegation
+  @SuppressWarnings({
+    "nullness:toarray.nullable.elements.not.newarray", // delegation
+    "unchecked" // the array has the same class as `a`
+  })
   @Override
   public <@KeyForBottom T> @Nullable T[] toArray(@PolyNull T[] a) {
-    return shadowSet.toArray(a);
+    if (shadowSet != null) {
+      return shadowSet.toArray(a);
+    }
+    if (a.length < size) {
+      return (T[]) Arrays.copyOf(elements, size, a.getClass());
+    }
+    System.arraycopy(elements, 0, a, 0, size);
+    if (a.length > size) {
+      a[size] = null;
+    }
+    return a;
   }
 
   @SuppressWarnings("keyfor:argument") // delegation
@@ -167,18 +303,50 @@ public class AnnotationMirrorSet
     if (contains(annotationMirror)) {
       return false;
     }
-    shadowSet.add(annotationMirror);
+    checkModifiable();
+    if (shadowSet != null) {
+      shadowSet.add(annotationMirror);
+      return true;
+    }
+    if (size == ARRAY_THRESHOLD) {
+      NavigableSet<@KeyFor("this") AnnotationMirror> tree = new TreeSet<>(ORDER);
+      tree.addAll(Arrays.asList(elements).subList(0, size));
+      tree.add(annotationMirror);
+      shadowSet = tree;
+      elements = NO_ELEMENTS;
+      size = 0;
+      return true;
+    }
+    int index = size;
+    while (index > 0 && ORDER.compare(elements[index - 1], annotationMirror) > 0) {
+      index--;
+    }
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(2, Math.min(2 * size, ARRAY_THRESHOLD)));
+    }
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = annotationMirror;
+    size++;
     return true;
   }
 
   @Override
   @SideEffectsOnly("this")
   public boolean remove(@Nullable Object o) {
-    if (o instanceof AnnotationMirror am) {
+    if (!(o instanceof AnnotationMirror am)) {
+      return false;
+    }
+    if (shadowSet != null) {
       AnnotationMirror found = AnnotationUtils.getSame(shadowSet, am);
       return found != null && shadowSet.remove(found);
     }
-    return false;
+    int index = indexOfSame(am);
+    if (index == -1) {
+      return false;
+    }
+    checkModifiable();
+    removeAt(index);
+    return true;
   }
 
   @Override
@@ -217,8 +385,11 @@ public class AnnotationMirrorSet
         newSet.add((AnnotationMirror) o);
       }
     }
-    if (newSet.size() != shadowSet.size()) {
-      shadowSet = newSet;
+    if (newSet.size() != size()) {
+      checkModifiable();
+      elements = newSet.elements;
+      size = newSet.size;
+      shadowSet = newSet.shadowSet;
       return true;
     }
     return false;
@@ -239,12 +410,18 @@ public class AnnotationMirrorSet
   @Override
   @SideEffectsOnly("this")
   public void clear() {
-    shadowSet.clear();
+    checkModifiable();
+    elements = NO_ELEMENTS;
+    size = 0;
+    shadowSet = null;
   }
 
   @Override
   public String toString() {
-    return shadowSet.toString();
+    if (shadowSet != null) {
+      return shadowSet.toString();
+    }
+    return Arrays.asList(elements).subList(0, size).toString();
   }
 
   @Override
@@ -284,53 +461,115 @@ public class AnnotationMirrorSet
   })
   @Override
   public Comparator<? super AnnotationMirror> comparator() {
-    return shadowSet.comparator();
+    return ORDER;
   }
 
   @Override
   public @KeyFor("this") AnnotationMirror first() {
-    return shadowSet.first();
+    if (shadowSet != null) {
+      return shadowSet.first();
+    }
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    return elements[0];
   }
 
   @Override
   public @KeyFor("this") AnnotationMirror last() {
-    return shadowSet.last();
+    if (shadowSet != null) {
+      return shadowSet.last();
+    }
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    return elements[size - 1];
   }
 
   @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror lower(AnnotationMirror e) {
-    return shadowSet.lower(e);
+    if (shadowSet != null) {
+      return shadowSet.lower(e);
+    }
+    for (int i = size - 1; i >= 0; i--) {
+      if (ORDER.compare(elements[i], e) < 0) {
+        return elements[i];
+      }
+    }
+    return null;
   }
 
   @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror floor(AnnotationMirror e) {
-    return shadowSet.floor(e);
+    if (shadowSet != null) {
+      return shadowSet.floor(e);
+    }
+    for (int i = size - 1; i >= 0; i--) {
+      if (ORDER.compare(elements[i], e) <= 0) {
+        return elements[i];
+      }
+    }
+    return null;
   }
 
   @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror ceiling(AnnotationMirror e) {
-    return shadowSet.ceiling(e);
+    if (shadowSet != null) {
+      return shadowSet.ceiling(e);
+    }
+    for (int i = 0; i < size; i++) {
+      if (ORDER.compare(elements[i], e) >= 0) {
+        return elements[i];
+      }
+    }
+    return null;
   }
 
   @SuppressWarnings("keyfor:argument") // delegation
   @Override
   public @Nullable @KeyFor("this") AnnotationMirror higher(AnnotationMirror e) {
-    return shadowSet.higher(e);
+    if (shadowSet != null) {
+      return shadowSet.higher(e);
+    }
+    for (int i = 0; i < size; i++) {
+      if (ORDER.compare(elements[i], e) > 0) {
+        return elements[i];
+      }
+    }
+    return null;
   }
 
   @Override
   @SideEffectsOnly("this")
   public @Nullable @KeyFor("this") AnnotationMirror pollFirst() {
-    return shadowSet.pollFirst();
+    checkModifiable();
+    if (shadowSet != null) {
+      return shadowSet.pollFirst();
+    }
+    if (size == 0) {
+      return null;
+    }
+    AnnotationMirror result = elements[0];
+    removeAt(0);
+    return result;
   }
 
   @Override
   @SideEffectsOnly("this")
   public @Nullable @KeyFor("this") AnnotationMirror pollLast() {
-    return shadowSet.pollLast();
+    checkModifiable();
+    if (shadowSet != null) {
+      return shadowSet.pollLast();
+    }
+    if (size == 0) {
+      return null;
+    }
+    AnnotationMirror result = elements[size - 1];
+    removeAt(size - 1);
+    return result;
   }
 
   @Override
@@ -5,24 +5,29 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.ModifiersTree;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.model.JavacElements;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
 import java.lang.annotation.Target;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.StringJoiner;
-import java.util.TreeSet;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Name;
@@ -42,6 +47,7 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
 import org.checkerframework.javacutil.AnnotationBuilder.CheckerFrameworkAnnotationMirror;
 import org.plumelib.util.ArrayMap;
 import org.plumelib.util.CollectionsP;
+import org.plumelib.util.MapsP;
 
 /**
  * A utility class for working with annotations.
@@ -405,13 +411,10 @@ public final class AnnotationUtils {
     // The annotations have the same name, but possibly different values, so compare values.
     Map<? extends ExecutableElement, ? extends AnnotationValue> vals1 = a1.getElementValues();
     Map<? extends ExecutableElement, ? extends AnnotationValue> vals2 = a2.getElementValues();
-    Set<ExecutableElement> sortedElements =
-        new TreeSet<>(Comparator.comparing(ElementUtils::getSimpleSignature));
-    sortedElements.addAll(
-        ElementFilter.methodsIn(a1.getAnnotationType().asElement().getEnclosedElements()));
 
     // getDefaultValue() returns null if the method is not an annotation interface element.
-    for (ExecutableElement meth : sortedElements) {
+    for (ExecutableElement meth :
+        getAnnotationTypeInfo(a1.getAnnotationType().asElement()).sortedElements) {
       AnnotationValue aval1 = vals1.get(meth);
       if (aval1 == null) {
         aval1 = meth.getDefaultValue();
@@ -428,6 +431,141 @@ public final class AnnotationUtils {
     return 0;
   }
 
+  /** The maximum number of annotation types whose {@link AnnotationTypeInfo} is cached. */
+  private static final int ANNOTATION_TYPE_INFO_CACHE_SIZE = 500;
+
+  /** The maximum number of canonical annotations that are kept for one annotation type. */
+  private static final int CANONICAL_ANNOTATIONS_PER_TYPE = 1000;
+
+  /** The key under which a compilation's {@link AnnotationTypeInfos} is stored in its context. */
+  private static final Context.Key<AnnotationTypeInfos> ANNOTATION_TYPE_INFOS_KEY =
+      new Context.Key<>();
+
+  /**
+   * The information about annotation types of the compilation that most recently created an
+   * {@link AnnotationBuilder}. The compilation's context holds the only strong reference, so that
+   * a finished compilation, and all of its elements, can be garbage-collected.
+   */
+  private static volatile WeakReference<AnnotationTypeInfos> annotationTypeInfos =
+      new WeakReference<>(null);
+
+  /**
+   * Information about the annotation types of one compilation, keyed by the element of the
+   * annotation type.
+   */
+  private static final class AnnotationTypeInfos {
+    /** The processing environment of the compilation. */
+    final ProcessingEnvironment env;
+
+    /** The cached information, which is bounded in size. */
+    final Map<Element, AnnotationTypeInfo> infos =
+        Collections.synchronizedMap(MapsP.createLruCache(ANNOTATION_TYPE_INFO_CACHE_SIZE));
+
+    /**
+     * Creates an empty cache for the given compilation.
+     *
+     * @param env the processing environment of the compilation
+     */
+    AnnotationTypeInfos(ProcessingEnvironment env) {
+      this.env = env;
+    }
+  }
+
+  /**
+   * Caches information about annotation types in the compilation of {@code env} from now on. Called
+   * by the constructors of {@link AnnotationBuilder}, so that the cache belongs to the compilation
+   * that is creating annotations.
+   *
+   * @param env the processing environment of the current compilation
+   */
+  static void useAnnotationTypeInfosOf(ProcessingEnvironment env) {
+    AnnotationTypeInfos current = annotationTypeInfos.get();
+    if (current != null && current.env == env) {
+      return;
+    }
+    synchronized (ANNOTATION_TYPE_INFOS_KEY) {
+      Context context = ((JavacProcessingEnvironment) env).getContext();
+      AnnotationTypeInfos infos = context.get(ANNOTATION_TYPE_INFOS_KEY);
+      if (infos == null) {
+        infos = new AnnotationTypeInfos(env);
+        context.put(ANNOTATION_TYPE_INFOS_KEY, infos);
+      }
+      annotationTypeInfos = new WeakReference<>(infos);
+    }
+  }
+
+  /** Information about an annotation type that is computed once and then reused. */
+  private static final class AnnotationTypeInfo {
+    /** The elements of the annotation type, sorted by their simple signature. */
+    final List<ExecutableElement> sortedElements;
+
+    /**
+     * Canonical annotations of this type that were created by {@link AnnotationBuilder}, keyed by
+     * their string representation.
+     */
+    final Map<String, AnnotationMirror> canonicalAnnotations = new HashMap<>();
+
+    /**
+     * Creates the information for the given annotation type.
+     *
+     * @param annoElt the element of an annotation type
+     */
+    AnnotationTypeInfo(Element annoElt) {
+      List<ExecutableElement> elts =
+          new ArrayList<>(ElementFilter.methodsIn(annoElt.getEnclosedElements()));
+      elts.sort(Comparator.comparing(ElementUtils::getSimpleSignature));
+      this.sortedElements = elts;
+    }
+  }
+
+  /**
+   * Returns the information about the given annotation type, cached in the current compilation.
+   *
+   * @param annoElt the element of an annotation type
+   * @return the information about {@code annoElt}
+   */
+  private static AnnotationTypeInfo getAnnotationTypeInfo(Element annoElt) {
+    AnnotationTypeInfos current = annotationTypeInfos.get();
+    if (current == null) {
+      // No compilation has created an annotation yet, or it has been garbage-collected.
+      return new AnnotationTypeInfo(annoElt);
+    }
+    AnnotationTypeInfo info = current.infos.get(annoElt);
+    if (info == null) {
+      info = new AnnotationTypeInfo(annoElt);
+      current.infos.put(annoElt, info);
+    }
+    return info;
+  }
+
+  /**
+   * Returns the canonical annotation that is the same as {@code anno}: the first annotation with
+   * the same string representation that was passed to this method, if it is the same as {@code
+   * anno} according to {@link #areSame}, and otherwise {@code anno} itself. Interning the
+   * annotations that {@link AnnotationBuilder} creates lets {@link #areSame} return at its
+   * reference-equality test for most annotations that the Checker Framework creates.
+   *
+   * <p>The string representation is part of the key, so that an annotation that explicitly
+   * writes a default value is not replaced by one that doesn't, which would change diagnostics.
+   *
+   * @param anno an annotation created by {@link AnnotationBuilder}, which must not be modified
+   * @return the canonical annotation that is the same as {@code anno}
+   */
+  static AnnotationMirror intern(CheckerFrameworkAnnotationMirror anno) {
+    AnnotationTypeInfo info = getAnnotationTypeInfo(anno.getAnnotationType().asElement());
+    String key = anno.toString();
+    synchronized (info) {
+      AnnotationMirror canonical = info.canonicalAnnotations.get(key);
+      if (canonical == null) {
+        if (info.canonicalAnnotations.size() < CANONICAL_ANNOTATIONS_PER_TYPE) {
+          info.canonicalAnnotations.put(key, anno);
+        }
+        return anno;
+      }
+      return sameElementValues(canonical, anno) ? canonical : anno;
+    }
+  }
+
   /**
    * Compare the two AnnotationValue objects for order.
    *
@@ -1185,7 +1323,7 @@ public final class AnnotationUtils {
 
     // Same elts for both annotations, because am1.getAnnotationType() == am2.getAnnotationType().
     List<ExecutableElement> elts =
-        ElementFilter.methodsIn(am1.getAnnotationType().asElement().getEnclosedElements());
+        getAnnotationTypeInfo(am1.getAnnotationType().asElement()).sortedElements;
     if (elts.isEmpty()) {
       return true;
     }
@@ -170,6 +170,19 @@ public final class SystemUtil {
     return options.get(Option.RELEASE);
   }
 
+  /**
+   * Returns the system value passed to the compiler (the JDK whose modules are compiled against) or
+   * null if system was not passed.
+   *
+   * @param env the ProcessingEnvironment
+   * @return the system value or null if none was passed
+   */
+  public static @Nullable String getSystemValue(ProcessingEnvironment env) {
+    Context ctx = ((JavacProcessingEnvironment) env).getContext();
+    Options options = Options.instance(ctx);
+    return options.get(Option.SYSTEM);
+  }
+
   /**
    * Returns the pathname to the tools.jar file, or null if it does not exist. Returns null on Java
    * 9 and later.